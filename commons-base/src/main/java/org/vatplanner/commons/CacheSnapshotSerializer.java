@@ -0,0 +1,54 @@
+package org.vatplanner.commons;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts cache keys and values to and from their binary representation in snapshots written by
+ * {@link LRUCache#writeSnapshot(java.io.OutputStream, CacheSnapshotSerializer)}.
+ * <p>
+ * Implementations are responsible for delimiting their data, i.e. reading a key or value must consume exactly the
+ * bytes written for it.
+ * </p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public interface CacheSnapshotSerializer<K, V> {
+    /**
+     * Writes the given key.
+     *
+     * @param out destination to write to
+     * @param key key to write
+     * @throws IOException if writing fails
+     */
+    void writeKey(DataOutput out, K key) throws IOException;
+
+    /**
+     * Writes the given value.
+     *
+     * @param out   destination to write to
+     * @param value value to write; never {@code null}
+     * @throws IOException if writing fails
+     */
+    void writeValue(DataOutput out, V value) throws IOException;
+
+    /**
+     * Reads a key as written by {@link #writeKey(DataOutput, Object)}.
+     *
+     * @param in source to read from
+     * @return read key
+     * @throws IOException if reading fails
+     */
+    K readKey(DataInput in) throws IOException;
+
+    /**
+     * Reads a value as written by {@link #writeValue(DataOutput, Object)}.
+     *
+     * @param in source to read from
+     * @return read value
+     * @throws IOException if reading fails
+     */
+    V readValue(DataInput in) throws IOException;
+}
@@ -0,0 +1,169 @@
+package org.vatplanner.commons;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of statistics recorded by a cache, see {@link LRUCache#setStatisticsEnabled(boolean)}.
+ */
+public class CacheStatistics {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadNanos;
+    private final long[] removalCounts;
+    private final long maintenanceCount;
+    private final long totalMaintenanceNanos;
+
+    CacheStatistics(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadNanos, long[] removalCounts, long maintenanceCount, long totalMaintenanceNanos) {
+        if (removalCounts.length != LRUCache.RemovalCause.values().length) {
+            throw new IllegalArgumentException("removal counts must be provided for all causes");
+        }
+
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadNanos = totalLoadNanos;
+        this.removalCounts = Arrays.copyOf(removalCounts, removalCounts.length);
+        this.maintenanceCount = maintenanceCount;
+        this.totalMaintenanceNanos = totalMaintenanceNanos;
+    }
+
+    /**
+     * Returns an empty snapshot, as reported if recording statistics is disabled.
+     *
+     * @return empty snapshot
+     */
+    static CacheStatistics empty() {
+        return new CacheStatistics(0, 0, 0, 0, 0, new long[LRUCache.RemovalCause.values().length], 0, 0);
+    }
+
+    /**
+     * Returns the number of lookups that found a value in the cache.
+     *
+     * @return number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a value in the cache.
+     *
+     * @return number of cache misses
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the total number of lookups.
+     *
+     * @return number of cache hits and misses
+     */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Returns the ratio of lookups that found a value in the cache.
+     *
+     * @return ratio of hits to all requests; {@code 1.0} if there were no requests
+     */
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return (requestCount == 0) ? 1.0 : ((double) hitCount / requestCount);
+    }
+
+    /**
+     * Returns the number of loads which completed without exception, whether they provided a value or not.
+     *
+     * @return number of successful loads
+     */
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /**
+     * Returns the number of loads which failed with an exception.
+     *
+     * @return number of failed loads
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Returns the total time spent on loading values, including failed loads.
+     *
+     * @return total time spent on loads
+     */
+    public Duration getTotalLoadTime() {
+        return Duration.ofNanos(totalLoadNanos);
+    }
+
+    /**
+     * Returns the number of entries removed from the cache for the given reason.
+     *
+     * @param cause reason of removal
+     * @return number of entries removed for the given reason
+     */
+    public long getRemovalCount(LRUCache.RemovalCause cause) {
+        return removalCounts[cause.ordinal()];
+    }
+
+    /**
+     * Returns the number of entries evicted by policy, i.e. removed due to size or expiration.
+     *
+     * @return number of evicted entries
+     */
+    public long getEvictionCount() {
+        long res = 0;
+        for (LRUCache.RemovalCause cause : LRUCache.RemovalCause.values()) {
+            if (cause.isEviction()) {
+                res += getRemovalCount(cause);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the number of times the cache has been maintained.
+     *
+     * @return number of maintenance runs
+     */
+    public long getMaintenanceCount() {
+        return maintenanceCount;
+    }
+
+    /**
+     * Returns the total time spent on maintaining the cache, including time spent waiting for the cache lock.
+     *
+     * @return total time spent on maintenance
+     */
+    public Duration getTotalMaintenanceTime() {
+        return Duration.ofNanos(totalMaintenanceNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CacheStatistics(");
+        sb.append("hits=").append(hitCount);
+        sb.append(", misses=").append(missCount);
+        sb.append(", loadSuccesses=").append(loadSuccessCount);
+        sb.append(", loadFailures=").append(loadFailureCount);
+        sb.append(", totalLoadTime=").append(getTotalLoadTime());
+
+        for (LRUCache.RemovalCause cause : LRUCache.RemovalCause.values()) {
+            sb.append(", removed").append(cause.name()).append("=").append(getRemovalCount(cause));
+        }
+
+        sb.append(", maintenances=").append(maintenanceCount);
+        sb.append(", totalMaintenanceTime=").append(getTotalMaintenanceTime());
+        sb.append(")");
+
+        return sb.toString();
+    }
+}
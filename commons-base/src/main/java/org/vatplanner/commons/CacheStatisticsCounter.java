@@ -0,0 +1,74 @@
+package org.vatplanner.commons;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records cache statistics using striped {@link LongAdder}s, so that recording does not add contention between
+ * threads.
+ */
+class CacheStatisticsCounter {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder[] removalCounts = new LongAdder[LRUCache.RemovalCause.values().length];
+    private final LongAdder maintenanceCount = new LongAdder();
+    private final LongAdder totalMaintenanceNanos = new LongAdder();
+
+    CacheStatisticsCounter() {
+        for (int i = 0; i < removalCounts.length; i++) {
+            removalCounts[i] = new LongAdder();
+        }
+    }
+
+    void recordLookup(boolean isHit) {
+        if (isHit) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+    }
+
+    void recordLookups(int numHits, int numMisses) {
+        hitCount.add(numHits);
+        missCount.add(numMisses);
+    }
+
+    void recordLoad(boolean isSuccess, long nanos) {
+        if (isSuccess) {
+            loadSuccessCount.increment();
+        } else {
+            loadFailureCount.increment();
+        }
+
+        totalLoadNanos.add(nanos);
+    }
+
+    void recordRemoval(LRUCache.RemovalCause cause) {
+        removalCounts[cause.ordinal()].increment();
+    }
+
+    void recordMaintenance(long nanos) {
+        maintenanceCount.increment();
+        totalMaintenanceNanos.add(nanos);
+    }
+
+    CacheStatistics snapshot() {
+        long[] removalCountsCopy = new long[removalCounts.length];
+        for (int i = 0; i < removalCounts.length; i++) {
+            removalCountsCopy[i] = removalCounts[i].sum();
+        }
+
+        return new CacheStatistics(
+            hitCount.sum(),
+            missCount.sum(),
+            loadSuccessCount.sum(),
+            loadFailureCount.sum(),
+            totalLoadNanos.sum(),
+            removalCountsCopy,
+            maintenanceCount.sum(),
+            totalMaintenanceNanos.sum()
+        );
+    }
+}
@@ -0,0 +1,168 @@
+package org.vatplanner.commons;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.vatplanner.commons.schedulers.SimpleScheduler;
+import org.vatplanner.commons.utils.Ticker;
+
+/**
+ * A variant of {@link LRUCache} optimized for being read by many threads concurrently.
+ * <p>
+ * Other than {@link LRUCache}, retrieving a value via {@link #get(Object)} does not lock the cache. Entries are
+ * indexed by a {@link ConcurrentHashMap} and usage is recorded in striped buffers which are replayed lazily to the
+ * usage list while the cache is locked anyway, i.e. during {@link #maintain()} or when a buffer runs full. All
+ * modifications are still serialized.
+ * </p>
+ * <p>
+ * Recording usage is lossy: Accesses may be dropped from the buffers under heavy contention, so the order of
+ * eviction only approximates the actual order of usage. Timestamps of last usage are only updated when usage is
+ * replayed, so they always match the order of the usage list and expiration can rely on it. As a result, usage counts
+ * from the time it has been replayed and dropped accesses do not prolong an entry's life.
+ * </p>
+ * <p>
+ * Unlike {@link LRUCache}, {@code null} keys are not supported.
+ * </p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class ConcurrentLRUCache<K, V> extends LRUCache<K, V> {
+    private final StripedReadBuffer<Entry<K, V>> readBuffer = new StripedReadBuffer<>();
+    private final AtomicBoolean isDraining = new AtomicBoolean();
+
+    /**
+     * Creates a new cache with an unbound policy.
+     */
+    public ConcurrentLRUCache() {
+        this(Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new cache with an unbound policy, tracking usage by the given {@link Ticker}.
+     *
+     * @param ticker source of time used to track usage
+     */
+    public ConcurrentLRUCache(Ticker ticker) {
+        super(new ConcurrentHashMap<>(), ticker);
+    }
+
+    @Override
+    Entry<K, V> lookup(K key) {
+        Entry<K, V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        // timestamp of last usage is only updated on replay to keep the usage list ordered
+        StripedReadBuffer.OfferResult result = readBuffer.offer(entry);
+        if (result == StripedReadBuffer.OfferResult.RECORDED_FULL) {
+            tryDrain();
+        }
+
+        return entry;
+    }
+
+    private void tryDrain() {
+        // only one reader needs to drain, all others can continue without waiting for the lock
+        if (!isDraining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            synchronized (map) {
+                drainAccesses();
+            }
+        } finally {
+            isDraining.set(false);
+        }
+    }
+
+    @Override
+    void drainAccesses() {
+        readBuffer.drainTo(this::replayAccess);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="return type overload">
+    @Override
+    public ConcurrentLRUCache<K, V> setMinEntries(int minEntries) {
+        super.setMinEntries(minEntries);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setMaxEntries(int maxEntries) {
+        super.setMaxEntries(maxEntries);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setMaxWeight(long maxWeight) {
+        super.setMaxWeight(maxWeight);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setWeigher(Weigher<? super K, ? super V> weigher) {
+        super.setWeigher(weigher);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setFrequencyAdmission(boolean enabled) {
+        super.setFrequencyAdmission(enabled);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setUsageExpiration(Duration usageExpiration) {
+        super.setUsageExpiration(usageExpiration);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setRefreshAfterWrite(Duration refreshAfterWrite) {
+        super.setRefreshAfterWrite(refreshAfterWrite);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setExpiry(Expiry<? super K, ? super V> expiry) {
+        super.setExpiry(expiry);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setMaintenanceScheduler(SimpleScheduler scheduler) {
+        super.setMaintenanceScheduler(scheduler);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setStatisticsEnabled(boolean enabled) {
+        super.setStatisticsEnabled(enabled);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setRemovalListener(RemovalListener<? super K, ? super V> removalListener) {
+        super.setRemovalListener(removalListener);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setLoader(Function<? super K, ? extends V> loader) {
+        super.setLoader(loader);
+        return this;
+    }
+
+    @Override
+    public ConcurrentLRUCache<K, V> setExecutor(Executor executor) {
+        super.setExecutor(executor);
+        return this;
+    }
+    // </editor-fold>
+}
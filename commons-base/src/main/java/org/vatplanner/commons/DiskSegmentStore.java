@@ -0,0 +1,451 @@
+package org.vatplanner.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.commons.utils.Ticker;
+
+/**
+ * Stores cache entries in append-only, memory-mapped segment files of fixed size.
+ * <p>
+ * Entries are appended to the youngest segment as records of the serialized key and value. All records are indexed
+ * in memory; files do not survive the store and any segment files left in the directory are deleted when opening
+ * the store. Replaced or removed records remain in their segment until it gets compacted or dropped.
+ * </p>
+ * <p>
+ * Records may be given a time to live which is kept in the index. Expired records are no longer returned and are
+ * discarded when their segment gets compacted.
+ * </p>
+ * <p>
+ * The total size of all segment files is bounded. When a new segment is needed while the limit is reached, the
+ * segment with the least live data is compacted by rewriting its remaining records to its start if that leaves
+ * enough space for the new record, otherwise the eldest segment is dropped together with all records it still holds.
+ * As records are appended in order of eviction from memory, dropping the eldest segment discards the least recently
+ * used entries first.
+ * </p>
+ * <p>
+ * Segment files are never deleted while the store is open: dropped or cleared segments are kept mapped and are
+ * reused for new segments, so at most {@code maxBytes / segmentSize} files are created. This matters because a
+ * deleted file still occupies disk space for as long as it is mapped, and mappings are only released once their
+ * buffers have been garbage-collected. Files are only deleted on {@link #close()}; their space may therefore remain
+ * in use until the discarded buffers have been collected.
+ * </p>
+ * <p>
+ * All methods are synchronized.
+ * </p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+class DiskSegmentStore<K, V> implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskSegmentStore.class);
+
+    private static final String FILE_NAME_PREFIX = "segment-";
+    private static final String FILE_NAME_SUFFIX = ".dat";
+    private static final int RECORD_HEADER_LENGTH = Integer.BYTES;
+
+    /**
+     * Segments are only compacted if at most this fraction of their records are still live.
+     */
+    private static final double MAX_COMPACTION_LIVE_RATIO = 0.5;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final CacheSnapshotSerializer<K, V> serializer;
+    private final Ticker ticker;
+
+    private final Map<K, Location> index = new HashMap<>();
+
+    /**
+     * All segments holding records, ordered by age, eldest first.
+     */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * Segments whose files have been created but are currently unused.
+     */
+    private final Deque<Segment> freeSegments = new ArrayDeque<>();
+    private int nextSegmentId;
+
+    private class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        long liveBytes;
+
+        /**
+         * Keys of all live records held by this segment.
+         */
+        final Set<K> keys = new HashSet<>();
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        void reset() {
+            writePosition = 0;
+            liveBytes = 0;
+            keys.clear();
+        }
+    }
+
+    private class Location {
+        final Segment segment;
+        final int offset;
+        final int length;
+        final long writtenAt;
+
+        /**
+         * Maximum time since {@link #writtenAt} before the record expires; negative if it does not expire.
+         */
+        final long timeToLiveNanos;
+
+        Location(Segment segment, int offset, int length, long writtenAt, long timeToLiveNanos) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.writtenAt = writtenAt;
+            this.timeToLiveNanos = timeToLiveNanos;
+        }
+
+        boolean hasExpired(long now) {
+            return (timeToLiveNanos >= 0) && (now - writtenAt > timeToLiveNanos);
+        }
+    }
+
+    /**
+     * Opens a new store in the given directory, deleting any segment files left from previous stores.
+     *
+     * @param directory   dedicated directory to hold segment files; will be created if missing
+     * @param segmentSize size of each segment file in bytes; limits the size of a single record
+     * @param maxBytes    maximum total size of all segment files in bytes; must allow for at least two segments
+     * @param serializer  serializes keys and values
+     * @param ticker      source of time used to expire records
+     * @throws IOException if the directory cannot be prepared
+     */
+    DiskSegmentStore(Path directory, int segmentSize, long maxBytes, CacheSnapshotSerializer<K, V> serializer, Ticker ticker) throws IOException {
+        if (segmentSize <= RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("segment size is too small: " + segmentSize);
+        }
+
+        long maxSegmentsLong = maxBytes / segmentSize;
+        if (maxSegmentsLong < 2) {
+            throw new IllegalArgumentException(
+                "maximum size of " + maxBytes + " bytes must allow for at least two segments of " + segmentSize + " bytes"
+            );
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.min(Integer.MAX_VALUE, maxSegmentsLong);
+        this.serializer = serializer;
+        this.ticker = ticker;
+
+        Files.createDirectories(directory);
+        deleteSegmentFiles();
+    }
+
+    private void deleteSegmentFiles() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_NAME_PREFIX + "*" + FILE_NAME_SUFFIX)) {
+            for (Path path : stream) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Stores the given entry, replacing any previous record of the same key.
+     *
+     * @param key             key to store value under
+     * @param value           value to store
+     * @param timeToLiveNanos maximum time (inclusive) in nanoseconds to keep the record; negative if it should not
+     *                        expire
+     * @return {@code true} if stored, {@code false} if the record would exceed the segment size
+     * @throws IOException if serialization or creation of a new segment fails
+     */
+    synchronized boolean put(K key, V value, long timeToLiveNanos) throws IOException {
+        byte[] payload = serialize(key, value);
+        int length = RECORD_HEADER_LENGTH + payload.length;
+
+        discard(key);
+
+        if (length > segmentSize) {
+            return false;
+        }
+
+        Segment segment = segmentWithSpace(length);
+        append(segment, key, payload, ticker.read(), timeToLiveNanos);
+
+        return true;
+    }
+
+    private byte[] serialize(K key, V value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        serializer.writeKey(dos, key);
+        serializer.writeValue(dos, value);
+        dos.flush();
+
+        return baos.toByteArray();
+    }
+
+    private void append(Segment segment, K key, byte[] payload, long writtenAt, long timeToLiveNanos) {
+        int offset = segment.writePosition;
+        int length = RECORD_HEADER_LENGTH + payload.length;
+
+        ByteBuffer destination = segment.buffer.duplicate();
+        ((Buffer) destination).position(offset);
+        destination.putInt(payload.length);
+        destination.put(payload);
+
+        segment.writePosition += length;
+        segment.liveBytes += length;
+        segment.keys.add(key);
+        index.put(key, new Location(segment, offset, length, writtenAt, timeToLiveNanos));
+    }
+
+    /**
+     * Returns a segment able to hold a record of the given length, creating a new one if needed.
+     *
+     * @param length length of record to write
+     * @return segment with enough remaining space
+     * @throws IOException if a new segment cannot be created
+     */
+    private Segment segmentWithSpace(int length) throws IOException {
+        if (!segments.isEmpty()) {
+            Segment youngest = segments.get(segments.size() - 1);
+            if (segmentSize - youngest.writePosition >= length) {
+                return youngest;
+            }
+        }
+
+        while (segments.size() >= maxSegments) {
+            Segment compactable = findCompactable(length);
+            if (compactable != null) {
+                compact(compactable);
+                return compactable;
+            }
+
+            drop(segments.get(0));
+        }
+
+        return acquireSegment();
+    }
+
+    private Segment findCompactable(int additionalLength) {
+        Segment sparsest = null;
+        for (Segment segment : segments) {
+            if ((sparsest == null) || (segment.liveBytes < sparsest.liveBytes)) {
+                sparsest = segment;
+            }
+        }
+
+        boolean isSparse = sparsest.liveBytes <= sparsest.writePosition * MAX_COMPACTION_LIVE_RATIO;
+        boolean leavesSpace = sparsest.liveBytes + additionalLength <= segmentSize;
+
+        return (isSparse && leavesSpace) ? sparsest : null;
+    }
+
+    /**
+     * Rewrites all live records of the given segment to its start and makes it the youngest segment. Expired records
+     * are discarded.
+     *
+     * @param segment segment to compact
+     */
+    private void compact(Segment segment) {
+        long now = ticker.read();
+
+        // payloads need to be copied before overwriting them
+        List<K> keys = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        for (K key : segment.keys) {
+            Location location = index.get(key);
+            if (location.hasExpired(now)) {
+                index.remove(key);
+                continue;
+            }
+
+            keys.add(key);
+            locations.add(location);
+            payloads.add(readPayload(location));
+        }
+
+        segment.reset();
+        segments.remove(segment);
+        segments.add(segment);
+
+        for (int i = 0; i < keys.size(); i++) {
+            Location location = locations.get(i);
+            append(segment, keys.get(i), payloads.get(i), location.writtenAt, location.timeToLiveNanos);
+        }
+    }
+
+    private void drop(Segment segment) {
+        segments.remove(segment);
+        for (K key : segment.keys) {
+            index.remove(key);
+        }
+        release(segment);
+    }
+
+    private void release(Segment segment) {
+        segment.reset();
+        freeSegments.push(segment);
+    }
+
+    private void deleteFile(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException ex) {
+            LOGGER.warn("failed to delete cache segment {}", segment.path, ex);
+        }
+    }
+
+    private Segment acquireSegment() throws IOException {
+        Segment segment = freeSegments.poll();
+        if (segment == null) {
+            segment = createSegment();
+        }
+
+        segments.add(segment);
+
+        return segment;
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = directory.resolve(FILE_NAME_PREFIX + (nextSegmentId++) + FILE_NAME_SUFFIX);
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // mapping remains valid after the channel has been closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+
+        return new Segment(path, buffer);
+    }
+
+    private byte[] readPayload(Location location) {
+        ByteBuffer source = location.segment.buffer.duplicate();
+        ((Buffer) source).position(location.offset + RECORD_HEADER_LENGTH);
+
+        byte[] payload = new byte[location.length - RECORD_HEADER_LENGTH];
+        source.get(payload);
+
+        return payload;
+    }
+
+    /**
+     * Removes the entry for the given key and returns its value.
+     *
+     * @param key key of entry to remove
+     * @return value stored for key; {@code null} if not present or expired
+     * @throws IOException if the value cannot be deserialized; the entry is removed nevertheless
+     */
+    synchronized V take(K key) throws IOException {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+
+        discard(key);
+
+        if (location.hasExpired(ticker.read())) {
+            return null;
+        }
+
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(readPayload(location)));
+        K storedKey = serializer.readKey(dis);
+        if (!Objects.equals(key, storedKey)) {
+            throw new IOException("record for key " + key + " holds unexpected key " + storedKey);
+        }
+
+        return serializer.readValue(dis);
+    }
+
+    /**
+     * Removes the entry for the given key.
+     *
+     * @param key key of entry to remove
+     */
+    synchronized void remove(K key) {
+        discard(key);
+    }
+
+    private void discard(K key) {
+        Location location = index.remove(key);
+        if (location != null) {
+            location.segment.liveBytes -= location.length;
+            location.segment.keys.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entries. Segment files are kept for reuse.
+     */
+    synchronized void clear() {
+        index.clear();
+
+        for (Segment segment : segments) {
+            release(segment);
+        }
+        segments.clear();
+    }
+
+    /**
+     * Returns the number of entries held by the store.
+     *
+     * @return number of entries
+     */
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the total size of all segment files, including unused segments kept for reuse.
+     *
+     * @return size of all segment files in bytes
+     */
+    synchronized long getFileBytes() {
+        return (long) (segments.size() + freeSegments.size()) * segmentSize;
+    }
+
+    /**
+     * Removes all entries and deletes all segment files. Disk space may only be released once the mappings of the
+     * deleted files have been garbage-collected.
+     */
+    @Override
+    public synchronized void close() {
+        clear();
+
+        for (Segment segment : freeSegments) {
+            deleteFile(segment);
+        }
+        freeSegments.clear();
+    }
+}
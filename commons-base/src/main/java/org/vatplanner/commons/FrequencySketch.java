@@ -0,0 +1,139 @@
+package org.vatplanner.commons;
+
+import java.util.Objects;
+
+/**
+ * A compact probabilistic estimate of how often elements have been accessed, used to decide on cache admission.
+ * <p>
+ * This is a Count-Min sketch using four 4-bit counters per element, packed into {@code long}s. Estimates may exceed
+ * the actual frequency due to hash collisions but never fall below it (up to the maximum countable frequency of 15).
+ * To let the sketch adapt to changing access patterns, all counters are halved periodically once a number of
+ * increments relative to the sketch's size has been recorded ("aging").
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L,
+        0xb492b66fbe98f273L,
+        0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int MIN_TABLE_SIZE = 64;
+    private static final int SAMPLE_FACTOR = 10;
+
+    private long[] table = new long[0];
+    private int tableMask;
+    private int sampleSize;
+    private int numIncrements;
+
+    /**
+     * Resizes the sketch to be able to estimate frequencies for the given number of elements with reasonable accuracy.
+     * The sketch is only ever grown. Recorded frequencies are kept when growing, although they remain as inaccurate as
+     * they were in the smaller table until they have been aged out.
+     *
+     * @param numElements number of elements expected to be tracked
+     */
+    void ensureCapacity(int numElements) {
+        int wantedSize = MIN_TABLE_SIZE;
+        while ((wantedSize < numElements) && (wantedSize < (1 << 30))) {
+            wantedSize <<= 1;
+        }
+
+        int oldSize = table.length;
+        if (oldSize >= wantedSize) {
+            return;
+        }
+
+        long[] oldTable = table;
+        table = new long[wantedSize];
+
+        // indices only gain higher bits when growing, so all new slots sharing the lower bits of an old slot take its
+        // counters which still never underestimate any element's frequency
+        if (oldSize > 0) {
+            for (int i = 0; i < wantedSize; i += oldSize) {
+                System.arraycopy(oldTable, 0, table, i, oldSize);
+            }
+        }
+
+        tableMask = wantedSize - 1;
+        sampleSize = SAMPLE_FACTOR * wantedSize;
+    }
+
+    /**
+     * Returns the estimated number of times the given element has been recorded.
+     *
+     * @param element element to estimate frequency for; may be {@code null}
+     * @return estimated frequency; at most 15
+     */
+    int frequency(Object element) {
+        if (table.length == 0) {
+            return 0;
+        }
+
+        int hash = spread(Objects.hashCode(element));
+        int start = (hash & 3) << 2;
+
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            int count = (int) ((table[index] >>> offset) & 0xFL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Records an access of the given element.
+     *
+     * @param element accessed element; may be {@code null}
+     */
+    void increment(Object element) {
+        if (table.length == 0) {
+            return;
+        }
+
+        int hash = spread(Objects.hashCode(element));
+        int start = (hash & 3) << 2;
+
+        boolean isIncremented = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            long mask = 0xFL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                isIncremented = true;
+            }
+        }
+
+        if (isIncremented && (++numIncrements >= sampleSize)) {
+            age();
+        }
+    }
+
+    private void age() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        numIncrements >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long res = (hash + SEEDS[i]) * SEEDS[i];
+        res += res >>> 32;
+        return ((int) res) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
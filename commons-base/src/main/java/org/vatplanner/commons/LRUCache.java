@@ -1,16 +1,42 @@
 package org.vatplanner.commons;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vatplanner.commons.schedulers.SimpleScheduler;
+import org.vatplanner.commons.utils.Ticker;
 
 /**
  * A {@link Map}-like thread-safe cache evicting entries based on a configurable Least Recently Used policy.
- * Real-time {@link Instant}s are used for tracking last usage, so eviction depends on system time.
+ * Last usage is tracked using a monotonic {@link Ticker} ({@link Ticker#SYSTEM} by default), so eviction does not
+ * depend on the system's wall-clock time.
  * <p>
  * Entries can be stored, retrieved and managed similar to a {@link Map} using {@link #put(Object, Object)},
  * {@link #get(Object)}, {@link #remove(Object)} and {@link #clear()}. {@code null} values can be stored but not
@@ -22,61 +48,401 @@ import java.util.stream.Collectors;
  * {@link #maintain()} or inserting a value via {@link #put(Object, Object)}.
  * </p>
  * <p>
+ * All entries are additionally kept in a list ordered by their last usage, so retrieval, insertion and eviction are
+ * (amortized) constant-time operations regardless of the number of entries held by the cache.
+ * </p>
+ * <p>
+ * All operations lock the whole cache. Use {@link ConcurrentLRUCache} if the cache is read by many threads
+ * concurrently.
+ * </p>
+ * <p>
  * The following options can be configured:
  * </p>
  * <ul>
  * <li>{@link #setMaxEntries(int)} controls the maximum number of entries to keep. If that limit is exceeded, the least
  * recently used entries will be evicted from the cache until the total number of entries matches the policy again.</li>
+ * <li>{@link #setMaxWeight(long)} controls the maximum total weight of all entries to keep, as determined by the
+ * {@link Weigher} set via {@link #setWeigher(Weigher)}. If that limit is exceeded, the least recently used entries will
+ * be evicted from the cache until the total weight matches the policy again. The current total weight can be
+ * monitored through {@link #getWeight()}.</li>
  * <li>{@link #setMinEntries(int)} controls the number of most recent entries to be kept, regardless of when they were
  * last used.</li>
+ * <li>{@link #setFrequencyAdmission(boolean)} enables an admission filter deciding whether a newly inserted entry
+ * should be kept at the expense of the least recently used entry when the cache is full, based on how often both have
+ * been accessed recently. This protects frequently used entries from being flushed out by a burst of entries that
+ * are only used once, e.g. during a full scan.</li>
  * <li>{@link #setUsageExpiration(Duration)} controls the maximum time since last usage allowed to keep an entry.
  * This does not apply to entries that should be kept according to {@link #setMinEntries(int)}. Full eviction only
  * happens if the minimum number of entries is configured to 0.
  * </li>
+ * <li>{@link #setExpiry(Expiry)} determines an individual time to live for each entry when it is written, regardless
+ * of usage. A time to live can also be given explicitly via {@link #put(Object, Object, Duration)}. Entries are kept
+ * ordered by their deadlines, so expiration does not require a scan of all entries.</li>
  * </ul>
  * <p>
  * By default, the policy is unbound meaning any number of entries will be kept regardless of when they were used
- * (min 0, max open, no usage expiration).
+ * (min 0, max open, no maximum weight, no usage expiration).
  * </p>
  * <p>
  * Reconfiguring the policy after entries have already been inserted requires {@link #maintain()} to be additionally
  * called at an appropriate time.
  * </p>
+ * <p>
+ * Multiple entries can be retrieved, stored or removed at once using {@link #getAll(Iterable)},
+ * {@link #putAll(Map)} and {@link #invalidateAll(Iterable)}, which lock the cache and apply LRU policy only once per
+ * call. {@link #getAll(Iterable, Function)} loads all missing values through a single call to a bulk loader.
+ * </p>
+ * <p>
+ * Missing values can be loaded on demand through {@link #get(Object, Function)} or a loader configured via
+ * {@link #setLoader(Function)}. Only one load is performed per key at a time; concurrent callers requesting the same
+ * key wait for (or asynchronously receive) the result of that load instead of loading the value themselves. Failed
+ * loads are not cached. Values can be refreshed in the background after they have reached a certain age by configuring
+ * {@link #setRefreshAfterWrite(Duration)}; readers keep getting the current value while the reload is in progress.
+ * </p>
+ * <p>
+ * Statistics such as hit and miss counts can be recorded by enabling {@link #setStatisticsEnabled(boolean)} and
+ * retrieved as a snapshot through {@link #getStatistics()}. A {@link RemovalListener} can be set via
+ * {@link #setRemovalListener(RemovalListener)} to get notified about all entries removed from the cache.
+ * </p>
+ * <p>
+ * Snapshots of all entries can be written using {@link #writeSnapshot(OutputStream, CacheSnapshotSerializer)} and
+ * restored using {@link #readSnapshot(InputStream, CacheSnapshotSerializer)}, e.g. to warm up the cache after a
+ * restart. The order of usage is preserved.
+ * </p>
+ * <p>
+ * Expired entries are only evicted upon maintenance. To evict them proactively, e.g. to free memory while the cache is
+ * not being written to, maintenance can be delegated to a {@link SimpleScheduler} using
+ * {@link #setMaintenanceScheduler(SimpleScheduler)}.
+ * </p>
  *
  * @param <K> type of keys
  * @param <V> type of values
  */
 public class LRUCache<K, V> {
-    private final HashMap<K, Entry<V>> map = new HashMap<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(LRUCache.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4C525543; // "LRUC"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_BATCH_SIZE = 1024;
+
+    /**
+     * Limits time to live, so expiration deadlines remain comparable by subtraction.
+     */
+    private static final long MAX_TIME_TO_LIVE_NANOS = Long.MAX_VALUE / 2;
+
+    /**
+     * Minimum number of outdated nodes in the expiration queue before purging them.
+     */
+    private static final int MIN_EXPIRATION_QUEUE_PURGE = 64;
+
+    final Map<K, Entry<K, V>> map;
+    final Ticker ticker;
+
+    /**
+     * Least recently used entry; head of the usage list.
+     */
+    private Entry<K, V> eldest;
+
+    /**
+     * Most recently used entry; tail of the usage list.
+     */
+    private Entry<K, V> youngest;
 
     private int minEntries = 0;
     private int maxEntries = Integer.MAX_VALUE;
-    private Duration usageExpiration = null;
+    private long maxWeight = Long.MAX_VALUE;
+    private Weigher<? super K, ? super V> weigher = Weigher.SINGLETON;
 
-    private static class Entry<V> {
-        Instant lastUsed;
-        V value;
+    /**
+     * Total weight of all entries; guarded by the map lock.
+     */
+    private long totalWeight;
 
-        Entry(Instant lastUsed, V value) {
+    /**
+     * Estimates access frequencies if admission is enabled, {@code null} if disabled; guarded by the map lock.
+     */
+    private FrequencySketch sketch;
+    private long usageExpirationNanos = -1;
+
+    /**
+     * Age since last write after which entries get refreshed on access; negative if disabled. Volatile instead of
+     * being guarded by the instance lock as it is checked on every read.
+     */
+    private volatile long refreshAfterWriteNanos = -1;
+
+    private Expiry<? super K, ? super V> expiry;
+
+    /**
+     * Entries with an individual time to live, ordered by deadline; guarded by the map lock. Nodes are not removed
+     * when their entries get removed or rewritten but are skipped when reaching the head of the queue.
+     */
+    private final PriorityQueue<ExpirationNode<K, V>> expirationQueue = new PriorityQueue<>();
+
+    private final AtomicReference<SimpleScheduler> maintenanceScheduler = new AtomicReference<>();
+
+    /**
+     * Loads currently in progress, indexed by key; guarded by the map lock.
+     */
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+
+    private final AtomicReference<Function<? super K, ? extends V>> loader = new AtomicReference<>();
+    private final AtomicReference<Executor> executor = new AtomicReference<>(ForkJoinPool.commonPool());
+
+    /**
+     * Records statistics if enabled, {@code null} if disabled.
+     */
+    private volatile CacheStatisticsCounter statistics;
+
+    private final AtomicReference<RemovalListener<? super K, ? super V>> removalListener = new AtomicReference<>();
+
+    /**
+     * Removals waiting to be passed to the {@link RemovalListener} after the map lock has been released.
+     */
+    private final Queue<Removal<K, V>> pendingRemovals = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Notified about evictions while still holding the map lock, {@code null} if not set.
+     */
+    private volatile EvictionHook<? super K, ? super V> evictionHook;
+
+    static class Entry<K, V> {
+        final K key;
+        volatile long lastUsed;
+        volatile long lastWritten;
+        volatile V value;
+        long weight;
+
+        /**
+         * Maximum time since last write before the entry expires; negative if the entry does not expire individually.
+         */
+        volatile long timeToLiveNanos = -1;
+
+        Entry<K, V> older;
+        Entry<K, V> newer;
+
+        /**
+         * Indicates that the entry has been removed from the cache; only accessed while holding the map lock.
+         */
+        boolean retired;
+
+        Entry(K key, long lastUsed, V value) {
+            this.key = key;
             this.lastUsed = lastUsed;
+            this.lastWritten = lastUsed;
             this.value = value;
         }
     }
 
-    private static class MaintenanceEntry<K> {
+    private static class ExpirationNode<K, V> implements Comparable<ExpirationNode<K, V>> {
+        final Entry<K, V> entry;
+        final long deadline;
+
+        ExpirationNode(Entry<K, V> entry, long deadline) {
+            this.entry = entry;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Checks if this node still represents the current deadline of its entry. Must only be called while holding
+         * the map lock.
+         *
+         * @return {@code true} if the node is current, {@code false} if it is outdated
+         */
+        boolean isCurrent() {
+            long timeToLiveNanos = entry.timeToLiveNanos;
+            return !entry.retired && (timeToLiveNanos >= 0) && (entry.lastWritten + timeToLiveNanos == deadline);
+        }
+
+        @Override
+        public int compareTo(ExpirationNode<K, V> other) {
+            // ticker values may overflow, so only differences can be compared
+            return Long.signum(deadline - other.deadline);
+        }
+    }
+
+    /**
+     * Determines the weight of cache entries, e.g. the size of their values in bytes.
+     *
+     * @param <K> type of keys
+     * @param <V> type of values
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        /**
+         * Weighs every entry as 1, so that the total weight equals the number of entries.
+         */
+        Weigher<Object, Object> SINGLETON = (key, value) -> 1;
+
+        /**
+         * Returns the weight of the given entry. Weights must not be negative and must not change while the entry is
+         * held by the cache.
+         *
+         * @param key   key of entry
+         * @param value value of entry
+         * @return weight of the entry; must not be negative
+         */
+        long weigh(K key, V value);
+    }
+
+    /**
+     * Determines the time to live of individual cache entries.
+     *
+     * @param <K> type of keys
+     * @param <V> type of values
+     */
+    @FunctionalInterface
+    public interface Expiry<K, V> {
+        /**
+         * Returns the maximum time the given entry should be kept after it has been written, regardless of usage.
+         * Called whenever a value is stored, i.e. also when an existing entry is replaced or refreshed.
+         *
+         * @param key   key of entry
+         * @param value value of entry
+         * @return time to live (inclusive); {@code null} if the entry should not expire individually
+         */
+        Duration expireAfterWrite(K key, V value);
+    }
+
+    /**
+     * Reasons for an entry to be removed from the cache.
+     */
+    public enum RemovalCause {
+        /**
+         * The entry has been removed explicitly through {@link #remove(Object)} or {@link #clear()}.
+         */
+        EXPLICIT(false),
+
+        /**
+         * The entry's value has been replaced by another value.
+         */
+        REPLACED(false),
+
+        /**
+         * The entry's value has been replaced by a value reloaded in the background, see
+         * {@link #setRefreshAfterWrite(Duration)}.
+         */
+        REFRESHED(false),
+
+        /**
+         * The entry has been evicted because the maximum number or total weight of entries has been exceeded, or it
+         * has not been admitted due to its low access frequency.
+         */
+        SIZE(true),
+
+        /**
+         * The entry has been evicted because it expired.
+         */
+        EXPIRED(true);
+
+        private final boolean isEviction;
+
+        RemovalCause(boolean isEviction) {
+            this.isEviction = isEviction;
+        }
+
+        /**
+         * Indicates whether the entry has been evicted by cache policy or was removed by a user of the cache.
+         *
+         * @return {@code true} if the entry has been evicted by cache policy, {@code false} if removed by a user
+         */
+        public boolean isEviction() {
+            return isEviction;
+        }
+    }
+
+    /**
+     * Gets notified about entries being removed from the cache.
+     * <p>
+     * Notifications are delivered after the cache has been unlocked, on the thread that caused the removal. Exceptions
+     * thrown by the listener are logged but have no further effect.
+     * </p>
+     *
+     * @param <K> type of keys
+     * @param <V> type of values
+     */
+    @FunctionalInterface
+    public interface RemovalListener<K, V> {
+        /**
+         * Called after an entry has been removed from the cache.
+         *
+         * @param key   key of removed entry
+         * @param value value of removed entry
+         * @param cause reason of removal
+         */
+        void onRemoval(K key, V value, RemovalCause cause);
+    }
+
+    /**
+     * Gets notified about entries evicted due to size while the cache is still locked, so caches built upon this
+     * class can order evictions relative to other modifications of the same key. Implementations must return quickly
+     * and must not access the cache.
+     *
+     * @param <K> type of keys
+     * @param <V> type of values
+     */
+    @FunctionalInterface
+    interface EvictionHook<K, V> {
+        /**
+         * Called while an entry is being evicted due to size, before the {@link RemovalListener} is notified.
+         *
+         * @param key            key of evicted entry
+         * @param value          value of evicted entry
+         * @param remainingNanos time in nanoseconds the entry would have been kept before expiring by usage or time to
+         *                       live; negative if it would not have expired
+         */
+        void onEviction(K key, V value, long remainingNanos);
+    }
+
+    private static class Removal<K, V> {
         final K key;
-        final Duration age;
+        final V value;
+        final RemovalCause cause;
 
-        MaintenanceEntry(K key, Duration age) {
+        Removal(K key, V value, RemovalCause cause) {
             this.key = key;
-            this.age = age;
+            this.value = value;
+            this.cause = cause;
         }
+    }
+
+    private static class LoadRegistration<V> {
+        final CompletableFuture<V> future;
+        final boolean isNew;
 
-        Duration getAge() {
-            return age;
+        LoadRegistration(CompletableFuture<V> future, boolean isNew) {
+            this.future = future;
+            this.isNew = isNew;
         }
     }
 
+    /**
+     * Creates a new cache with an unbound policy.
+     */
+    public LRUCache() {
+        this(Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new cache with an unbound policy, tracking usage by the given {@link Ticker}.
+     *
+     * @param ticker source of time used to track usage
+     */
+    public LRUCache(Ticker ticker) {
+        this(new HashMap<>(), ticker);
+    }
+
+    /**
+     * Creates a new cache indexing entries using the given {@link Map}. All access to the {@link Map} is synchronized
+     * on the {@link Map} itself except for lookups performed by subclasses overriding {@link #lookup(Object)}.
+     *
+     * @param map    empty map to index entries with
+     * @param ticker source of time used to track usage
+     */
+    LRUCache(Map<K, Entry<K, V>> map, Ticker ticker) {
+        this.map = map;
+        this.ticker = ticker;
+    }
+
     /**
      * Controls the number of most recent entries to be kept, regardless of when they were last used (default: 0).
      * <p>
@@ -111,146 +477,1533 @@ public class LRUCache<K, V> {
     }
 
     /**
-     * Controls the maximum time since last usage allowed to keep an entry.
+     * Controls the maximum total weight of entries to keep. If that limit is exceeded, the least recently used entries
+     * will be evicted from the cache until the total weight matches the policy again.
      * <p>
-     * This does not apply to entries that should be kept according to {@link #setMinEntries(int)}. Full eviction only
-     * happens if the minimum number of entries is configured to 0.
+     * Entries are weighed by the {@link Weigher} set through {@link #setWeigher(Weigher)}. If combined with
+     * {@link #setMinEntries(int)}, the configured number of most recent entries will be kept even if they exceed the
+     * maximum weight.
      * </p>
      *
-     * @param usageExpiration maximum time (inclusive) since last usage before evicting an entry
+     * @param maxWeight maximum total weight of most-recent entries to keep
      * @return same instance for method-chaining
      */
-    public LRUCache<K, V> setUsageExpiration(Duration usageExpiration) {
+    public LRUCache<K, V> setMaxWeight(long maxWeight) {
         synchronized (this) {
-            this.usageExpiration = usageExpiration;
+            this.maxWeight = maxWeight;
         }
 
         return this;
     }
 
     /**
-     * Returns the value stored for the given key.
+     * Sets the {@link Weigher} to determine the weight of entries with (default: {@link Weigher#SINGLETON}).
      * <p>
-     * If present, the entry's usage will be reset to time of access.
+     * Weights of all entries already held by the cache will be recalculated.
      * </p>
      *
-     * @param key key to look up value for
-     * @return value stored for key; {@code null} if not present
+     * @param weigher determines the weight of entries
+     * @return same instance for method-chaining
      */
-    public V get(K key) {
+    public LRUCache<K, V> setWeigher(Weigher<? super K, ? super V> weigher) {
+        if (weigher == null) {
+            throw new IllegalArgumentException("weigher must not be null");
+        }
+
+        synchronized (this) {
+            this.weigher = weigher;
+        }
+
         synchronized (map) {
-            Entry<V> entry = map.get(key);
-            if (entry == null) {
-                return null;
+            totalWeight = 0;
+            for (Entry<K, V> entry : map.values()) {
+                entry.weight = weigh(weigher, entry.key, entry.value);
+                totalWeight += entry.weight;
             }
+        }
+
+        return this;
+    }
 
-            entry.lastUsed = now();
+    /**
+     * Returns the total weight of all entries currently held by the cache, as determined by the {@link Weigher} set
+     * through {@link #setWeigher(Weigher)}. Unless configured otherwise, this is the number of entries.
+     *
+     * @return total weight of all entries
+     */
+    public long getWeight() {
+        synchronized (map) {
+            return totalWeight;
+        }
+    }
 
-            return entry.value;
+    private static <K, V> long weigh(Weigher<? super K, ? super V> weigher, K key, V value) {
+        long weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative, got " + weight + " for key " + key);
         }
+        return weight;
     }
 
     /**
-     * Stores the given value under the specified key.
+     * Controls whether newly inserted entries need to be admitted based on their access frequency (default: disabled).
      * <p>
-     * The entry's usage will be initially set to time of insertion.
+     * If enabled, access frequencies of all keys are estimated by a compact sketch which periodically decays recorded
+     * frequencies. When a newly inserted entry would cause the least recently used entry to be evicted due to the
+     * number of entries or their weight, the new entry will only be kept if it has been accessed more often than that
+     * least recently used entry. Otherwise, the new entry will be discarded instead.
      * </p>
      * <p>
-     * LRU policy is being applied as part of this call, so previous entries may get evicted from the cache as a
-     * side-effect.
+     * This helps to keep a frequently used working set in the cache if it is mixed with bursts of keys that are only
+     * used once, which would flush out the working set if only recency of usage was considered. Expiration is not
+     * affected by admission.
      * </p>
      *
-     * @param key   key to store value under
-     * @param value value to store under key
-     * @return previously stored value; {@code null} if no value was present for the given key
+     * @param enabled {@code true} to enable admission by frequency, {@code false} to admit all entries
+     * @return same instance for method-chaining
      */
-    public V put(K key, V value) {
-        Entry<V> oldEntry;
-
+    public LRUCache<K, V> setFrequencyAdmission(boolean enabled) {
         synchronized (map) {
-            Entry<V> newEntry = new Entry<>(now(), value);
-            oldEntry = map.put(key, newEntry);
+            if (!enabled) {
+                sketch = null;
+            } else if (sketch == null) {
+                sketch = new FrequencySketch();
+                sketch.ensureCapacity(map.size());
+            }
         }
 
-        maintain();
-
-        return (oldEntry != null) ? oldEntry.value : null;
+        return this;
     }
 
     /**
-     * Removes the entry matching the given key.
+     * Controls the maximum time since last usage allowed to keep an entry.
+     * <p>
+     * This does not apply to entries that should be kept according to {@link #setMinEntries(int)}. Full eviction only
+     * happens if the minimum number of entries is configured to 0.
+     * </p>
      *
-     * @param key key of entry to remove
-     * @return previously stored value; {@code null} if no value was present for the given key
+     * @param usageExpiration maximum time (inclusive) since last usage before evicting an entry
+     * @return same instance for method-chaining
      */
-    public V remove(K key) {
-        synchronized (map) {
-            Entry<V> oldEntry = map.remove(key);
-            return (oldEntry != null) ? oldEntry.value : null;
+    public LRUCache<K, V> setUsageExpiration(Duration usageExpiration) {
+        long nanos = -1;
+        if (usageExpiration != null) {
+            nanos = Math.max(0, saturatedNanos(usageExpiration));
+        }
+
+        synchronized (this) {
+            this.usageExpirationNanos = nanos;
+        }
+
+        SimpleScheduler scheduler = maintenanceScheduler.get();
+        if ((scheduler != null) && (usageExpiration != null)) {
+            scheduler.setNextTriggerIfEarlier(Duration.ZERO);
         }
+
+        return this;
     }
 
     /**
-     * Removes all entries.
+     * Controls the time since an entry has been written after which it should be refreshed.
+     * <p>
+     * Reading an entry older than that still returns the current value immediately but additionally starts to reload
+     * the value asynchronously on the {@link Executor} configured via {@link #setExecutor(Executor)}. The refreshed
+     * value replaces the current one once it has been loaded. Only one load is performed per key at a time, so
+     * concurrent readers do not trigger multiple reloads.
+     * </p>
+     * <p>
+     * Values are reloaded by the loader passed to the read method or, for methods not accepting a loader, the one
+     * configured via {@link #setLoader(Function)}. Entries are not refreshed if no loader is available. If the reload
+     * fails or does not provide a value, the current value is kept and will be refreshed again on the next read.
+     * Refreshing does not reset usage and does not affect eviction, so entries can still expire according to
+     * {@link #setUsageExpiration(Duration)}.
+     * </p>
+     *
+     * @param refreshAfterWrite minimum time (exclusive) since last write before refreshing an entry on access;
+     *                          {@code null} to disable refreshing
+     * @return same instance for method-chaining
      */
-    public void clear() {
-        synchronized (map) {
-            map.clear();
+    public LRUCache<K, V> setRefreshAfterWrite(Duration refreshAfterWrite) {
+        long nanos = -1;
+        if (refreshAfterWrite != null) {
+            nanos = Math.max(0, saturatedNanos(refreshAfterWrite));
         }
+
+        this.refreshAfterWriteNanos = nanos;
+
+        return this;
     }
 
     /**
-     * Applies LRU policy, evicting any expired or excessive entries from cache.
+     * Sets the {@link Expiry} policy determining the individual time to live of entries when they are written
+     * (default: none).
+     * <p>
+     * Other than {@link #setUsageExpiration(Duration)}, the time to live does not depend on usage and also applies to
+     * entries protected by {@link #setMinEntries(int)}. Entries that outlived their time to live are no longer
+     * returned even if they have not been evicted yet. The policy is overridden by a time to live explicitly given
+     * to {@link #put(Object, Object, Duration)}.
+     * </p>
+     *
+     * @param expiry determines the time to live of entries; {@code null} to disable individual expiration
+     * @return same instance for method-chaining
      */
-    public void maintain() {
-        // copy configuration for consistent application
-        int minEntriesCopy;
-        int maxEntriesCopy;
-        Duration usageExpirationCopy;
+    public LRUCache<K, V> setExpiry(Expiry<? super K, ? super V> expiry) {
         synchronized (this) {
-            minEntriesCopy = this.minEntries;
-            maxEntriesCopy = this.maxEntries;
-            usageExpirationCopy = this.usageExpiration;
+            this.expiry = expiry;
         }
 
-        synchronized (map) {
-            Instant startOfMaintenance = now();
-
-            // calculate and sort by age
-            List<MaintenanceEntry<K>> maintenanceEntries = map.entrySet()
-                                                              .stream()
-                                                              .map(mapEntry -> new MaintenanceEntry<>(
-                                                                  mapEntry.getKey(),
-                                                                  Duration.between(mapEntry.getValue().lastUsed, startOfMaintenance)
-                                                              ))
-                                                              .sorted(Comparator.comparing(MaintenanceEntry::getAge))
-                                                              .collect(Collectors.toList());
-
-            int index = -1;
-            for (MaintenanceEntry<K> maintenanceEntry : maintenanceEntries) {
-                index++;
+        return this;
+    }
 
-                // keep if minEntries is not reached yet
-                if (index < minEntriesCopy) {
-                    continue;
-                }
+    /**
+     * Delegates proactive maintenance to the given {@link SimpleScheduler}.
+     * <p>
+     * The scheduler will be triggered whenever the least recently used entry is due to expire according to
+     * {@link #setUsageExpiration(Duration)} or an entry reaches its individual time to live, so expired entries get
+     * evicted without any further access to the cache. Eviction only takes time proportional to the number of
+     * expired entries. If entries do not expire, the scheduler will not be triggered.
+     * </p>
+     * <p>
+     * The scheduler's trigger action will be replaced, so it should be dedicated to this cache. It still needs to be
+     * enabled and started by the caller, who also remains responsible for shutting it down.
+     * </p>
+     *
+     * @param scheduler scheduler to perform maintenance on
+     * @return same instance for method-chaining
+     */
+    public LRUCache<K, V> setMaintenanceScheduler(SimpleScheduler scheduler) {
+        maintenanceScheduler.set(scheduler);
 
-                // do not keep if this entry exceeds maxEntries
-                boolean shouldRemove = (index >= maxEntriesCopy);
+        scheduler.onTrigger(this::maintainAndReschedule);
+        scheduler.setNextTriggerIfEarlier(Duration.ZERO);
 
-                // check expiration if still relevant
-                if (!shouldRemove && (usageExpirationCopy != null)) {
-                    shouldRemove = (maintenanceEntry.age.compareTo(usageExpirationCopy) > 0);
-                }
+        return this;
+    }
 
-                if (shouldRemove) {
-                    map.remove(maintenanceEntry.key);
-                }
-            }
+    /**
+     * Sets the loader used to retrieve missing values through {@link #getOrLoad(Object)} and
+     * {@link #getOrLoadAsync(Object)}. The loader is also used to refresh entries read through methods not accepting
+     * a loader, see {@link #setRefreshAfterWrite(Duration)}.
+     *
+     * @param loader loads values for missing keys; may return {@code null} if no value is available
+     * @return same instance for method-chaining
+     */
+    public LRUCache<K, V> setLoader(Function<? super K, ? extends V> loader) {
+        this.loader.set(loader);
+        return this;
+    }
+
+    /**
+     * Sets the {@link Executor} to perform asynchronous loads on (default: {@link ForkJoinPool#commonPool()}).
+     *
+     * @param executor used to perform asynchronous loads
+     * @return same instance for method-chaining
+     */
+    public LRUCache<K, V> setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
         }
+
+        this.executor.set(executor);
+        return this;
+    }
+
+    /**
+     * Controls whether statistics should be recorded (default: disabled). Enabling statistics resets all counters.
+     *
+     * @param enabled {@code true} to record statistics, {@code false} to stop recording
+     * @return same instance for method-chaining
+     * @see #getStatistics()
+     */
+    public LRUCache<K, V> setStatisticsEnabled(boolean enabled) {
+        statistics = enabled ? new CacheStatisticsCounter() : null;
+        return this;
+    }
+
+    /**
+     * Returns a snapshot of all statistics recorded since they have been enabled via
+     * {@link #setStatisticsEnabled(boolean)}.
+     *
+     * @return snapshot of statistics; all counters are 0 if recording is disabled
+     */
+    public CacheStatistics getStatistics() {
+        CacheStatisticsCounter counter = statistics;
+        return (counter != null) ? counter.snapshot() : CacheStatistics.empty();
     }
 
-    Instant now() {
-        return Instant.now();
+    /**
+     * Sets the {@link RemovalListener} to be notified about all entries removed from the cache.
+     *
+     * @param removalListener notified about removals; {@code null} to disable notifications
+     * @return same instance for method-chaining
+     */
+    public LRUCache<K, V> setRemovalListener(RemovalListener<? super K, ? super V> removalListener) {
+        this.removalListener.set(removalListener);
+        return this;
+    }
+
+    /**
+     * Sets the {@link EvictionHook} to be called for all entries evicted due to size.
+     *
+     * @param evictionHook called on eviction while the cache is locked; {@code null} to disable
+     */
+    void setEvictionHook(EvictionHook<? super K, ? super V> evictionHook) {
+        this.evictionHook = evictionHook;
+    }
+
+    private void maintainAndReschedule() {
+        maintain();
+
+        SimpleScheduler scheduler = maintenanceScheduler.get();
+        if (scheduler == null) {
+            return;
+        }
+
+        long delayNanos = getNanosUntilNextExpiration();
+        if (delayNanos >= 0) {
+            scheduler.setNextTriggerIfEarlier(Duration.ofNanos(delayNanos));
+        }
+    }
+
+    /**
+     * Determines the time until the next entry may expire.
+     *
+     * @return nanoseconds until next entry may expire; negative if no entry is expected to expire
+     */
+    private long getNanosUntilNextExpiration() {
+        int minEntriesCopy;
+        long usageExpirationNanosCopy;
+        synchronized (this) {
+            minEntriesCopy = this.minEntries;
+            usageExpirationNanosCopy = this.usageExpirationNanos;
+        }
+
+        synchronized (map) {
+            long now = ticker.read();
+            long timeToLiveNanos = getNanosUntilNextTimeToLiveExpiration(now);
+
+            if (usageExpirationNanosCopy < 0) {
+                return timeToLiveNanos;
+            }
+
+            long usageNanos;
+            if ((eldest == null) || (map.size() <= minEntriesCopy)) {
+                // any entry inserted from now on cannot expire earlier than the full expiration time
+                usageNanos = usageExpirationNanosCopy;
+            } else {
+                long age = now - eldest.lastUsed;
+                long remaining = Math.max(0, usageExpirationNanosCopy - age);
+
+                // expiration is inclusive, so the entry can only be evicted once it has become older
+                usageNanos = (remaining < Long.MAX_VALUE) ? remaining + 1 : remaining;
+            }
+
+            return (timeToLiveNanos < 0) ? usageNanos : Math.min(usageNanos, timeToLiveNanos);
+        }
+    }
+
+    /**
+     * Determines the time until the next entry may reach its individual time to live. Must only be called while
+     * holding the map lock.
+     *
+     * @param now current ticker value
+     * @return nanoseconds until next entry may expire; negative if no entry has an individual time to live
+     */
+    private long getNanosUntilNextTimeToLiveExpiration(long now) {
+        ExpirationNode<K, V> next = expirationQueue.peek();
+        if (next == null) {
+            return -1;
+        }
+
+        // deadline is inclusive; outdated nodes may cause an early but harmless trigger
+        return Math.max(0, next.deadline - now) + 1;
+    }
+
+    /**
+     * Returns the value stored for the given key.
+     * <p>
+     * If present, the entry's usage will be reset to time of access. Stale entries are refreshed asynchronously if
+     * configured via {@link #setRefreshAfterWrite(Duration)}.
+     * </p>
+     *
+     * @param key key to look up value for
+     * @return value stored for key; {@code null} if not present
+     */
+    public V get(K key) {
+        Entry<K, V> entry = lookupUnexpired(key);
+        recordLookup(entry);
+        if (entry == null) {
+            return null;
+        }
+
+        refreshIfStale(entry, loader.get());
+
+        return entry.value;
+    }
+
+    /**
+     * Returns the value stored for the given key, loading it if missing.
+     * <p>
+     * If the value is missing, it will be loaded and stored in the cache. Only one load is performed per key at a
+     * time: If another thread is already loading the value for the same key, this call blocks until that load
+     * completes and returns its result. Values are only stored if loading succeeds and yields a non-{@code null}
+     * value. Exceptions thrown by the loader are rethrown to all callers waiting for that load.
+     * </p>
+     * <p>
+     * If the key is removed from or replaced in the cache while being loaded, the loaded value will still be
+     * returned to the waiting callers but it will not be stored.
+     * </p>
+     *
+     * @param key    key to look up value for
+     * @param loader loads the value if missing; may return {@code null} if no value is available
+     * @return value stored for or loaded by key; {@code null} if not present and the loader did not provide a value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<K, V> entry = lookupUnexpired(key);
+        recordLookup(entry);
+        if (entry != null) {
+            refreshIfStale(entry, loader);
+            return entry.value;
+        }
+
+        LoadRegistration<V> registration = registerLoad(key);
+        if (registration.isNew) {
+            return load(key, loader, registration.future);
+        }
+
+        return join(registration.future);
+    }
+
+    /**
+     * Returns the value stored for the given key, loading it through the loader configured via
+     * {@link #setLoader(Function)} if missing.
+     *
+     * @param key key to look up value for
+     * @return value stored for or loaded by key; {@code null} if not present and the loader did not provide a value
+     * @see #get(Object, Function)
+     */
+    public V getOrLoad(K key) {
+        return get(key, requireLoader());
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} providing the value stored for the given key, loading it asynchronously if
+     * missing.
+     * <p>
+     * Loads are performed on the {@link Executor} configured via {@link #setExecutor(Executor)}. Only one load is
+     * performed per key at a time; if the value is already being loaded, the returned future completes with the
+     * result of that load.
+     * </p>
+     *
+     * @param key    key to look up value for
+     * @param loader loads the value if missing; may return {@code null} if no value is available
+     * @return future completing with the value stored for or loaded by key; completes exceptionally if loading failed
+     * @see #get(Object, Function)
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader) {
+        Entry<K, V> entry = lookupUnexpired(key);
+        recordLookup(entry);
+        if (entry != null) {
+            refreshIfStale(entry, loader);
+            return CompletableFuture.completedFuture(entry.value);
+        }
+
+        LoadRegistration<V> registration = registerLoad(key);
+        CompletableFuture<V> future = registration.future;
+
+        if (registration.isNew) {
+            loadAsync(key, loader, future);
+        }
+
+        // callers must not be able to complete the shared future
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} providing the value stored for the given key, loading it asynchronously
+     * through the loader configured via {@link #setLoader(Function)} if missing.
+     *
+     * @param key key to look up value for
+     * @return future completing with the value stored for or loaded by key; completes exceptionally if loading failed
+     * @see #getAsync(Object, Function)
+     */
+    public CompletableFuture<V> getOrLoadAsync(K key) {
+        return getAsync(key, requireLoader());
+    }
+
+    private Function<? super K, ? extends V> requireLoader() {
+        Function<? super K, ? extends V> res = loader.get();
+        if (res == null) {
+            throw new IllegalStateException("no loader has been configured");
+        }
+        return res;
+    }
+
+    /**
+     * Registers a new load for the given key unless the value is already present or being loaded.
+     *
+     * @param key key to load value for
+     * @return registration of the load; {@link LoadRegistration#isNew} indicates that the caller is responsible for
+     * actually loading the value
+     */
+    private LoadRegistration<V> registerLoad(K key) {
+        synchronized (map) {
+            Entry<K, V> entry = map.get(key);
+            if ((entry != null) && !hasExpired(entry, ticker.read())) {
+                // has been loaded in the meantime
+                return new LoadRegistration<>(CompletableFuture.completedFuture(entry.value), false);
+            }
+
+            CompletableFuture<V> future = loading.get(key);
+            if (future != null) {
+                return new LoadRegistration<>(future, false);
+            }
+
+            future = new CompletableFuture<>();
+            loading.put(key, future);
+
+            return new LoadRegistration<>(future, true);
+        }
+    }
+
+    private boolean isStale(Entry<K, V> entry) {
+        long refreshAfterWriteNanosCopy = refreshAfterWriteNanos;
+        return (refreshAfterWriteNanosCopy >= 0) && (ticker.read() - entry.lastWritten > refreshAfterWriteNanosCopy);
+    }
+
+    private void refreshIfStale(Entry<K, V> entry, Function<? super K, ? extends V> loader) {
+        if ((loader != null) && isStale(entry)) {
+            refresh(entry, loader);
+        }
+    }
+
+    /**
+     * Starts to reload the value of the given entry asynchronously unless it is already being loaded.
+     *
+     * @param entry  entry to refresh
+     * @param loader loads the new value
+     */
+    private void refresh(Entry<K, V> entry, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future;
+        synchronized (map) {
+            if (entry.retired || loading.containsKey(entry.key)) {
+                return;
+            }
+
+            future = new CompletableFuture<>();
+            loading.put(entry.key, future);
+        }
+
+        future.whenComplete((value, ex) -> {
+            if (ex != null) {
+                LOGGER.warn("failed to refresh cache entry, keeping current value", ex);
+            }
+        });
+
+        loadAsync(entry.key, loader, future);
+    }
+
+    private void loadAsync(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> future) {
+        try {
+            executor.get().execute(() -> {
+                try {
+                    load(key, loader, future);
+                } catch (RuntimeException | Error ex) {
+                    // already passed on through future
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            synchronized (map) {
+                loading.remove(key, future);
+            }
+            future.completeExceptionally(ex);
+        }
+    }
+
+    private void recordLookup(Entry<K, V> entry) {
+        CacheStatisticsCounter counter = statistics;
+        if (counter != null) {
+            counter.recordLookup(entry != null);
+        }
+    }
+
+    private void recordLookups(int numHits, int numMisses) {
+        CacheStatisticsCounter counter = statistics;
+        if (counter != null) {
+            counter.recordLookups(numHits, numMisses);
+        }
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> future) {
+        CacheStatisticsCounter counter = statistics;
+        long startOfLoad = (counter != null) ? ticker.read() : 0;
+
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error ex) {
+            if (counter != null) {
+                counter.recordLoad(false, ticker.read() - startOfLoad);
+            }
+
+            synchronized (map) {
+                loading.remove(key, future);
+            }
+
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+
+        if (counter != null) {
+            counter.recordLoad(true, ticker.read() - startOfLoad);
+        }
+
+        Entry<K, V> newEntry = null;
+        boolean isStored = false;
+        synchronized (map) {
+            // loads get discarded if the key has been removed or replaced in the meantime
+            boolean isCurrent = loading.remove(key, future);
+            if (isCurrent && (value != null)) {
+                Entry<K, V> entry = map.get(key);
+                if ((entry != null) && !hasExpired(entry, ticker.read())) {
+                    // refreshed entries are already present and thus not subject to admission
+                    storeRefreshed(entry, value);
+                } else {
+                    boolean isNew = (entry == null);
+                    store(key, value, null);
+                    if (isNew) {
+                        newEntry = map.get(key);
+                    }
+                }
+                isStored = true;
+            }
+        }
+
+        if (isStored) {
+            maintain((newEntry != null) ? Collections.singletonList(newEntry) : Collections.emptyList());
+        }
+
+        future.complete(value);
+
+        return value;
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private Entry<K, V> lookupUnexpired(K key) {
+        Entry<K, V> entry = lookup(key);
+        if ((entry != null) && hasExpired(entry, ticker.read())) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Checks if the given entry has outlived its individual time to live.
+     *
+     * @param entry entry to check
+     * @param now   current ticker value
+     * @return {@code true} if expired, {@code false} if still alive or not expiring individually
+     */
+    private static boolean hasExpired(Entry<?, ?> entry, long now) {
+        long timeToLiveNanos = entry.timeToLiveNanos;
+        return (timeToLiveNanos >= 0) && (now - entry.lastWritten > timeToLiveNanos);
+    }
+
+    /**
+     * Looks up the entry for the given key and records its usage.
+     *
+     * @param key key to look up entry for
+     * @return entry stored for key; {@code null} if not present
+     */
+    Entry<K, V> lookup(K key) {
+        synchronized (map) {
+            Entry<K, V> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            recordAccess(entry);
+
+            return entry;
+        }
+    }
+
+    /**
+     * Records usage of the given entry. Must only be called while holding the map lock.
+     *
+     * @param entry entry that is being used
+     */
+    private void recordAccess(Entry<K, V> entry) {
+        entry.lastUsed = ticker.read();
+        moveToYoungest(entry);
+
+        if (sketch != null) {
+            sketch.increment(entry.key);
+        }
+    }
+
+    /**
+     * Returns all values stored for the given keys.
+     * <p>
+     * The cache is only locked once for all keys. Usage of all present entries will be reset to time of access.
+     * </p>
+     *
+     * @param keys keys to look up values for
+     * @return values stored for the keys; missing keys are omitted
+     */
+    public Map<K, V> getAll(Iterable<? extends K> keys) {
+        Map<K, V> out = new LinkedHashMap<>();
+        List<Entry<K, V>> staleEntries = new ArrayList<>();
+        int numMisses = 0;
+
+        synchronized (map) {
+            long now = ticker.read();
+            for (K key : keys) {
+                Entry<K, V> entry = map.get(key);
+                if ((entry == null) || hasExpired(entry, now)) {
+                    numMisses++;
+                } else {
+                    recordAccess(entry);
+                    out.put(key, entry.value);
+                    if (isStale(entry)) {
+                        staleEntries.add(entry);
+                    }
+                }
+            }
+        }
+
+        recordLookups(out.size(), numMisses);
+        refreshAll(staleEntries);
+
+        return out;
+    }
+
+    /**
+     * Returns all values stored for the given keys, loading all missing values at once.
+     * <p>
+     * The cache is only locked once to look up all keys. All values that are missing and not already being loaded
+     * are requested through a single call to the given bulk loader. Values that are already being loaded by other
+     * calls are awaited instead. As with {@link #get(Object, Function)}, failed loads are not stored and the
+     * exception is rethrown to all callers waiting for the affected keys. Loaded entries are stored at once, applying
+     * LRU policy only once.
+     * </p>
+     * <p>
+     * Values returned by the loader for keys that have not been requested are ignored.
+     * </p>
+     *
+     * @param keys       keys to look up values for
+     * @param bulkLoader loads values for all given missing keys; keys without a value may be omitted
+     * @return values stored for or loaded by the keys; keys without a value are omitted
+     */
+    public Map<K, V> getAll(Iterable<? extends K> keys, Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+        Map<K, V> out = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> toLoad = new LinkedHashMap<>();
+        List<Entry<K, V>> staleEntries = new ArrayList<>();
+
+        synchronized (map) {
+            long now = ticker.read();
+            for (K key : keys) {
+                if (out.containsKey(key) || pending.containsKey(key)) {
+                    continue;
+                }
+
+                Entry<K, V> entry = map.get(key);
+                if ((entry != null) && !hasExpired(entry, now)) {
+                    recordAccess(entry);
+                    out.put(key, entry.value);
+                    if (isStale(entry)) {
+                        staleEntries.add(entry);
+                    }
+                    continue;
+                }
+
+                CompletableFuture<V> future = loading.get(key);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    loading.put(key, future);
+                    toLoad.put(key, future);
+                }
+
+                pending.put(key, future);
+            }
+        }
+
+        recordLookups(out.size(), pending.size());
+        refreshAll(staleEntries);
+
+        if (!toLoad.isEmpty()) {
+            loadAll(toLoad, bulkLoader);
+        }
+
+        for (Map.Entry<K, CompletableFuture<V>> pendingEntry : pending.entrySet()) {
+            V value = join(pendingEntry.getValue());
+            if (value != null) {
+                out.put(pendingEntry.getKey(), value);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Refreshes the given entries through the loader configured via {@link #setLoader(Function)}, if any. Bulk
+     * loaders are not used for refreshing as they would block the caller.
+     *
+     * @param staleEntries entries to refresh
+     */
+    private void refreshAll(List<Entry<K, V>> staleEntries) {
+        Function<? super K, ? extends V> loaderCopy = loader.get();
+        if (loaderCopy == null) {
+            return;
+        }
+
+        for (Entry<K, V> entry : staleEntries) {
+            refresh(entry, loaderCopy);
+        }
+    }
+
+    private void loadAll(Map<K, CompletableFuture<V>> toLoad, Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+        CacheStatisticsCounter counter = statistics;
+        long startOfLoad = (counter != null) ? ticker.read() : 0;
+
+        Map<? extends K, ? extends V> loaded;
+        try {
+            loaded = bulkLoader.apply(Collections.unmodifiableSet(toLoad.keySet()));
+        } catch (RuntimeException | Error ex) {
+            if (counter != null) {
+                counter.recordLoad(false, ticker.read() - startOfLoad);
+            }
+
+            synchronized (map) {
+                for (Map.Entry<K, CompletableFuture<V>> loadEntry : toLoad.entrySet()) {
+                    loading.remove(loadEntry.getKey(), loadEntry.getValue());
+                }
+            }
+
+            for (CompletableFuture<V> future : toLoad.values()) {
+                future.completeExceptionally(ex);
+            }
+
+            throw ex;
+        }
+
+        if (counter != null) {
+            counter.recordLoad(true, ticker.read() - startOfLoad);
+        }
+
+        if (loaded == null) {
+            loaded = Collections.emptyMap();
+        }
+
+        List<Entry<K, V>> newEntries = new ArrayList<>();
+        synchronized (map) {
+            for (Map.Entry<K, CompletableFuture<V>> loadEntry : toLoad.entrySet()) {
+                K key = loadEntry.getKey();
+                V value = loaded.get(key);
+
+                // loads get discarded if the key has been removed or replaced in the meantime
+                boolean isCurrent = loading.remove(key, loadEntry.getValue());
+                if (isCurrent && (value != null)) {
+                    store(key, value, null);
+                    newEntries.add(map.get(key));
+                }
+            }
+        }
+
+        if (!newEntries.isEmpty()) {
+            maintain(newEntries);
+        }
+
+        for (Map.Entry<K, CompletableFuture<V>> loadEntry : toLoad.entrySet()) {
+            loadEntry.getValue().complete(loaded.get(loadEntry.getKey()));
+        }
+    }
+
+    /**
+     * Stores the given value under the specified key.
+     * <p>
+     * The entry's usage will be initially set to time of insertion.
+     * </p>
+     * <p>
+     * LRU policy is being applied as part of this call, so previous entries may get evicted from the cache as a
+     * side-effect.
+     * </p>
+     *
+     * @param key   key to store value under
+     * @param value value to store under key
+     * @return previously stored value; {@code null} if no value was present for the given key
+     */
+    public V put(K key, V value) {
+        return put(key, value, null);
+    }
+
+    /**
+     * Stores the given value under the specified key, expiring it after the given time to live.
+     * <p>
+     * The time to live overrides the {@link Expiry} policy for this write only. The entry may still get evicted
+     * earlier according to the LRU policy.
+     * </p>
+     *
+     * @param key        key to store value under
+     * @param value      value to store under key
+     * @param timeToLive maximum time (inclusive) to keep the entry; {@code null} to apply the {@link Expiry} policy
+     * @return previously stored value; {@code null} if no value was present for the given key
+     */
+    public V put(K key, V value, Duration timeToLive) {
+        V oldValue;
+        Entry<K, V> newEntry = null;
+
+        synchronized (map) {
+            loading.remove(key);
+
+            boolean isNew = !map.containsKey(key);
+            oldValue = store(key, value, timeToLive);
+            if (isNew) {
+                newEntry = map.get(key);
+            }
+        }
+
+        maintain((newEntry != null) ? Collections.singletonList(newEntry) : Collections.emptyList());
+
+        return oldValue;
+    }
+
+    /**
+     * Stores all given entries.
+     * <p>
+     * The cache is only locked once and LRU policy is applied once after all entries have been stored, so previous
+     * entries (or some of the given ones) may get evicted from the cache as a side-effect.
+     * </p>
+     *
+     * @param entries entries to store
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        List<Entry<K, V>> newEntries = new ArrayList<>();
+
+        synchronized (map) {
+            for (Map.Entry<? extends K, ? extends V> mapEntry : entries.entrySet()) {
+                K key = mapEntry.getKey();
+                loading.remove(key);
+
+                boolean isNew = !map.containsKey(key);
+                store(key, mapEntry.getValue(), null);
+                if (isNew) {
+                    newEntries.add(map.get(key));
+                }
+            }
+        }
+
+        maintain(newEntries);
+    }
+
+    /**
+     * Stores the given value under the specified key. Must only be called while holding the map lock.
+     *
+     * @param key        key to store value under
+     * @param value      value to store under key
+     * @param timeToLive time to live of the entry; {@code null} to apply the {@link Expiry} policy
+     * @return previously stored value; {@code null} if no value was present for the given key
+     */
+    private V store(K key, V value, Duration timeToLive) {
+        Weigher<? super K, ? super V> weigherCopy;
+        Expiry<? super K, ? super V> expiryCopy;
+        synchronized (this) {
+            weigherCopy = this.weigher;
+            expiryCopy = this.expiry;
+        }
+        long weight = weigh(weigherCopy, key, value);
+
+        Duration effectiveTimeToLive = timeToLive;
+        if ((effectiveTimeToLive == null) && (expiryCopy != null)) {
+            effectiveTimeToLive = expiryCopy.expireAfterWrite(key, value);
+        }
+
+        long timeToLiveNanos = -1;
+        if (effectiveTimeToLive != null) {
+            timeToLiveNanos = Math.min(MAX_TIME_TO_LIVE_NANOS, Math.max(0, saturatedNanos(effectiveTimeToLive)));
+        }
+
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+
+        long now = ticker.read();
+        V oldValue = null;
+
+        Entry<K, V> entry = map.get(key);
+        if ((entry != null) && hasExpired(entry, now)) {
+            // expired values are not replaced as they have already ended their life
+            retire(entry, RemovalCause.EXPIRED);
+            entry = null;
+        }
+
+        if (entry == null) {
+            entry = new Entry<>(key, now, value);
+            entry.weight = weight;
+            totalWeight += weight;
+            map.put(key, entry);
+            linkAsYoungest(entry);
+
+            if (sketch != null) {
+                sketch.ensureCapacity(map.size());
+            }
+        } else {
+            oldValue = entry.value;
+            notifyRemoval(entry, RemovalCause.REPLACED);
+
+            entry.value = value;
+            entry.lastUsed = now;
+            entry.lastWritten = now;
+            totalWeight += weight - entry.weight;
+            entry.weight = weight;
+            moveToYoungest(entry);
+        }
+
+        entry.timeToLiveNanos = timeToLiveNanos;
+        if (timeToLiveNanos >= 0) {
+            expirationQueue.add(new ExpirationNode<>(entry, now + timeToLiveNanos));
+        }
+
+        return oldValue;
+    }
+
+    /**
+     * Replaces the value of the given entry by a refreshed value. Other than {@link #store(Object, Object, Duration)},
+     * usage and position in eviction order are kept, so a refresh does not prolong the entry's life. The time to live
+     * is only updated if an {@link Expiry} policy is configured. Must only be called while holding the map lock.
+     *
+     * @param entry entry to update
+     * @param value refreshed value
+     */
+    private void storeRefreshed(Entry<K, V> entry, V value) {
+        Weigher<? super K, ? super V> weigherCopy;
+        Expiry<? super K, ? super V> expiryCopy;
+        synchronized (this) {
+            weigherCopy = this.weigher;
+            expiryCopy = this.expiry;
+        }
+        long weight = weigh(weigherCopy, entry.key, value);
+
+        long timeToLiveNanos = entry.timeToLiveNanos;
+        if (expiryCopy != null) {
+            Duration timeToLive = expiryCopy.expireAfterWrite(entry.key, value);
+            timeToLiveNanos = -1;
+            if (timeToLive != null) {
+                timeToLiveNanos = Math.min(MAX_TIME_TO_LIVE_NANOS, Math.max(0, saturatedNanos(timeToLive)));
+            }
+        }
+
+        notifyRemoval(entry, RemovalCause.REFRESHED);
+
+        long now = ticker.read();
+        entry.value = value;
+        entry.lastWritten = now;
+        totalWeight += weight - entry.weight;
+        entry.weight = weight;
+
+        entry.timeToLiveNanos = timeToLiveNanos;
+        if (timeToLiveNanos >= 0) {
+            expirationQueue.add(new ExpirationNode<>(entry, now + timeToLiveNanos));
+        }
+    }
+
+    /**
+     * Removes the entry matching the given key.
+     *
+     * @param key key of entry to remove
+     * @return previously stored value; {@code null} if no value was present for the given key
+     */
+    public V remove(K key) {
+        Entry<K, V> oldEntry;
+
+        synchronized (map) {
+            loading.remove(key);
+
+            oldEntry = map.get(key);
+            if (oldEntry == null) {
+                return null;
+            }
+
+            retire(oldEntry, RemovalCause.EXPLICIT);
+        }
+
+        dispatchRemovals();
+
+        return oldEntry.value;
+    }
+
+    /**
+     * Removes all entries matching the given keys. The cache is only locked once.
+     *
+     * @param keys keys of entries to remove
+     */
+    public void invalidateAll(Iterable<? extends K> keys) {
+        synchronized (map) {
+            for (K key : keys) {
+                loading.remove(key);
+
+                Entry<K, V> oldEntry = map.get(key);
+                if (oldEntry != null) {
+                    retire(oldEntry, RemovalCause.EXPLICIT);
+                }
+            }
+        }
+
+        dispatchRemovals();
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        synchronized (map) {
+            drainAccesses();
+            loading.clear();
+
+            for (Entry<K, V> entry : map.values()) {
+                entry.retired = true;
+                notifyRemoval(entry, RemovalCause.EXPLICIT);
+            }
+
+            map.clear();
+            expirationQueue.clear();
+            eldest = null;
+            youngest = null;
+            totalWeight = 0;
+        }
+
+        dispatchRemovals();
+    }
+
+    /**
+     * Writes all entries to the given stream, preserving their order of usage so the cache can be warmed up again
+     * later via {@link #readSnapshot(InputStream, CacheSnapshotSerializer)}.
+     * <p>
+     * All keys and values are copied in a single pass while the cache is locked; serialization and writing happen
+     * after the lock has been released, so the cache remains fully usable while the snapshot is being written.
+     * Entries without a value or which have expired are omitted. Timestamps of last usage and individual times to live
+     * are not persisted; the {@link Expiry} policy applies again when restoring.
+     * </p>
+     * <p>
+     * The stream will be flushed but not closed.
+     * </p>
+     *
+     * @param out        stream to write to
+     * @param serializer writes keys and values
+     * @return number of entries written
+     * @throws IOException if writing fails
+     */
+    public int writeSnapshot(OutputStream out, CacheSnapshotSerializer<? super K, ? super V> serializer) throws IOException {
+        List<K> keys = new ArrayList<>();
+        List<V> values = new ArrayList<>();
+
+        synchronized (map) {
+            drainAccesses();
+
+            long now = ticker.read();
+            for (Entry<K, V> entry = eldest; entry != null; entry = entry.newer) {
+                V value = entry.value;
+                if ((value != null) && !hasExpired(entry, now)) {
+                    keys.add(entry.key);
+                    values.add(value);
+                }
+            }
+        }
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        dos.writeInt(SNAPSHOT_MAGIC);
+        dos.writeByte(SNAPSHOT_VERSION);
+        dos.writeInt(keys.size());
+
+        for (int i = 0; i < keys.size(); i++) {
+            serializer.writeKey(dos, keys.get(i));
+            serializer.writeValue(dos, values.get(i));
+        }
+
+        dos.flush();
+
+        return keys.size();
+    }
+
+    /**
+     * Reads all entries from a snapshot previously written by
+     * {@link #writeSnapshot(OutputStream, CacheSnapshotSerializer)} and stores them in the cache.
+     * <p>
+     * Entries are restored from least to most recently used, so their order of usage is preserved. All restored
+     * entries are considered to have just been used; this is intended to warm up a cache on startup before any other
+     * entries are added. Restored entries replace existing ones and LRU policy is applied as usual while restoring,
+     * so only the most recently used entries will be kept if the snapshot holds more entries than permitted.
+     * </p>
+     * <p>
+     * The stream will not be closed. As it is read through a buffer, data following the snapshot may get consumed.
+     * </p>
+     *
+     * @param in         stream to read from
+     * @param serializer reads keys and values
+     * @return number of entries read
+     * @throws IOException if reading fails or the data is not a supported snapshot
+     */
+    public int readSnapshot(InputStream in, CacheSnapshotSerializer<? extends K, ? extends V> serializer) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+
+        int magic = dis.readInt();
+        if (magic != SNAPSHOT_MAGIC) {
+            throw new IOException("not a cache snapshot, unexpected magic number " + Integer.toHexString(magic));
+        }
+
+        int version = dis.readUnsignedByte();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("unsupported cache snapshot version " + version);
+        }
+
+        int numEntries = dis.readInt();
+        if (numEntries < 0) {
+            throw new IOException("invalid number of entries: " + numEntries);
+        }
+
+        Map<K, V> batch = new LinkedHashMap<>();
+        for (int i = 0; i < numEntries; i++) {
+            K key = serializer.readKey(dis);
+            V value = serializer.readValue(dis);
+
+            // keys are unique in snapshots, so the batch maintains the order of usage
+            batch.put(key, value);
+
+            if (batch.size() >= SNAPSHOT_BATCH_SIZE) {
+                putAll(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            putAll(batch);
+        }
+
+        return numEntries;
+    }
+
+    /**
+     * Evicts the least recently used entry regardless of configured limits. Used by caches built upon this class
+     * which need to release resources not fully reflected by entry weights.
+     *
+     * @return {@code true} if an entry has been evicted, {@code false} if the cache is empty
+     */
+    boolean evictEldest() {
+        synchronized (map) {
+            drainAccesses();
+            if (eldest == null) {
+                return false;
+            }
+
+            retire(eldest, RemovalCause.SIZE);
+        }
+
+        dispatchRemovals();
+
+        return true;
+    }
+
+    /**
+     * Applies LRU policy, evicting any expired or excessive entries from cache.
+     */
+    public void maintain() {
+        maintain(Collections.emptyList());
+    }
+
+    /**
+     * Applies LRU policy, evicting any expired or excessive entries from cache.
+     *
+     * @param candidates entries that have just been inserted and are subject to admission, in order of insertion
+     */
+    private void maintain(Collection<Entry<K, V>> candidates) {
+        CacheStatisticsCounter counter = statistics;
+        long startOfMaintenance = ticker.read();
+
+        // copy configuration for consistent application
+        int minEntriesCopy;
+        int maxEntriesCopy;
+        long maxWeightCopy;
+        long usageExpirationNanosCopy;
+        synchronized (this) {
+            minEntriesCopy = this.minEntries;
+            maxEntriesCopy = this.maxEntries;
+            maxWeightCopy = this.maxWeight;
+            usageExpirationNanosCopy = this.usageExpirationNanos;
+        }
+
+        synchronized (map) {
+            drainAccesses();
+            evictTimeToLiveExpired(startOfMaintenance);
+
+            Iterator<Entry<K, V>> candidateIterator = candidates.iterator();
+
+            // The usage list is ordered by last usage, so all entries that need to be evicted are found at its head.
+            // Entries are only checked until the first one is found to be retained, so maintenance only takes time
+            // proportional to the number of evicted entries.
+            while (eldest != null) {
+                int numEntries = map.size();
+
+                // keep if minEntries is not reached yet
+                if (numEntries <= minEntriesCopy) {
+                    break;
+                }
+
+                // do not keep if this entry exceeds maxEntries or maxWeight
+                boolean isOverCapacity = (numEntries > maxEntriesCopy) || (totalWeight > maxWeightCopy);
+                boolean shouldRemove = isOverCapacity;
+
+                // check expiration if still relevant
+                if (!shouldRemove && (usageExpirationNanosCopy >= 0)) {
+                    long age = startOfMaintenance - eldest.lastUsed;
+                    shouldRemove = (age > usageExpirationNanosCopy);
+                }
+
+                if (!shouldRemove) {
+                    break;
+                }
+
+                Entry<K, V> victim = eldest;
+                RemovalCause cause = isOverCapacity ? RemovalCause.SIZE : RemovalCause.EXPIRED;
+                if (isOverCapacity && (sketch != null)) {
+                    // admission is only decided once per candidate
+                    Entry<K, V> candidate = nextCandidate(candidateIterator);
+                    if ((candidate != null) && (candidate != victim)
+                        && (sketch.frequency(candidate.key) <= sketch.frequency(victim.key))) {
+                        // candidate is not used more frequently than the entry it would replace, so it is not admitted
+                        victim = candidate;
+                    }
+                }
+
+                retire(victim, cause);
+            }
+        }
+
+        if (counter != null) {
+            counter.recordMaintenance(ticker.read() - startOfMaintenance);
+        }
+
+        dispatchRemovals();
+
+        // entries with a shorter time to live may have been inserted since the scheduler was last triggered
+        SimpleScheduler scheduler = maintenanceScheduler.get();
+        if (scheduler != null) {
+            long timeToLiveNanos;
+            synchronized (map) {
+                timeToLiveNanos = getNanosUntilNextTimeToLiveExpiration(ticker.read());
+            }
+
+            if (timeToLiveNanos >= 0) {
+                scheduler.setNextTriggerIfEarlier(Duration.ofNanos(timeToLiveNanos));
+            }
+        }
+    }
+
+    /**
+     * Evicts all entries that have outlived their individual time to live. Must only be called while holding the map
+     * lock.
+     *
+     * @param now current ticker value
+     */
+    private void evictTimeToLiveExpired(long now) {
+        // the queue is ordered by deadline, so only expired entries need to be visited
+        ExpirationNode<K, V> node;
+        while (((node = expirationQueue.peek()) != null) && (now - node.deadline > 0)) {
+            expirationQueue.poll();
+            if (node.isCurrent()) {
+                retire(node.entry, RemovalCause.EXPIRED);
+            }
+        }
+
+        // purge outdated nodes left by rewritten or removed entries
+        if (expirationQueue.size() > Math.max(MIN_EXPIRATION_QUEUE_PURGE, 2 * map.size())) {
+            List<ExpirationNode<K, V>> currentNodes = new ArrayList<>();
+            for (ExpirationNode<K, V> expirationNode : expirationQueue) {
+                if (expirationNode.isCurrent()) {
+                    currentNodes.add(expirationNode);
+                }
+            }
+
+            expirationQueue.clear();
+            expirationQueue.addAll(currentNodes);
+        }
+    }
+
+    private Entry<K, V> nextCandidate(Iterator<Entry<K, V>> candidateIterator) {
+        while (candidateIterator.hasNext()) {
+            Entry<K, V> candidate = candidateIterator.next();
+            if (!candidate.retired) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Applies any usage recorded outside the map lock to the usage list. Must only be called while holding the map
+     * lock.
+     */
+    void drainAccesses() {
+        // all usage is recorded directly by default
+    }
+
+    /**
+     * Moves the given entry to the end of the usage list and resets its usage to time of replay, unless it has been
+     * removed in the meantime. Must only be called while holding the map lock.
+     *
+     * @param entry entry that has been used
+     */
+    void replayAccess(Entry<K, V> entry) {
+        if (entry.retired) {
+            return;
+        }
+
+        entry.lastUsed = ticker.read();
+        moveToYoungest(entry);
+
+        if (sketch != null) {
+            sketch.increment(entry.key);
+        }
+    }
+
+    private void retire(Entry<K, V> entry, RemovalCause cause) {
+        map.remove(entry.key);
+        unlink(entry);
+        totalWeight -= entry.weight;
+        entry.retired = true;
+
+        EvictionHook<? super K, ? super V> evictionHookCopy = evictionHook;
+        if ((evictionHookCopy != null) && (cause == RemovalCause.SIZE)) {
+            evictionHookCopy.onEviction(entry.key, entry.value, getRemainingNanos(entry, ticker.read()));
+        }
+
+        notifyRemoval(entry, cause);
+    }
+
+    /**
+     * Determines the time until the given entry would expire by usage or its individual time to live. Must only be
+     * called while holding the map lock.
+     *
+     * @param entry entry to check
+     * @param now   current ticker value
+     * @return remaining nanoseconds until expiration; negative if the entry does not expire
+     */
+    private long getRemainingNanos(Entry<K, V> entry, long now) {
+        long usageExpirationNanosCopy;
+        synchronized (this) {
+            usageExpirationNanosCopy = this.usageExpirationNanos;
+        }
+
+        long remaining = -1;
+        if (usageExpirationNanosCopy >= 0) {
+            remaining = Math.max(0, usageExpirationNanosCopy - (now - entry.lastUsed));
+        }
+
+        long timeToLiveNanos = entry.timeToLiveNanos;
+        if (timeToLiveNanos >= 0) {
+            long remainingTimeToLive = Math.max(0, timeToLiveNanos - (now - entry.lastWritten));
+            remaining = (remaining < 0) ? remainingTimeToLive : Math.min(remaining, remainingTimeToLive);
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Records the removal of the given entry's current value and queues a notification for the
+     * {@link RemovalListener}, if set. Must only be called while holding the map lock.
+     *
+     * @param entry entry whose value is being removed
+     * @param cause reason of removal
+     */
+    private void notifyRemoval(Entry<K, V> entry, RemovalCause cause) {
+        CacheStatisticsCounter counter = statistics;
+        if (counter != null) {
+            counter.recordRemoval(cause);
+        }
+
+        if (removalListener.get() != null) {
+            pendingRemovals.add(new Removal<>(entry.key, entry.value, cause));
+        }
+    }
+
+    /**
+     * Passes all queued removals to the {@link RemovalListener}. Must not be called while holding the map lock.
+     */
+    private void dispatchRemovals() {
+        Removal<K, V> removal;
+        while ((removal = pendingRemovals.poll()) != null) {
+            RemovalListener<? super K, ? super V> listener = removalListener.get();
+            if (listener == null) {
+                continue;
+            }
+
+            try {
+                listener.onRemoval(removal.key, removal.value, removal.cause);
+            } catch (Exception ex) {
+                LOGGER.warn("removal listener failed for key {} ({})", removal.key, removal.cause, ex);
+            }
+        }
+    }
+
+    private void linkAsYoungest(Entry<K, V> entry) {
+        entry.older = youngest;
+        entry.newer = null;
+
+        if (youngest == null) {
+            eldest = entry;
+        } else {
+            youngest.newer = entry;
+        }
+
+        youngest = entry;
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        if (entry.older == null) {
+            eldest = entry.newer;
+        } else {
+            entry.older.newer = entry.newer;
+        }
+
+        if (entry.newer == null) {
+            youngest = entry.older;
+        } else {
+            entry.newer.older = entry.older;
+        }
+
+        entry.older = null;
+        entry.newer = null;
+    }
+
+    private void moveToYoungest(Entry<K, V> entry) {
+        if (entry == youngest) {
+            return;
+        }
+
+        unlink(entry);
+        linkAsYoungest(entry);
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException ex) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
     }
 }
@@ -0,0 +1,444 @@
+package org.vatplanner.commons;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.vatplanner.commons.utils.Ticker;
+
+/**
+ * A thread-safe cache with primitive {@code long} keys, evicting entries based on a configurable Least Recently Used
+ * policy.
+ * <p>
+ * This is a specialization of {@link LRUCache} for {@code long} keys, offering the same eviction policy (see
+ * {@link #setMinEntries(int)}, {@link #setMaxEntries(int)} and {@link #setUsageExpiration(Duration)}). Other than
+ * {@link LRUCache}, keys are never boxed and no objects are allocated per entry: All entries are held in primitive
+ * arrays indexed by an open-addressing hash table, reducing memory overhead to a few bytes per entry (excluding the
+ * values themselves). Timestamps of last usage are only recorded once a usage expiration has been configured.
+ * </p>
+ * <p>
+ * As with {@link LRUCache}, {@code null} values can be stored but not distinguished from non-existing entries and LRU
+ * policy is only applied when calling {@link #maintain()} or inserting a value via {@link #put(long, Object)}.
+ * Reconfiguring the policy after entries have already been inserted requires {@link #maintain()} to be additionally
+ * called at an appropriate time. All operations lock the whole cache.
+ * </p>
+ *
+ * @param <V> type of values
+ */
+public class LongLRUCache<V> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    private final Ticker ticker;
+
+    private int minEntries = 0;
+    private int maxEntries = Integer.MAX_VALUE;
+    private long usageExpirationNanos = -1;
+
+    // Entries are stored in slots spread over the following arrays. Free slots are chained through newer.
+    private long[] keys;
+    private Object[] values;
+    private long[] lastUsed;
+    private int[] older;
+    private int[] newer;
+    private int freeSlots;
+    private int size;
+
+    /**
+     * Least recently used slot; head of the usage list.
+     */
+    private int eldest;
+
+    /**
+     * Most recently used slot; tail of the usage list.
+     */
+    private int youngest;
+
+    /**
+     * Hash table using linear probing, holding slot indices offset by 1 (0 marks unused buckets).
+     */
+    private int[] table;
+    private int tableMask;
+
+    /**
+     * Creates a new cache with an unbound policy.
+     */
+    public LongLRUCache() {
+        this(Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new cache with an unbound policy, tracking usage by the given {@link Ticker}.
+     *
+     * @param ticker source of time used to track usage
+     */
+    public LongLRUCache(Ticker ticker) {
+        this.ticker = ticker;
+        allocate(INITIAL_CAPACITY, false);
+    }
+
+    /**
+     * Controls the number of most recent entries to be kept, regardless of when they were last used (default: 0).
+     *
+     * @param minEntries minimum number of most-recent entries to keep, if present
+     * @return same instance for method-chaining
+     * @see LRUCache#setMinEntries(int)
+     */
+    public synchronized LongLRUCache<V> setMinEntries(int minEntries) {
+        this.minEntries = minEntries;
+        return this;
+    }
+
+    /**
+     * Controls the maximum number of entries to keep. If that limit is exceeded, the least recently used entries will
+     * be evicted from the cache until the total number of entries matches the policy again.
+     *
+     * @param maxEntries maximum number of most-recent entries to keep
+     * @return same instance for method-chaining
+     * @see LRUCache#setMaxEntries(int)
+     */
+    public synchronized LongLRUCache<V> setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Controls the maximum time since last usage allowed to keep an entry.
+     * <p>
+     * Entries already held by the cache when usage expiration is configured for the first time are treated as if they
+     * had just been used.
+     * </p>
+     *
+     * @param usageExpiration maximum time (inclusive) since last usage before evicting an entry
+     * @return same instance for method-chaining
+     * @see LRUCache#setUsageExpiration(Duration)
+     */
+    public synchronized LongLRUCache<V> setUsageExpiration(Duration usageExpiration) {
+        if (usageExpiration == null) {
+            usageExpirationNanos = -1;
+            return this;
+        }
+
+        usageExpirationNanos = Math.max(0, saturatedNanos(usageExpiration));
+
+        if (lastUsed == null) {
+            lastUsed = new long[keys.length];
+            Arrays.fill(lastUsed, ticker.read());
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the value stored for the given key.
+     * <p>
+     * If present, the entry's usage will be reset to time of access.
+     * </p>
+     *
+     * @param key key to look up value for
+     * @return value stored for key; {@code null} if not present
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V get(long key) {
+        int slot = findSlot(key);
+        if (slot == NONE) {
+            return null;
+        }
+
+        touch(slot);
+
+        return (V) values[slot];
+    }
+
+    /**
+     * Stores the given value under the specified key.
+     * <p>
+     * The entry's usage will be initially set to time of insertion. LRU policy is being applied as part of this call,
+     * so previous entries may get evicted from the cache as a side-effect.
+     * </p>
+     *
+     * @param key   key to store value under
+     * @param value value to store under key
+     * @return previously stored value; {@code null} if no value was present for the given key
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(long key, V value) {
+        V oldValue = null;
+
+        int slot = findSlot(key);
+        if (slot == NONE) {
+            insert(key, value);
+        } else {
+            oldValue = (V) values[slot];
+            values[slot] = value;
+            touch(slot);
+        }
+
+        maintain();
+
+        return oldValue;
+    }
+
+    /**
+     * Removes the entry matching the given key.
+     *
+     * @param key key of entry to remove
+     * @return previously stored value; {@code null} if no value was present for the given key
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(long key) {
+        int slot = findSlot(key);
+        if (slot == NONE) {
+            return null;
+        }
+
+        V oldValue = (V) values[slot];
+        removeSlot(slot);
+
+        return oldValue;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        allocate(INITIAL_CAPACITY, lastUsed != null);
+    }
+
+    /**
+     * Returns the number of entries currently held by the cache.
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Applies LRU policy, evicting any expired or excessive entries from cache.
+     */
+    public synchronized void maintain() {
+        long startOfMaintenance = ticker.read();
+
+        // entries that need to be evicted are found at the head of the usage list, see LRUCache#maintain()
+        while (eldest != NONE) {
+            // keep if minEntries is not reached yet
+            if (size <= minEntries) {
+                break;
+            }
+
+            // do not keep if this entry exceeds maxEntries
+            boolean shouldRemove = (size > maxEntries);
+
+            // check expiration if still relevant
+            if (!shouldRemove && (usageExpirationNanos >= 0)) {
+                long age = startOfMaintenance - lastUsed[eldest];
+                shouldRemove = (age > usageExpirationNanos);
+            }
+
+            if (!shouldRemove) {
+                break;
+            }
+
+            removeSlot(eldest);
+        }
+    }
+
+    private void allocate(int capacity, boolean trackUsage) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        lastUsed = trackUsage ? new long[capacity] : null;
+        older = new int[capacity];
+        newer = new int[capacity];
+
+        for (int i = 0; i < capacity; i++) {
+            newer[i] = i + 1;
+        }
+        newer[capacity - 1] = NONE;
+        freeSlots = 0;
+
+        size = 0;
+        eldest = NONE;
+        youngest = NONE;
+
+        table = new int[capacity * 2];
+        tableMask = table.length - 1;
+    }
+
+    private void grow() {
+        int oldCapacity = keys.length;
+        int newCapacity = oldCapacity * 2;
+        if (newCapacity <= oldCapacity || newCapacity > (1 << 29)) {
+            throw new IllegalStateException("maximum capacity exceeded");
+        }
+
+        keys = Arrays.copyOf(keys, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+        if (lastUsed != null) {
+            lastUsed = Arrays.copyOf(lastUsed, newCapacity);
+        }
+        older = Arrays.copyOf(older, newCapacity);
+        newer = Arrays.copyOf(newer, newCapacity);
+
+        for (int i = oldCapacity; i < newCapacity; i++) {
+            newer[i] = i + 1;
+        }
+        newer[newCapacity - 1] = NONE;
+        freeSlots = oldCapacity;
+
+        // slots are only grown once all of them are in use, so all old slots need to be indexed again
+        table = new int[newCapacity * 2];
+        tableMask = table.length - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            index(slot);
+        }
+    }
+
+    private void insert(long key, V value) {
+        if (freeSlots == NONE) {
+            grow();
+        }
+
+        int slot = freeSlots;
+        freeSlots = newer[slot];
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (lastUsed != null) {
+            lastUsed[slot] = ticker.read();
+        }
+
+        linkAsYoungest(slot);
+        index(slot);
+        size++;
+    }
+
+    private void removeSlot(int slot) {
+        unindex(slot);
+        unlink(slot);
+
+        values[slot] = null;
+        newer[slot] = freeSlots;
+        freeSlots = slot;
+        size--;
+    }
+
+    private void touch(int slot) {
+        if (lastUsed != null) {
+            lastUsed[slot] = ticker.read();
+        }
+
+        if (slot != youngest) {
+            unlink(slot);
+            linkAsYoungest(slot);
+        }
+    }
+
+    private int findSlot(long key) {
+        int bucket = hash(key) & tableMask;
+        while (true) {
+            int ref = table[bucket];
+            if (ref == 0) {
+                return NONE;
+            }
+
+            int slot = ref - 1;
+            if (keys[slot] == key) {
+                return slot;
+            }
+
+            bucket = (bucket + 1) & tableMask;
+        }
+    }
+
+    private void index(int slot) {
+        int bucket = hash(keys[slot]) & tableMask;
+        while (table[bucket] != 0) {
+            bucket = (bucket + 1) & tableMask;
+        }
+
+        table[bucket] = slot + 1;
+    }
+
+    private void unindex(int slot) {
+        int hole = hash(keys[slot]) & tableMask;
+        while (table[hole] != slot + 1) {
+            hole = (hole + 1) & tableMask;
+        }
+        table[hole] = 0;
+
+        // shift following buckets of the same probe sequence back to fill the hole
+        int bucket = hole;
+        while (true) {
+            bucket = (bucket + 1) & tableMask;
+
+            int ref = table[bucket];
+            if (ref == 0) {
+                return;
+            }
+
+            int home = hash(keys[ref - 1]) & tableMask;
+            if (!isCyclicallyWithin(home, hole, bucket)) {
+                table[hole] = ref;
+                table[bucket] = 0;
+                hole = bucket;
+            }
+        }
+    }
+
+    /**
+     * Checks if the given bucket lies within the cyclic range {@code (exclusiveStart, inclusiveEnd]}.
+     */
+    private static boolean isCyclicallyWithin(int bucket, int exclusiveStart, int inclusiveEnd) {
+        if (exclusiveStart <= inclusiveEnd) {
+            return (bucket > exclusiveStart) && (bucket <= inclusiveEnd);
+        } else {
+            return (bucket > exclusiveStart) || (bucket <= inclusiveEnd);
+        }
+    }
+
+    private void linkAsYoungest(int slot) {
+        older[slot] = youngest;
+        newer[slot] = NONE;
+
+        if (youngest == NONE) {
+            eldest = slot;
+        } else {
+            newer[youngest] = slot;
+        }
+
+        youngest = slot;
+    }
+
+    private void unlink(int slot) {
+        int olderSlot = older[slot];
+        int newerSlot = newer[slot];
+
+        if (olderSlot == NONE) {
+            eldest = newerSlot;
+        } else {
+            newer[olderSlot] = newerSlot;
+        }
+
+        if (newerSlot == NONE) {
+            youngest = olderSlot;
+        } else {
+            older[newerSlot] = olderSlot;
+        }
+
+        older[slot] = NONE;
+        newer[slot] = NONE;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException ex) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
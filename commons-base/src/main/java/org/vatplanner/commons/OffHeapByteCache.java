@@ -0,0 +1,250 @@
+package org.vatplanner.commons;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import org.vatplanner.commons.utils.Ticker;
+
+/**
+ * An {@link LRUCache} variant storing binary values outside of the Java heap.
+ * <p>
+ * Large binary values such as file contents or encrypted payloads put pressure on the garbage collector if they are
+ * held on the heap for a long time. This cache copies all values into slabs of memory allocated by a configurable
+ * factory, {@link ByteBuffer#allocateDirect(int)} by default, while only small handles are indexed on the heap.
+ * Memory-mapped slabs can be used by providing a factory mapping regions of a file instead.
+ * </p>
+ * <p>
+ * Values are stored in blocks sized to the next power of two (at least 64 bytes, at most the slab size); blocks of
+ * evicted or removed values are reused for new values. Each slab holds blocks of a single size; slabs which no longer
+ * hold any values are reused for other sizes but are not released. Values larger than a slab are stored in dedicated
+ * buffers which are released upon eviction.
+ * </p>
+ * <p>
+ * Values can be retrieved as a copy via {@link #get(Object)} or read in place through a read-only view via
+ * {@link #read(Object, Function)}. Views are only valid while being passed to the reading function as the memory will
+ * be reused after eviction.
+ * </p>
+ * <p>
+ * All operations lock the whole cache. Eviction follows the same policy as {@link LRUCache}; the maximum memory to be
+ * allocated outside the heap can be limited via {@link #setMaxBytes(long)}.
+ * </p>
+ *
+ * @param <K> type of keys
+ */
+public class OffHeapByteCache<K> {
+    private static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    private final int slabSize;
+    private final SlabAllocator allocator;
+    private final LRUCache<K, SlabAllocator.Block> index;
+
+    /**
+     * Creates a new cache with an unbound policy, allocating direct slabs of 1 MiB.
+     */
+    public OffHeapByteCache() {
+        this(DEFAULT_SLAB_SIZE, ByteBuffer::allocateDirect, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new cache with an unbound policy.
+     *
+     * @param slabSize      size of each slab in bytes; must be a power of two and at least 64
+     * @param bufferFactory allocates buffers of (at least) the requested capacity in bytes
+     * @param ticker        source of time used to track usage
+     */
+    public OffHeapByteCache(int slabSize, IntFunction<ByteBuffer> bufferFactory, Ticker ticker) {
+        this.slabSize = slabSize;
+        this.allocator = new SlabAllocator(slabSize, bufferFactory);
+
+        // the removal listener is called on the thread holding the allocator lock, see synchronized methods below
+        this.index = new LRUCache<K, SlabAllocator.Block>(ticker)
+            .setWeigher((key, block) -> block.capacity)
+            .setRemovalListener((key, block, cause) -> allocator.free(block));
+    }
+
+    /**
+     * Controls the maximum number of entries to keep.
+     *
+     * @param maxEntries maximum number of entries to keep
+     * @return same instance for method-chaining
+     * @see LRUCache#setMaxEntries(int)
+     */
+    public OffHeapByteCache<K> setMaxEntries(int maxEntries) {
+        index.setMaxEntries(maxEntries);
+        return this;
+    }
+
+    /**
+     * Controls the maximum number of bytes to be allocated outside the heap.
+     * <p>
+     * Values occupy whole blocks, so the size of the blocks counts rather than the actual length of values. As blocks
+     * of different sizes cannot share a slab, the allocated memory may exceed the memory occupied by values; if storing
+     * a value would require allocating memory beyond the limit, least recently used entries are evicted until enough
+     * memory is available. The limit is rounded up to a whole number of slabs, so at least one slab can always be
+     * allocated. Values which cannot be stored even in an empty cache are not stored.
+     * </p>
+     *
+     * @param maxBytes maximum number of bytes to be allocated
+     * @return same instance for method-chaining
+     * @see LRUCache#setMaxWeight(long)
+     */
+    public OffHeapByteCache<K> setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maximum bytes must not be negative");
+        }
+
+        synchronized (allocator) {
+            index.setMaxWeight(maxBytes);
+
+            long numSlabs = Math.max(1, (maxBytes / slabSize) + (((maxBytes % slabSize) != 0) ? 1 : 0));
+            allocator.setMaxAllocatedBytes((numSlabs > Long.MAX_VALUE / slabSize) ? Long.MAX_VALUE : numSlabs * slabSize);
+        }
+
+        return this;
+    }
+
+    /**
+     * Controls the maximum time since last usage allowed to keep an entry.
+     *
+     * @param usageExpiration maximum time (inclusive) since last usage before evicting an entry
+     * @return same instance for method-chaining
+     * @see LRUCache#setUsageExpiration(Duration)
+     */
+    public OffHeapByteCache<K> setUsageExpiration(Duration usageExpiration) {
+        index.setUsageExpiration(usageExpiration);
+        return this;
+    }
+
+    /**
+     * Returns a copy of the value stored for the given key.
+     *
+     * @param key key to look up value for
+     * @return copy of value stored for key; {@code null} if not present
+     */
+    public byte[] get(K key) {
+        return read(key, view -> {
+            byte[] out = new byte[view.remaining()];
+            view.get(out);
+            return out;
+        });
+    }
+
+    /**
+     * Passes a read-only view of the value stored for the given key to the given function and returns its result.
+     * <p>
+     * The view must not be used outside the function as its memory will be reused once the entry has been evicted.
+     * The cache remains locked while the function is being called, so it should return quickly.
+     * </p>
+     *
+     * @param key    key to look up value for
+     * @param reader reads the value
+     * @param <R>    type of result
+     * @return result of the reader; {@code null} if no value is present for the key
+     */
+    public <R> R read(K key, Function<? super ByteBuffer, ? extends R> reader) {
+        synchronized (allocator) {
+            SlabAllocator.Block block = index.get(key);
+            if (block == null) {
+                return null;
+            }
+
+            return reader.apply(allocator.view(block));
+        }
+    }
+
+    /**
+     * Stores a copy of the given value under the specified key.
+     *
+     * @param key   key to store value under
+     * @param value value to store
+     */
+    public void put(K key, byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+
+        put(key, ByteBuffer.wrap(value));
+    }
+
+    /**
+     * Stores a copy of the remaining content of the given buffer under the specified key. The buffer's position is
+     * not changed. If the value cannot be stored without exceeding {@link #setMaxBytes(long)}, even after evicting
+     * all other entries, any previous value stored for the key is removed instead.
+     *
+     * @param key   key to store value under
+     * @param value value to store
+     */
+    public void put(K key, ByteBuffer value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+
+        synchronized (allocator) {
+            SlabAllocator.Block block = allocator.allocate(value);
+            while (block == null) {
+                if (!index.evictEldest()) {
+                    index.remove(key);
+                    return;
+                }
+
+                block = allocator.allocate(value);
+            }
+
+            index.put(key, block);
+        }
+    }
+
+    /**
+     * Removes the entry matching the given key.
+     *
+     * @param key key of entry to remove
+     * @return {@code true} if an entry was removed, {@code false} if no value was present for the given key
+     */
+    public boolean remove(K key) {
+        synchronized (allocator) {
+            return index.remove(key) != null;
+        }
+    }
+
+    /**
+     * Removes all entries. Slabs remain allocated for reuse.
+     */
+    public void clear() {
+        synchronized (allocator) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Applies LRU policy, evicting any expired or excessive entries from cache.
+     */
+    public void maintain() {
+        synchronized (allocator) {
+            index.maintain();
+        }
+    }
+
+    /**
+     * Returns the number of bytes occupied by all values currently held by the cache.
+     *
+     * @return bytes occupied by values, including unused space at the end of blocks
+     */
+    public long getUsedBytes() {
+        synchronized (allocator) {
+            return allocator.getUsedBytes();
+        }
+    }
+
+    /**
+     * Returns the number of bytes currently allocated outside the heap, including unused blocks.
+     *
+     * @return allocated bytes
+     */
+    public long getAllocatedBytes() {
+        synchronized (allocator) {
+            return allocator.getAllocatedBytes();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package org.vatplanner.commons;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Allocates blocks of memory from large buffers ("slabs"), e.g. direct or memory-mapped {@link ByteBuffer}s, to
+ * store data outside of the Java heap.
+ * <p>
+ * Block sizes are powers of two, starting at {@value #MIN_BLOCK_SIZE} bytes up to the size of a whole slab; data is
+ * stored in the smallest block it fits into. Each slab is assigned to a single block size while it holds any data.
+ * Released blocks are reused for data of the same size; once all blocks of a slab have been released, the slab is
+ * returned to a shared pool and can be reassigned to any block size. Slabs themselves are kept allocated for reuse.
+ * Data exceeding the size of a slab is stored in a dedicated buffer instead which is released together with its data.
+ * </p>
+ * <p>
+ * The total capacity of all buffers can be limited through {@link #setMaxAllocatedBytes(long)}. Allocations which
+ * would exceed the limit fail, so the caller can release other blocks and try again.
+ * </p>
+ * <p>
+ * This class is not thread-safe; all access needs to be synchronized by the caller.
+ * </p>
+ */
+class SlabAllocator {
+    static final int MIN_BLOCK_SIZE = 64;
+    private static final int MIN_BLOCK_SIZE_SHIFT = 6;
+
+    private static final int UNASSIGNED = -1;
+
+    private final int slabSize;
+    private final IntFunction<ByteBuffer> bufferFactory;
+    private final SizeClass[] sizeClasses;
+    private final int largeSizeClass;
+
+    private final List<Slab> slabs = new ArrayList<>();
+    private final IntStack freeSlabs = new IntStack();
+
+    private final List<ByteBuffer> largeBuffers = new ArrayList<>();
+    private final IntStack freeLargeIndices = new IntStack();
+
+    private long maxAllocatedBytes = Long.MAX_VALUE;
+    private long allocatedBytes;
+    private long usedBytes;
+
+    /**
+     * Identifies a block of memory holding data.
+     */
+    static final class Block {
+        final int sizeClass;
+        final int slab;
+        final int index;
+        final int length;
+        final int capacity;
+
+        private Block(int sizeClass, int slab, int index, int length, int capacity) {
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+            this.index = index;
+            this.length = length;
+            this.capacity = capacity;
+        }
+    }
+
+    private static class SizeClass {
+        final int blockSize;
+        final int blocksPerSlab;
+
+        /**
+         * Slabs assigned to this size class which have free blocks, in order of assignment.
+         */
+        final Set<Integer> availableSlabs = new LinkedHashSet<>();
+
+        SizeClass(int blockSize, int blocksPerSlab) {
+            this.blockSize = blockSize;
+            this.blocksPerSlab = blocksPerSlab;
+        }
+    }
+
+    private static class Slab {
+        final ByteBuffer buffer;
+        final IntStack freeIndices = new IntStack();
+        int sizeClass = UNASSIGNED;
+        int numUsedBlocks;
+
+        /**
+         * Index of the first block that has not been used since the slab has been assigned.
+         */
+        int nextUnusedIndex;
+
+        Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void assign(int sizeClass) {
+            this.sizeClass = sizeClass;
+            numUsedBlocks = 0;
+            nextUnusedIndex = 0;
+            freeIndices.clear();
+        }
+    }
+
+    private static class IntStack {
+        private int[] values = new int[16];
+        private int size;
+
+        void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Creates a new allocator.
+     *
+     * @param slabSize      size of each slab in bytes; must be a power of two and at least {@value #MIN_BLOCK_SIZE}
+     * @param bufferFactory allocates buffers of the requested capacity, e.g. {@link ByteBuffer#allocateDirect(int)}
+     */
+    SlabAllocator(int slabSize, IntFunction<ByteBuffer> bufferFactory) {
+        if ((slabSize < MIN_BLOCK_SIZE) || (Integer.bitCount(slabSize) != 1)) {
+            throw new IllegalArgumentException(
+                "slab size must be a power of two of at least " + MIN_BLOCK_SIZE + " bytes, got " + slabSize
+            );
+        }
+
+        this.slabSize = slabSize;
+        this.bufferFactory = bufferFactory;
+
+        int numSizeClasses = Integer.numberOfTrailingZeros(slabSize) - MIN_BLOCK_SIZE_SHIFT + 1;
+        sizeClasses = new SizeClass[numSizeClasses];
+        for (int i = 0; i < numSizeClasses; i++) {
+            int blockSize = MIN_BLOCK_SIZE << i;
+            sizeClasses[i] = new SizeClass(blockSize, slabSize / blockSize);
+        }
+        largeSizeClass = numSizeClasses;
+    }
+
+    /**
+     * Limits the total capacity of all buffers. Already allocated buffers are not released if the new limit is lower,
+     * but no further buffers will be allocated until the limit is met again.
+     *
+     * @param maxAllocatedBytes maximum total capacity of all buffers
+     */
+    void setMaxAllocatedBytes(long maxAllocatedBytes) {
+        this.maxAllocatedBytes = maxAllocatedBytes;
+    }
+
+    /**
+     * Copies the remaining content of the given buffer to a newly allocated block. The buffer's position is not
+     * changed.
+     *
+     * @param data data to store
+     * @return block holding the data; {@code null} if no block could be allocated without exceeding the limit
+     */
+    Block allocate(ByteBuffer data) {
+        int length = data.remaining();
+
+        Block block;
+        if (length > slabSize) {
+            block = allocateLarge(length);
+        } else {
+            block = allocateInSlab(length);
+        }
+
+        if (block == null) {
+            return null;
+        }
+
+        ByteBuffer destination = buffer(block).duplicate();
+
+        // casts keep binary compatibility with Java 8 which does not override Buffer methods in ByteBuffer
+        ((Buffer) destination).position(offset(block));
+        destination.put(data.duplicate());
+
+        usedBytes += block.capacity;
+
+        return block;
+    }
+
+    private Block allocateInSlab(int length) {
+        int sizeClassIndex = sizeClassIndex(length);
+        SizeClass sizeClass = sizeClasses[sizeClassIndex];
+
+        int slabIndex;
+        if (!sizeClass.availableSlabs.isEmpty()) {
+            slabIndex = sizeClass.availableSlabs.iterator().next();
+        } else {
+            slabIndex = acquireSlab();
+            if (slabIndex < 0) {
+                return null;
+            }
+
+            slabs.get(slabIndex).assign(sizeClassIndex);
+            sizeClass.availableSlabs.add(slabIndex);
+        }
+
+        Slab slab = slabs.get(slabIndex);
+        int index;
+        if (!slab.freeIndices.isEmpty()) {
+            index = slab.freeIndices.pop();
+        } else {
+            index = slab.nextUnusedIndex++;
+        }
+
+        slab.numUsedBlocks++;
+        if (slab.numUsedBlocks == sizeClass.blocksPerSlab) {
+            sizeClass.availableSlabs.remove(slabIndex);
+        }
+
+        return new Block(sizeClassIndex, slabIndex, index, length, sizeClass.blockSize);
+    }
+
+    /**
+     * Takes a slab from the shared pool or allocates a new one if permitted by the limit.
+     *
+     * @return index of unassigned slab; negative if the limit does not permit another slab
+     */
+    private int acquireSlab() {
+        if (!freeSlabs.isEmpty()) {
+            return freeSlabs.pop();
+        }
+
+        if (!canAllocate(slabSize)) {
+            return -1;
+        }
+
+        slabs.add(new Slab(createBuffer(slabSize)));
+        return slabs.size() - 1;
+    }
+
+    private Block allocateLarge(int length) {
+        if (!canAllocate(length)) {
+            return null;
+        }
+
+        ByteBuffer buffer = createBuffer(length);
+
+        int index;
+        if (!freeLargeIndices.isEmpty()) {
+            index = freeLargeIndices.pop();
+            largeBuffers.set(index, buffer);
+        } else {
+            index = largeBuffers.size();
+            largeBuffers.add(buffer);
+        }
+
+        return new Block(largeSizeClass, UNASSIGNED, index, length, length);
+    }
+
+    private boolean canAllocate(int capacity) {
+        return allocatedBytes <= maxAllocatedBytes - capacity;
+    }
+
+    private ByteBuffer createBuffer(int capacity) {
+        ByteBuffer buffer = bufferFactory.apply(capacity);
+        if ((buffer == null) || (buffer.capacity() < capacity)) {
+            throw new IllegalStateException("buffer factory did not provide a buffer of " + capacity + " bytes");
+        }
+
+        allocatedBytes += buffer.capacity();
+
+        return buffer;
+    }
+
+    private static int sizeClassIndex(int length) {
+        if (length <= MIN_BLOCK_SIZE) {
+            return 0;
+        }
+
+        // ceil(log2(length)) relative to minimum block size
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(length - 1)) - MIN_BLOCK_SIZE_SHIFT;
+    }
+
+    /**
+     * Returns a read-only view of the data held by the given block. The view must not be used after the block has
+     * been released.
+     *
+     * @param block block to read
+     * @return read-only view of the block's data
+     */
+    ByteBuffer view(Block block) {
+        ByteBuffer view = buffer(block).duplicate();
+        int offset = offset(block);
+
+        ((Buffer) view).limit(offset + block.length);
+        ((Buffer) view).position(offset);
+
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Releases the given block so it can be reused. The block must not be used afterwards.
+     *
+     * @param block block to release
+     */
+    void free(Block block) {
+        usedBytes -= block.capacity;
+
+        if (block.sizeClass == largeSizeClass) {
+            ByteBuffer buffer = largeBuffers.set(block.index, null);
+            allocatedBytes -= buffer.capacity();
+            freeLargeIndices.push(block.index);
+            return;
+        }
+
+        SizeClass sizeClass = sizeClasses[block.sizeClass];
+        Slab slab = slabs.get(block.slab);
+        slab.numUsedBlocks--;
+
+        if (slab.numUsedBlocks == 0) {
+            // empty slabs are returned to the pool so they can be reassigned to other sizes
+            sizeClass.availableSlabs.remove(block.slab);
+            slab.sizeClass = UNASSIGNED;
+            freeSlabs.push(block.slab);
+            return;
+        }
+
+        slab.freeIndices.push(block.index);
+        sizeClass.availableSlabs.add(block.slab);
+    }
+
+    private ByteBuffer buffer(Block block) {
+        if (block.sizeClass == largeSizeClass) {
+            return largeBuffers.get(block.index);
+        }
+
+        return slabs.get(block.slab).buffer;
+    }
+
+    private int offset(Block block) {
+        if (block.sizeClass == largeSizeClass) {
+            return 0;
+        }
+
+        return block.index * sizeClasses[block.sizeClass].blockSize;
+    }
+
+    /**
+     * Returns the total capacity of all buffers currently held by this allocator.
+     *
+     * @return allocated bytes
+     */
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the total capacity of all blocks currently in use.
+     *
+     * @return bytes in use, including unused space at the end of blocks
+     */
+    long getUsedBytes() {
+        return usedBytes;
+    }
+}
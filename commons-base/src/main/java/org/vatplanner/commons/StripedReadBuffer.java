@@ -0,0 +1,125 @@
+package org.vatplanner.commons;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy multi-producer/single-consumer buffer used to record events without taking a lock.
+ * <p>
+ * Producers are spread over multiple stripes depending on their thread to reduce contention. Each stripe is a bounded
+ * ring buffer; events offered to a full stripe are simply dropped. Draining must not happen concurrently, i.e. it has
+ * to be performed while holding a lock.
+ * </p>
+ *
+ * @param <E> type of buffered events
+ */
+class StripedReadBuffer<E> {
+    private static final int STRIPE_CAPACITY = 16;
+    private static final int STRIPE_MASK = STRIPE_CAPACITY - 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe<E>[] stripes;
+    private final int stripesMask;
+
+    /**
+     * Result of offering an event to the buffer.
+     */
+    enum OfferResult {
+        /**
+         * The event has been recorded.
+         */
+        RECORDED,
+
+        /**
+         * The event has been recorded and the stripe has reached its capacity, so the buffer should be drained.
+         */
+        RECORDED_FULL,
+
+        /**
+         * The event has been dropped because the stripe has already been full or was contended.
+         */
+        DROPPED
+    }
+
+    private static class Stripe<E> {
+        final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(STRIPE_CAPACITY);
+        final AtomicLong writeCounter = new AtomicLong();
+        final AtomicLong readCounter = new AtomicLong();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    StripedReadBuffer() {
+        int numStripes = 1;
+        int wantedStripes = Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 2);
+        while (numStripes < wantedStripes) {
+            numStripes <<= 1;
+        }
+
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new Stripe<>();
+        }
+
+        stripesMask = numStripes - 1;
+    }
+
+    /**
+     * Records the given event on the stripe assigned to the calling thread.
+     *
+     * @param event event to record
+     * @return outcome of the attempt to record the event
+     */
+    OfferResult offer(E event) {
+        Stripe<E> stripe = stripes[stripeIndex()];
+
+        long readCount = stripe.readCounter.get();
+        long writeCount = stripe.writeCounter.get();
+        long size = writeCount - readCount;
+        if (size >= STRIPE_CAPACITY) {
+            return OfferResult.DROPPED;
+        }
+
+        if (!stripe.writeCounter.compareAndSet(writeCount, writeCount + 1)) {
+            return OfferResult.DROPPED;
+        }
+
+        stripe.slots.lazySet((int) (writeCount & STRIPE_MASK), event);
+
+        return (size + 1 >= STRIPE_CAPACITY) ? OfferResult.RECORDED_FULL : OfferResult.RECORDED;
+    }
+
+    /**
+     * Removes all events currently held by the buffer and hands them to the given consumer. Events that are still
+     * being written by producers may be left in the buffer. Must not be called concurrently.
+     *
+     * @param consumer receives all drained events
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            long readCount = stripe.readCounter.get();
+            long writeCount = stripe.writeCounter.get();
+
+            while (readCount < writeCount) {
+                int index = (int) (readCount & STRIPE_MASK);
+                E event = stripe.slots.get(index);
+                if (event == null) {
+                    // producer claimed the slot but did not store the event yet
+                    break;
+                }
+
+                stripe.slots.lazySet(index, null);
+                readCount++;
+
+                consumer.accept(event);
+            }
+
+            stripe.readCounter.lazySet(readCount);
+        }
+    }
+
+    private int stripeIndex() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & stripesMask;
+    }
+}
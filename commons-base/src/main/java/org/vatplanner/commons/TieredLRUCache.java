@@ -0,0 +1,282 @@
+package org.vatplanner.commons;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A two-tier cache keeping recently used entries in an {@link LRUCache} and spilling entries evicted from it to
+ * memory-mapped files on local disk instead of discarding them.
+ * <p>
+ * Lookups check memory first, then disk and finally call the loader if provided. Entries found on disk are moved back
+ * to memory. Only entries evicted due to the memory cache's size or weight limits are spilled; expired or explicitly
+ * removed entries are discarded.
+ * </p>
+ * <p>
+ * On disk, entries are appended to segment files of fixed size which are indexed in memory. The total size of all
+ * segment files is limited; the least recently spilled entries are discarded when that limit is reached, while
+ * segments mostly holding outdated records are compacted. Segment files are temporary and deleted when the cache is
+ * closed or another cache is created for the same directory.
+ * </p>
+ * <p>
+ * Spilled entries keep the remaining time they would have been held in memory according to
+ * {@link LRUCache#setUsageExpiration(java.time.Duration)} and their individual time to live; they are no longer returned from
+ * disk once that time has passed. Entries moved back to memory start over with the memory tier's expiration policy.
+ * </p>
+ * <p>
+ * Spilling happens after the memory tier has been unlocked. Evicted values waiting to be spilled are tracked per key
+ * and discarded when the key gets written or removed in the meantime, so outdated values never reach the disk.
+ * </p>
+ * <p>
+ * Keys and values are written to disk using a {@link CacheSnapshotSerializer}.
+ * </p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class TieredLRUCache<K, V> implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredLRUCache.class);
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final LRUCache<K, V> memory;
+    private final DiskSegmentStore<K, V> disk;
+
+    /**
+     * Values evicted from memory which have not been spilled yet, indexed by key.
+     */
+    private final Map<K, PendingSpill<V>> pendingSpills = new ConcurrentHashMap<>();
+
+    /**
+     * Guards pending spills together with the disk, so checking for outdated values and writing to disk is atomic.
+     */
+    private final Object diskLock = new Object();
+
+    private static class PendingSpill<V> {
+        final V value;
+        final long evictedAt;
+        final long remainingNanos;
+
+        PendingSpill(V value, long evictedAt, long remainingNanos) {
+            this.value = value;
+            this.evictedAt = evictedAt;
+            this.remainingNanos = remainingNanos;
+        }
+
+        long getTimeToLiveNanos(long now) {
+            return (remainingNanos < 0) ? -1 : remainingNanos - (now - evictedAt);
+        }
+    }
+
+    /**
+     * Creates a new tiered cache using segment files of 16 MiB.
+     *
+     * @param memory       memory tier; its removal listener will be replaced
+     * @param directory    dedicated directory to hold segment files; will be created if missing
+     * @param serializer   serializes keys and values to disk
+     * @param maxDiskBytes maximum total size of all segment files in bytes; must allow for at least two segments
+     * @throws IOException if the directory cannot be prepared
+     */
+    public TieredLRUCache(LRUCache<K, V> memory, Path directory, CacheSnapshotSerializer<K, V> serializer, long maxDiskBytes) throws IOException {
+        this(memory, directory, serializer, maxDiskBytes, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new tiered cache.
+     * <p>
+     * The memory tier is configured by the caller and will be used exclusively through this instance; its
+     * {@link LRUCache.RemovalListener} will be replaced.
+     * </p>
+     *
+     * @param memory       memory tier; its removal listener will be replaced
+     * @param directory    dedicated directory to hold segment files; will be created if missing
+     * @param serializer   serializes keys and values to disk
+     * @param maxDiskBytes maximum total size of all segment files in bytes; must allow for at least two segments
+     * @param segmentSize  size of each segment file in bytes; entries exceeding that size are not spilled to disk
+     * @throws IOException if the directory cannot be prepared
+     */
+    public TieredLRUCache(LRUCache<K, V> memory, Path directory, CacheSnapshotSerializer<K, V> serializer, long maxDiskBytes, int segmentSize) throws IOException {
+        this.memory = memory;
+        this.disk = new DiskSegmentStore<>(directory, segmentSize, maxDiskBytes, serializer, memory.ticker);
+
+        memory.setEvictionHook(this::onEviction);
+        memory.setRemovalListener(this::spill);
+    }
+
+    /**
+     * Records an evicted value as pending to be spilled; called while the memory tier is still locked, so it is
+     * ordered before any following modification of the same key.
+     *
+     * @param key            key of evicted entry
+     * @param value          evicted value
+     * @param remainingNanos remaining time before the entry would have expired; negative if it does not expire
+     */
+    private void onEviction(K key, V value, long remainingNanos) {
+        if (value != null) {
+            pendingSpills.put(key, new PendingSpill<>(value, memory.ticker.read(), remainingNanos));
+        }
+    }
+
+    private void spill(K key, V value, LRUCache.RemovalCause cause) {
+        if ((cause != LRUCache.RemovalCause.SIZE) || (value == null)) {
+            return;
+        }
+
+        synchronized (diskLock) {
+            PendingSpill<V> pending = pendingSpills.get(key);
+            if ((pending == null) || (pending.value != value)) {
+                // key has been modified since eviction or the value has been evicted again
+                return;
+            }
+
+            pendingSpills.remove(key);
+
+            long timeToLiveNanos = pending.getTimeToLiveNanos(memory.ticker.read());
+            if ((pending.remainingNanos >= 0) && (timeToLiveNanos < 0)) {
+                // expired before it could be spilled
+                return;
+            }
+
+            try {
+                if (!disk.put(key, value, timeToLiveNanos)) {
+                    LOGGER.debug("cache entry for {} is too large to be spilled to disk", key);
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("failed to spill cache entry for {} to disk", key, ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the value stored for the given key in memory or on disk.
+     *
+     * @param key key to look up value for
+     * @return value stored for key; {@code null} if not present
+     */
+    public V get(K key) {
+        return get(key, x -> null);
+    }
+
+    /**
+     * Returns the value stored for the given key in memory or on disk, loading it if missing.
+     * <p>
+     * Values found on disk or loaded are stored in memory. Only one lookup is performed per key at a time, see
+     * {@link LRUCache#get(Object, Function)}.
+     * </p>
+     *
+     * @param key    key to look up value for
+     * @param loader loads the value if missing; may return {@code null} if no value is available
+     * @return value stored for or loaded by key; {@code null} if not present and the loader did not provide a value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return memory.get(key, x -> {
+            V value = takeFromDisk(x);
+            if (value != null) {
+                return value;
+            }
+
+            return loader.apply(x);
+        });
+    }
+
+    private V takeFromDisk(K key) {
+        synchronized (diskLock) {
+            // values still waiting to be spilled are taken directly
+            PendingSpill<V> pending = pendingSpills.remove(key);
+            if (pending != null) {
+                boolean hasExpired = (pending.remainingNanos >= 0)
+                    && (pending.getTimeToLiveNanos(memory.ticker.read()) < 0);
+                return hasExpired ? null : pending.value;
+            }
+
+            try {
+                return disk.take(key);
+            } catch (IOException ex) {
+                LOGGER.warn("failed to read cache entry for {} from disk", key, ex);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Stores the given value in memory, discarding any previous value held on disk.
+     *
+     * @param key   key to store value under
+     * @param value value to store
+     */
+    public void put(K key, V value) {
+        synchronized (diskLock) {
+            disk.remove(key);
+            memory.put(key, value);
+
+            // previous values evicted concurrently must not be spilled; the new value may already have been rejected
+            PendingSpill<V> pending = pendingSpills.get(key);
+            if ((pending != null) && (pending.value != value)) {
+                pendingSpills.remove(key, pending);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry matching the given key from memory and disk.
+     *
+     * @param key key of entry to remove
+     */
+    public void remove(K key) {
+        synchronized (diskLock) {
+            memory.remove(key);
+            pendingSpills.remove(key);
+            disk.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entries from memory and disk.
+     */
+    public void clear() {
+        synchronized (diskLock) {
+            memory.clear();
+            pendingSpills.clear();
+            disk.clear();
+        }
+    }
+
+    /**
+     * Returns the number of entries currently held on disk.
+     *
+     * @return number of entries on disk
+     */
+    public int getDiskEntries() {
+        return disk.size();
+    }
+
+    /**
+     * Returns the total size of all segment files currently held on disk.
+     *
+     * @return size of segment files in bytes
+     */
+    public long getDiskBytes() {
+        return disk.getFileBytes();
+    }
+
+    /**
+     * Discards all entries held on disk and deletes the segment files. Entries held in memory remain available but
+     * will no longer be spilled to disk.
+     */
+    @Override
+    public void close() {
+        memory.setEvictionHook(null);
+        memory.setRemovalListener(null);
+
+        synchronized (diskLock) {
+            pendingSpills.clear();
+            disk.close();
+        }
+    }
+}
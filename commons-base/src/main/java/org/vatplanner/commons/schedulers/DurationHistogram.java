@@ -0,0 +1,170 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the distribution of durations in buckets of exponentially increasing size.
+ * <p>
+ * Bucket {@code i} counts durations of at least 2<sup>i</sup> and less than 2<sup>i+1</sup> nanoseconds (bucket 0
+ * also counts zero), so percentiles are accurate within a factor of two. Recording is lock-free and takes constant
+ * time and memory.
+ * </p>
+ */
+public class DurationHistogram {
+    private static final int NUM_BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records the given duration. Negative durations are recorded as zero.
+     *
+     * @param duration duration to record
+     */
+    public void record(Duration duration) {
+        long nanos;
+        try {
+            nanos = duration.toNanos();
+        } catch (ArithmeticException ex) {
+            nanos = duration.isNegative() ? 0 : Long.MAX_VALUE;
+        }
+
+        recordNanos(nanos);
+    }
+
+    /**
+     * Records the given duration. Negative durations are recorded as zero.
+     *
+     * @param nanos duration to record in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        nanos = Math.max(0, nanos);
+
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        minNanos.accumulateAndGet(nanos, Math::min);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static int bucketIndex(long nanos) {
+        return (nanos == 0) ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * Returns a copy of the current distribution. Values recorded concurrently may be partially reflected.
+     *
+     * @return current distribution
+     */
+    public Snapshot getSnapshot() {
+        long[] bucketCounts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            bucketCounts[i] = buckets.get(i);
+        }
+
+        return new Snapshot(count.get(), sumNanos.get(), minNanos.get(), maxNanos.get(), bucketCounts);
+    }
+
+    /**
+     * An immutable copy of a {@link DurationHistogram}.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final long sumNanos;
+        private final long minNanos;
+        private final long maxNanos;
+        private final long[] bucketCounts;
+
+        private Snapshot(long count, long sumNanos, long minNanos, long maxNanos, long[] bucketCounts) {
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.minNanos = minNanos;
+            this.maxNanos = maxNanos;
+            this.bucketCounts = bucketCounts;
+        }
+
+        /**
+         * Returns the number of recorded durations.
+         *
+         * @return number of recorded durations
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the shortest recorded duration.
+         *
+         * @return shortest recorded duration; {@link Duration#ZERO} if nothing has been recorded
+         */
+        public Duration getMin() {
+            return (count == 0) ? Duration.ZERO : Duration.ofNanos(minNanos);
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         *
+         * @return longest recorded duration; {@link Duration#ZERO} if nothing has been recorded
+         */
+        public Duration getMax() {
+            return (count == 0) ? Duration.ZERO : Duration.ofNanos(maxNanos);
+        }
+
+        /**
+         * Returns the arithmetic mean of all recorded durations.
+         *
+         * @return mean duration; {@link Duration#ZERO} if nothing has been recorded
+         */
+        public Duration getMean() {
+            return (count == 0) ? Duration.ZERO : Duration.ofNanos(sumNanos / count);
+        }
+
+        /**
+         * Returns an upper bound of the given percentile, accurate within a factor of two and never exceeding the
+         * longest recorded duration.
+         *
+         * @param percentile percentile to return, between 0 and 100
+         * @return upper bound of percentile; {@link Duration#ZERO} if nothing has been recorded
+         */
+        public Duration getPercentile(double percentile) {
+            if ((percentile < 0) || (percentile > 100)) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+            }
+
+            long total = 0;
+            for (long bucketCount : bucketCounts) {
+                total += bucketCount;
+            }
+
+            if (total == 0) {
+                return Duration.ZERO;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank) {
+                    long upperBoundNanos = (i >= Long.SIZE - 2) ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                    return Duration.ofNanos(Math.min(upperBoundNanos, maxNanos));
+                }
+            }
+
+            return Duration.ofNanos(maxNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                + ", min=" + getMin()
+                + ", mean=" + getMean()
+                + ", p99=" + getPercentile(99)
+                + ", max=" + getMax();
+        }
+    }
+}
@@ -2,10 +2,21 @@ package org.vatplanner.commons.schedulers;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -15,8 +26,18 @@ import org.vatplanner.commons.utils.ThrowingSupplier;
 /**
  * A scheduler that runs multiple tasks in series. Tasks can be scheduled to repeat at an interval from last
  * termination. Other than default Java implementations, tasks can also be requested to be triggered "now". Any longer
- * pending entries will still be executed, however. Although separate threads are used, only at most one task is
- * being executed at a time.
+ * pending entries will still be executed, however. Although separate threads are used, by default only at most one
+ * task is being executed at a time.
+ * <p>
+ * Tasks can be run in parallel by raising the limit of {@link #setMaxConcurrency(int)}. Tasks which must not run at
+ * the same time can be assigned to a common lane through {@link #setLane(String, String)} which restricts concurrency
+ * of all tasks in that lane separately.
+ * </p>
+ * <p>
+ * Tasks depending on each other can be declared through {@link #addDependency(String, String)}. Whenever a task is
+ * started, all tasks downstream of it are run once their upstream tasks have completed, forming a directed acyclic
+ * graph; independent branches may run in parallel.
+ * </p>
  * <p>
  * {@link Task} needs to be extended by all tasks to be queued. All tasks are expected to take care of necessary
  * timeouts themselves and should check for requested cancellation at reasonable intervals through
@@ -37,10 +58,23 @@ import org.vatplanner.commons.utils.ThrowingSupplier;
 public class QueueingScheduler implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(QueueingScheduler.class);
 
+    private static final int DEFAULT_LANE_CONCURRENCY = 1;
+
     private final Map<String, ThrowingSupplier<? extends Task, ?>> suppliers = Collections.synchronizedMap(new HashMap<>());
-    private final Map<String, Instant> schedule = new HashMap<>();
+    private final Schedule schedule = new Schedule();
     private final Map<String, Duration> repeatIntervals = Collections.synchronizedMap(new HashMap<>());
-    private final AtomicReference<TaskExecution> runningTask = new AtomicReference<>();
+    private final Map<String, String> lanesByTaskName = new ConcurrentHashMap<>();
+    private final Map<String, Integer> laneConcurrency = new ConcurrentHashMap<>();
+    private final AtomicInteger maxConcurrency = new AtomicInteger(1);
+    private final Map<String, TaskExecution> runningTasks = new ConcurrentHashMap<>();
+    private final Map<String, TriggerCoalescer> triggerCoalescers = new ConcurrentHashMap<>();
+
+    // dependency graph, guarded by lock on schedule
+    private final Map<String, Set<String>> upstreamTasks = new HashMap<>();
+    private final Map<String, Set<String>> downstreamTasks = new HashMap<>();
+    private final Map<String, Set<String>> awaitedUpstreamTasks = new HashMap<>();
+    private final AtomicReference<Executor> taskExecutor = new AtomicReference<>();
+    private final SchedulerMetrics metrics = new SchedulerMetrics(this::countWaitingDueTasks);
 
     private final AtomicReference<Thread> schedulerThread = new AtomicReference<>();
     private final AtomicBoolean shouldShutdown = new AtomicBoolean();
@@ -49,45 +83,82 @@ public class QueueingScheduler implements Runnable {
     private final AtomicReference<Duration> idleCheckInterval = new AtomicReference<>(Duration.ofSeconds(30));
 
     /**
-     * Controls the {@link Thread}ed execution of a {@link Task}.
+     * Controls the execution of a {@link Task} on a separate thread.
      */
     private static class TaskExecution implements Runnable {
-        private final Thread thread;
         private final String taskName;
+        private final String lane;
         private final Task task;
         private final Object notificationObject;
         private final AtomicReference<Exception> exception = new AtomicReference<>();
         private final AtomicBoolean done = new AtomicBoolean();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile long runStartNanos;
+        private volatile long runEndNanos;
 
-        TaskExecution(String taskName, Task task, Object notificationObject) {
+        TaskExecution(String taskName, String lane, Task task, Object notificationObject) {
             this.notificationObject = notificationObject;
             this.taskName = taskName;
+            this.lane = lane;
             this.task = task;
-            this.thread = new Thread(this);
-            thread.setName("Task " + task.getClass().getSimpleName());
-            thread.start();
+        }
+
+        /**
+         * Starts execution on the given {@link Executor} or a new {@link Thread} if no {@link Executor} is provided.
+         * If the {@link Executor} rejects the task, execution is immediately marked as done and failed.
+         *
+         * @param executor runs the task; {@code null} to start a new {@link Thread}
+         */
+        void start(Executor executor) {
+            if (executor == null) {
+                Thread thread = new Thread(this);
+                thread.setName("Task " + task.getClass().getSimpleName());
+                thread.start();
+                return;
+            }
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                LOGGER.warn("task {} was rejected by executor", taskName, ex);
+                exception.set(ex);
+                terminate();
+            }
         }
 
         String getTaskName() {
             return taskName;
         }
 
+        String getLane() {
+            return lane;
+        }
+
         void cancelAsync() {
             task.cancel();
         }
 
         boolean cancelAndWait(Duration timeout) throws InterruptedException {
             cancelAsync();
-            thread.join(timeout.toMillis());
-            return !thread.isAlive();
+            return terminated.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
         }
 
         boolean isDone() {
             return done.get();
         }
 
+        /**
+         * Returns the time the task has been running for. Must only be called after the execution is done.
+         *
+         * @return run duration; {@link Duration#ZERO} if the task never ran
+         */
+        Duration getRunDuration() {
+            return Duration.ofNanos(runEndNanos - runStartNanos);
+        }
+
         @Override
         public void run() {
+            runStartNanos = System.nanoTime();
             try {
                 task.run();
             } catch (Exception ex) {
@@ -95,7 +166,13 @@ public class QueueingScheduler implements Runnable {
                 exception.set(ex);
             }
 
+            terminate();
+        }
+
+        private void terminate() {
+            runEndNanos = (runStartNanos != 0) ? System.nanoTime() : 0;
             done.set(true);
+            terminated.countDown();
 
             synchronized (notificationObject) {
                 notificationObject.notifyAll();
@@ -104,7 +181,8 @@ public class QueueingScheduler implements Runnable {
     }
 
     /**
-     * A task to be run by a {@link QueueingScheduler}. {@link #run()} will be executed in a separate thread.
+     * A task to be run by a {@link QueueingScheduler}. {@link #run()} will be executed in a separate thread, see
+     * {@link QueueingScheduler#setTaskExecutor(Executor)}.
      * <p>
      * A new instance is created for each planned execution. Implementations must expect to only run at most once and
      * may in fact not be run at all.
@@ -157,72 +235,62 @@ public class QueueingScheduler implements Runnable {
         LOGGER.info("scheduler started");
 
         while (!shouldShutdown.get()) {
-            boolean canStartNextTask = false;
-
-            TaskExecution previousTask = runningTask.get();
-            if (previousTask == null) {
-                canStartNextTask = true;
-            } else if (previousTask.isDone()) {
-                String taskName = previousTask.getTaskName();
-                Duration interval = repeatIntervals.get(taskName);
-
-                boolean failed = (previousTask.exception.get() != null);
-                if (failed) {
-                    LOGGER.warn("task {} has failed, applying retry interval", taskName);
-                    interval = failedRetryInterval.get();
-                }
-
-                if (interval == null) {
-                    LOGGER.info("task {} finished, not rescheduling (no interval configured)", taskName);
-                } else {
-                    Instant nextRun = rescheduleIfEarlier(taskName, Instant.now().plus(interval));
-                    LOGGER.info("task {} finished, next execution scheduled for {}", taskName, nextRun);
-                }
-
-                runningTask.set(null);
-                canStartNextTask = true;
-            }
+            finishCompletedTasks();
 
             synchronized (schedule) {
                 Instant sleepUntil = Instant.now().plus(idleCheckInterval.get());
 
-                if (canStartNextTask) {
-                    Map.Entry<String, Instant> nextTask = schedule.entrySet()
-                                                                  .stream()
-                                                                  .min(Map.Entry.comparingByValue())
-                                                                  .orElse(null);
+                while (runningTasks.size() < maxConcurrency.get()) {
+                    Schedule.Entry nextTask = findNextStartableTask();
 
                     LOGGER.debug("next task: {}", nextTask);
 
                     if (nextTask == null) {
-                        LOGGER.info("no tasks scheduled");
-                    } else {
-                        Duration timeUntilStart = Duration.between(Instant.now(), nextTask.getValue());
-                        boolean isDue = (timeUntilStart.compareTo(Duration.ZERO) <= 0);
-                        if (!isDue) {
-                            LOGGER.debug("next task {} is not due yet, time until start: {}", nextTask, timeUntilStart);
-                            sleepUntil = nextTask.getValue();
-                        } else {
-                            LOGGER.debug("next task {} is due (time until start: {})", nextTask, timeUntilStart);
-
-                            String taskName = nextTask.getKey();
-                            Task task = instantiateTask(taskName);
-                            if (task == null) {
-                                Instant retryTime = Instant.now().plus(failedRetryInterval.get());
-                                LOGGER.warn("postponing {} until {} due to failed construction", taskName, retryTime);
-                                schedule.put(taskName, retryTime);
-                                continue; // check next entry
-                            }
-
-                            LOGGER.info("starting task {}", taskName);
-                            schedule.remove(taskName); // expired; will be re-added via rescheduleIfEarlier when finished
-                            runningTask.set(new TaskExecution(taskName, task, schedule));
+                        LOGGER.debug("no startable tasks scheduled");
+                        break;
+                    }
+
+                    Duration timeUntilStart = Duration.between(Instant.now(), nextTask.getTime());
+                    boolean isDue = (timeUntilStart.compareTo(Duration.ZERO) <= 0);
+                    if (!isDue) {
+                        LOGGER.debug("next task {} is not due yet, time until start: {}", nextTask, timeUntilStart);
+                        if (nextTask.getTime().isBefore(sleepUntil)) {
+                            sleepUntil = nextTask.getTime();
                         }
+                        break;
                     }
+
+                    LOGGER.debug("next task {} is due (time until start: {})", nextTask, timeUntilStart);
+
+                    String taskName = nextTask.getName();
+                    Task task = instantiateTask(taskName);
+                    if (task == null) {
+                        Instant retryTime = Instant.now().plus(failedRetryInterval.get());
+                        LOGGER.warn("postponing {} until {} due to failed construction", taskName, retryTime);
+                        schedule.put(taskName, retryTime);
+
+                        // downstream tasks may still await this task from an earlier start of an upstream task
+                        propagateCompletion(taskName, true);
+                        continue; // check next entry
+                    }
+
+                    String lane = lanesByTaskName.get(taskName);
+                    LOGGER.info("starting task {} (lane: {})", taskName, lane);
+                    schedule.remove(taskName); // expired; will be re-added via rescheduleIfEarlier when finished
+                    TriggerCoalescer coalescer = triggerCoalescers.get(taskName);
+                    if (coalescer != null) {
+                        coalescer.onRunStarted(Instant.now());
+                    }
+                    awaitDownstreamTasks(taskName);
+                    TaskExecution execution = new TaskExecution(taskName, lane, task, schedule);
+                    runningTasks.put(taskName, execution);
+                    metrics.onTaskStarted(taskName, nextTask.getTime(), Instant.now());
+                    execution.start(taskExecutor.get());
                 }
 
+                // tasks may have completed without being noticed as notifications are only received while waiting
                 Duration sleepDuration = Duration.between(Instant.now(), sleepUntil);
-                if (sleepDuration.compareTo(Duration.ZERO) > 0) {
+                if ((sleepDuration.compareTo(Duration.ZERO) > 0) && !hasCompletedTasks()) {
                     try {
                         LOGGER.debug("sleeping for {}", sleepDuration);
                         schedule.wait(Math.max(1, sleepDuration.toMillis()));
@@ -234,11 +302,195 @@ public class QueueingScheduler implements Runnable {
             }
         }
 
-        abortRunningTask();
+        abortRunningTasks();
 
         LOGGER.info("scheduler terminated");
     }
 
+    private boolean hasCompletedTasks() {
+        for (TaskExecution execution : runningTasks.values()) {
+            if (execution.isDone()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void finishCompletedTasks() {
+        Iterator<TaskExecution> it = runningTasks.values().iterator();
+        while (it.hasNext()) {
+            TaskExecution previousTask = it.next();
+            if (!previousTask.isDone()) {
+                continue;
+            }
+
+            String taskName = previousTask.getTaskName();
+            Duration interval = repeatIntervals.get(taskName);
+
+            Exception failure = previousTask.exception.get();
+            metrics.onTaskFinished(taskName, previousTask.getRunDuration(), failure);
+
+            boolean failed = (failure != null);
+            if (failed) {
+                LOGGER.warn("task {} has failed, applying retry interval", taskName);
+                interval = failedRetryInterval.get();
+            }
+
+            if (interval == null) {
+                LOGGER.info("task {} finished, not rescheduling (no interval configured)", taskName);
+            } else {
+                Instant nextRun = rescheduleIfEarlier(taskName, Instant.now().plus(interval));
+                LOGGER.info("task {} finished, next execution scheduled for {}", taskName, nextRun);
+            }
+
+            synchronized (schedule) {
+                propagateCompletion(taskName, failed);
+            }
+
+            it.remove();
+        }
+    }
+
+    /**
+     * Finds the earliest scheduled task which is currently permitted to start. Tasks are held back while a previous
+     * execution of the same task is still running, upstream tasks have yet to complete or the concurrency limit of
+     * their lane has been reached.
+     * Must be called while holding the lock on {@link #schedule}.
+     *
+     * @return earliest task permitted to start, may not be due yet; {@code null} if no task can be started
+     */
+    private Schedule.Entry findNextStartableTask() {
+        Map<String, Integer> numRunningByLane = new HashMap<>();
+        for (TaskExecution execution : runningTasks.values()) {
+            if (execution.getLane() != null) {
+                numRunningByLane.merge(execution.getLane(), 1, Integer::sum);
+            }
+        }
+
+        for (Schedule.Entry entry : schedule.entries()) {
+            String taskName = entry.getName();
+            if (runningTasks.containsKey(taskName)) {
+                LOGGER.trace("task {} is still running", taskName);
+                continue;
+            }
+
+            if (awaitedUpstreamTasks.containsKey(taskName)) {
+                LOGGER.trace("task {} is waiting for upstream tasks {}", taskName, awaitedUpstreamTasks.get(taskName));
+                continue;
+            }
+
+            String lane = lanesByTaskName.get(taskName);
+            if ((lane != null) && (numRunningByLane.getOrDefault(lane, 0) >= getLaneConcurrency(lane))) {
+                LOGGER.trace("task {} is held back, lane {} is busy", taskName, lane);
+                continue;
+            }
+
+            return entry;
+        }
+
+        return null;
+    }
+
+    /**
+     * Counts all tasks which are due but have not been started yet.
+     *
+     * @return number of due tasks waiting to be started
+     */
+    private int countWaitingDueTasks() {
+        Instant now = Instant.now();
+        int count = 0;
+        synchronized (schedule) {
+            for (Schedule.Entry entry : schedule.entries()) {
+                if (entry.getTime().isAfter(now)) {
+                    break;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Marks all tasks downstream of the given task to wait for completion of their upstream tasks which are part of
+     * the same subgraph. Must be called while holding the lock on {@link #schedule}.
+     *
+     * @param rootName task being started
+     */
+    private void awaitDownstreamTasks(String rootName) {
+        Set<String> reachable = collectDownstreamTasks(rootName);
+        if (reachable.isEmpty()) {
+            return;
+        }
+
+        for (String downstream : reachable) {
+            for (String upstream : upstreamTasks.get(downstream)) {
+                if (upstream.equals(rootName) || reachable.contains(upstream)) {
+                    awaitedUpstreamTasks.computeIfAbsent(downstream, x -> new HashSet<>()).add(upstream);
+                }
+            }
+        }
+
+        LOGGER.debug("task {} is starting, downstream tasks {} will follow", rootName, reachable);
+    }
+
+    /**
+     * Collects all tasks depending directly or indirectly on the given task. Must be called while holding the lock on
+     * {@link #schedule}.
+     *
+     * @param name task to collect downstream tasks of
+     * @return all downstream tasks; excludes the given task
+     */
+    private Set<String> collectDownstreamTasks(String name) {
+        Set<String> reachable = new HashSet<>();
+        Deque<String> remaining = new ArrayDeque<>(downstreamTasks.getOrDefault(name, Collections.emptySet()));
+        while (!remaining.isEmpty()) {
+            String current = remaining.poll();
+            if (reachable.add(current)) {
+                remaining.addAll(downstreamTasks.getOrDefault(current, Collections.emptySet()));
+            }
+        }
+
+        return reachable;
+    }
+
+    /**
+     * Updates tasks waiting for the given upstream task to complete. Once all awaited upstream tasks have succeeded,
+     * the downstream task is triggered. If an upstream task failed, downstream tasks waiting for it are skipped
+     * recursively. Must be called while holding the lock on {@link #schedule}.
+     *
+     * @param taskName completed upstream task
+     * @param failed   {@code true} if the upstream task failed, could not be instantiated or got skipped
+     */
+    private void propagateCompletion(String taskName, boolean failed) {
+        for (String downstream : downstreamTasks.getOrDefault(taskName, Collections.emptySet())) {
+            Set<String> awaited = awaitedUpstreamTasks.get(downstream);
+            if ((awaited == null) || !awaited.remove(taskName)) {
+                continue;
+            }
+
+            if (failed) {
+                LOGGER.warn("skipping task {} as upstream task {} did not complete successfully", downstream, taskName);
+                awaitedUpstreamTasks.remove(downstream);
+                propagateCompletion(downstream, true);
+            } else if (awaited.isEmpty()) {
+                awaitedUpstreamTasks.remove(downstream);
+                if (!suppliers.containsKey(downstream)) {
+                    LOGGER.warn("downstream task {} has not been registered, skipping", downstream);
+                    propagateCompletion(downstream, true);
+                    continue;
+                }
+
+                LOGGER.info("upstream tasks of {} completed, triggering", downstream);
+                rescheduleIfEarlier(downstream, Instant.now());
+            }
+        }
+    }
+
+    private int getLaneConcurrency(String lane) {
+        return laneConcurrency.getOrDefault(lane, DEFAULT_LANE_CONCURRENCY);
+    }
+
     /**
      * Reschedules the specified task to be run at the end of currently due executions.
      * The task will not be rescheduled if next execution is already due.
@@ -252,11 +504,42 @@ public class QueueingScheduler implements Runnable {
     /**
      * Reschedules the specified task to be run at the end of currently due executions.
      * The task will not be rescheduled if next execution is already due.
+     * <p>
+     * If a {@link TriggerPolicy} has been set for the task, the execution is instead scheduled according to that
+     * policy, see {@link #setTriggerPolicy(String, TriggerPolicy)}.
+     * </p>
      *
      * @param name task to be rescheduled
      */
     public void trigger(String name) {
-        rescheduleIfEarlier(name, Instant.now());
+        TriggerCoalescer coalescer = triggerCoalescers.get(name);
+        if (coalescer == null) {
+            rescheduleIfEarlier(name, Instant.now());
+            return;
+        }
+
+        synchronized (schedule) {
+            if (!suppliers.containsKey(name)) {
+                throw new IllegalArgumentException("task has not been registered: " + name);
+            }
+
+            Instant previousTime = schedule.get(name);
+            boolean isPreviousFromPolicy = (previousTime != null) && previousTime.equals(coalescer.getPendingTime());
+
+            Instant time = coalescer.onTrigger(Instant.now());
+            if (time == null) {
+                LOGGER.debug("trigger for task {} is dropped by policy", name);
+                return;
+            }
+
+            if ((previousTime != null) && !isPreviousFromPolicy && previousTime.isBefore(time)) {
+                // an earlier execution has been scheduled independently and will cover this trigger
+                return;
+            }
+
+            schedule.put(name, time);
+            schedule.notifyAll();
+        }
     }
 
     /**
@@ -338,14 +621,13 @@ public class QueueingScheduler implements Runnable {
         }
     }
 
-    private void abortRunningTask() {
-        TaskExecution execution = runningTask.get();
-        if ((execution == null) || execution.isDone()) {
-            return;
+    private void abortRunningTasks() {
+        for (TaskExecution execution : runningTasks.values()) {
+            if (!execution.isDone()) {
+                LOGGER.warn("abort running task {}", execution.getTaskName());
+                execution.cancelAsync();
+            }
         }
-
-        LOGGER.warn("abort running task");
-        execution.cancelAsync();
     }
 
     private Task instantiateTask(String name) {
@@ -399,6 +681,7 @@ public class QueueingScheduler implements Runnable {
 
             // we don't want to start anything new, so just for good measure we can clear all other info as well
             repeatIntervals.clear();
+            awaitedUpstreamTasks.clear();
             schedule.clear();
 
             schedule.notifyAll();
@@ -431,12 +714,15 @@ public class QueueingScheduler implements Runnable {
             return false;
         }
 
-        Duration timeoutRemaining = timeout.minus(Duration.between(startOfShutdown, Instant.now()));
-        TaskExecution execution = runningTask.get();
-        if ((execution != null) && !execution.isDone()) {
-            LOGGER.info("waiting for task to shut down (at most remaining {})", timeoutRemaining);
+        for (TaskExecution execution : runningTasks.values()) {
+            if (execution.isDone()) {
+                continue;
+            }
+
+            Duration timeoutRemaining = timeout.minus(Duration.between(startOfShutdown, Instant.now()));
+            LOGGER.info("waiting for task {} to shut down (at most remaining {})", execution.getTaskName(), timeoutRemaining);
             if (!execution.cancelAndWait(timeoutRemaining)) {
-                LOGGER.warn("task is still running after total timeout of {}", timeout);
+                LOGGER.warn("task {} is still running after total timeout of {}", execution.getTaskName(), timeout);
                 return false;
             }
         }
@@ -444,6 +730,235 @@ public class QueueingScheduler implements Runnable {
         return true;
     }
 
+    /**
+     * Declares that a task depends on another task.
+     *
+     * @param downstream task depending on upstream task
+     * @param upstream   task to run before downstream task
+     * @return same instance for method-chaining
+     * @see #addDependency(String, String)
+     */
+    public QueueingScheduler addDependency(Class<? extends Task> downstream, Class<? extends Task> upstream) {
+        return addDependency(downstream.getCanonicalName(), upstream.getCanonicalName());
+    }
+
+    /**
+     * Declares that a task depends on another task.
+     * <p>
+     * Whenever a task gets started, all tasks downstream of it are triggered as soon as their upstream tasks within
+     * the same subgraph have completed successfully. Until then, downstream tasks are held back even if they are due
+     * on their own schedule. Independent branches are run in parallel as permitted by
+     * {@link #setMaxConcurrency(int)} and lanes. If an upstream task fails or cannot be instantiated, all tasks downstream
+     * of it are skipped; the failed task is retried as usual and will run its downstream tasks once it succeeds.
+     * </p>
+     * <p>
+     * Tasks are referred to by name, so dependencies can be declared before the tasks are scheduled. Dependencies
+     * must not form a cycle.
+     * </p>
+     *
+     * @param downstream task depending on upstream task
+     * @param upstream   task to run before downstream task
+     * @return same instance for method-chaining
+     */
+    public QueueingScheduler addDependency(String downstream, String upstream) {
+        synchronized (schedule) {
+            if (downstream.equals(upstream) || collectDownstreamTasks(downstream).contains(upstream)) {
+                throw new IllegalArgumentException("dependency of " + downstream + " on " + upstream + " would form a cycle");
+            }
+
+            upstreamTasks.computeIfAbsent(downstream, x -> new HashSet<>()).add(upstream);
+            downstreamTasks.computeIfAbsent(upstream, x -> new HashSet<>()).add(downstream);
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of tasks to be executed at the same time. Defaults to 1, so all tasks run in series.
+     * <p>
+     * Each task is only run once at a time; if a task is triggered while being executed, the next execution will be
+     * queued as usual and wait for the previous execution to terminate. Tasks can additionally be assigned to lanes
+     * which restrict concurrency for a group of tasks, see {@link #setLane(String, String)}.
+     * </p>
+     *
+     * @param maxConcurrency maximum number of tasks to run at the same time; must be at least 1
+     * @return same instance for method-chaining
+     */
+    public QueueingScheduler setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maximum concurrency must be at least 1");
+        }
+
+        this.maxConcurrency.set(maxConcurrency);
+        notifyScheduler();
+
+        return this;
+    }
+
+    /**
+     * Assigns the given task to a lane, limiting the number of concurrently running tasks of the same lane.
+     *
+     * @param clazz task to assign
+     * @param lane  name of lane to assign the task to; {@code null} removes the task from any lane
+     * @return same instance for method-chaining
+     * @see #setLane(String, String)
+     */
+    public QueueingScheduler setLane(Class<? extends Task> clazz, String lane) {
+        return setLane(clazz.getCanonicalName(), lane);
+    }
+
+    /**
+     * Assigns the given task to a lane, limiting the number of concurrently running tasks of the same lane.
+     * <p>
+     * Lanes can be used to group tasks which depend on a shared resource, e.g. tasks working on the same repository.
+     * By default, tasks of the same lane run in series while tasks of other lanes or without a lane may run in
+     * parallel, up to the limit set by {@link #setMaxConcurrency(int)}. Due tasks held back by a busy lane do not
+     * block other due tasks from being started.
+     * </p>
+     * <p>
+     * Changes only affect tasks started afterwards.
+     * </p>
+     *
+     * @param name task to assign
+     * @param lane name of lane to assign the task to; {@code null} removes the task from any lane
+     * @return same instance for method-chaining
+     * @see #setLaneConcurrency(String, int)
+     */
+    public QueueingScheduler setLane(String name, String lane) {
+        if (lane == null) {
+            lanesByTaskName.remove(name);
+        } else {
+            lanesByTaskName.put(name, lane);
+        }
+
+        notifyScheduler();
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of tasks of the given lane to be executed at the same time. Defaults to
+     * {@value #DEFAULT_LANE_CONCURRENCY}. The global limit set by {@link #setMaxConcurrency(int)} still applies.
+     *
+     * @param lane           name of lane to configure
+     * @param maxConcurrency maximum number of tasks of the lane to run at the same time; must be at least 1
+     * @return same instance for method-chaining
+     */
+    public QueueingScheduler setLaneConcurrency(String lane, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maximum concurrency must be at least 1");
+        }
+
+        laneConcurrency.put(lane, maxConcurrency);
+        notifyScheduler();
+
+        return this;
+    }
+
+    private void notifyScheduler() {
+        synchronized (schedule) {
+            schedule.notifyAll();
+        }
+    }
+
+    /**
+     * Sets the {@link Executor} to run tasks on. By default, a new {@link Thread} is started for each execution.
+     * <p>
+     * Providing an {@link Executor} allows threads to be reused, e.g. through a thread pool, or tasks to be run on
+     * virtual threads on Java 21 or later runtimes ({@code Executors.newVirtualThreadPerTaskExecutor()}). The
+     * {@link Executor} must run each task on a separate thread and must not queue tasks beyond the configured
+     * concurrency, otherwise tasks may appear to be running while they actually wait for execution. Tasks rejected by
+     * the {@link Executor} are handled like failed executions.
+     * </p>
+     * <p>
+     * The {@link Executor} is not managed by the scheduler and needs to be shut down separately after the scheduler
+     * has been shut down.
+     * </p>
+     *
+     * @param executor runs tasks; {@code null} to start a new {@link Thread} for each execution
+     * @return same instance for method-chaining
+     */
+    public QueueingScheduler setTaskExecutor(Executor executor) {
+        taskExecutor.set(executor);
+        return this;
+    }
+
+    /**
+     * Sets the policy to coalesce triggers of the given task with.
+     *
+     * @param clazz  task to configure
+     * @param policy policy to apply to triggers; {@code null} to remove a previously set policy
+     * @return same instance for method-chaining
+     * @see #setTriggerPolicy(String, TriggerPolicy)
+     */
+    public QueueingScheduler setTriggerPolicy(Class<? extends Task> clazz, TriggerPolicy policy) {
+        return setTriggerPolicy(clazz.getCanonicalName(), policy);
+    }
+
+    /**
+     * Sets the policy to coalesce triggers of the given task with.
+     * <p>
+     * Without a policy, each {@link #trigger(String)} requests an execution "now", so frequent triggers result in
+     * back-to-back executions. A {@link TriggerPolicy} debounces and/or throttles triggers instead, so a burst of
+     * triggers can be collapsed into one or two executions. Only {@link #trigger(String)} is affected; executions
+     * requested for a specific time through {@link #rescheduleIfEarlier(String, Instant)}, repetitions and retries
+     * are scheduled as usual. Any execution started covers all triggers received until then.
+     * </p>
+     *
+     * @param name   task to configure
+     * @param policy policy to apply to triggers; {@code null} to remove a previously set policy
+     * @return same instance for method-chaining
+     */
+    public QueueingScheduler setTriggerPolicy(String name, TriggerPolicy policy) {
+        if (policy == null) {
+            triggerCoalescers.remove(name);
+        } else {
+            triggerCoalescers.put(name, new TriggerCoalescer(policy));
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets a listener to be informed about started and finished tasks. Listeners are called from the scheduler
+     * thread, so they should return quickly to not delay other tasks.
+     *
+     * @param listener receives task events; {@code null} to remove a previously set listener
+     * @return same instance for method-chaining
+     * @see #getMetrics()
+     */
+    public QueueingScheduler setListener(SchedulerListener listener) {
+        metrics.setListener(listener);
+        return this;
+    }
+
+    /**
+     * Returns a snapshot of execution metrics recorded since the scheduler has been created.
+     * <p>
+     * Besides per-task statistics on start delays, run durations and failures, the snapshot holds the currently
+     * running tasks and the number of due tasks waiting to be started. Tasks are recorded under their names as used
+     * for scheduling, i.e. the canonical class name if scheduled by class. Tasks which failed to be instantiated are
+     * not recorded as they never started.
+     * </p>
+     *
+     * @return current execution metrics
+     */
+    public SchedulerMetrics.Snapshot getMetrics() {
+        return metrics.getSnapshot();
+    }
+
+    Instant getScheduledTime(String name) {
+        synchronized (schedule) {
+            return schedule.get(name);
+        }
+    }
+
+    boolean isIdle() {
+        synchronized (schedule) {
+            return runningTasks.isEmpty() && (countWaitingDueTasks() == 0);
+        }
+    }
+
     /**
      * Sets the interval used to retry execution if a task failed.
      *
@@ -0,0 +1,149 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Holds the next planned execution time per task name, ordered by time.
+ * <p>
+ * Entries are indexed by name and additionally kept sorted by time, so the earliest entry can be retrieved and entries
+ * can be rescheduled in O(log n). Entries planned for the same time are ordered by the sequence in which they were
+ * (re)scheduled.
+ * </p>
+ * <p>
+ * Not thread-safe; callers need to synchronize access.
+ * </p>
+ */
+class Schedule {
+    private final Map<String, Entry> entriesByName = new HashMap<>();
+    private final TreeSet<Entry> entriesByTime = new TreeSet<>();
+    private long nextSequence;
+
+    /**
+     * A single planned execution.
+     */
+    static class Entry implements Comparable<Entry> {
+        private final String name;
+        private final Instant time;
+        private final long sequence;
+
+        private Entry(String name, Instant time, long sequence) {
+            this.name = name;
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Instant getTime() {
+            return time;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int res = time.compareTo(other.time);
+            if (res != 0) {
+                return res;
+            }
+
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + time;
+        }
+    }
+
+    /**
+     * Returns the time planned for the given task.
+     *
+     * @param name task name
+     * @return planned time; {@code null} if not scheduled
+     */
+    Instant get(String name) {
+        Entry entry = entriesByName.get(name);
+        return (entry != null) ? entry.time : null;
+    }
+
+    /**
+     * Checks if the given task is scheduled.
+     *
+     * @param name task name
+     * @return {@code true} if scheduled, {@code false} if not
+     */
+    boolean containsKey(String name) {
+        return entriesByName.containsKey(name);
+    }
+
+    /**
+     * Schedules the given task for the given time, replacing any previously planned time.
+     *
+     * @param name task name
+     * @param time planned time
+     */
+    void put(String name, Instant time) {
+        Entry entry = new Entry(name, time, nextSequence++);
+
+        Entry previous = entriesByName.put(name, entry);
+        if (previous != null) {
+            entriesByTime.remove(previous);
+        }
+
+        entriesByTime.add(entry);
+    }
+
+    /**
+     * Removes the given task from the schedule.
+     *
+     * @param name task name
+     */
+    void remove(String name) {
+        Entry entry = entriesByName.remove(name);
+        if (entry != null) {
+            entriesByTime.remove(entry);
+        }
+    }
+
+    /**
+     * Returns the earliest planned execution.
+     *
+     * @return earliest entry; {@code null} if nothing is scheduled
+     */
+    Entry first() {
+        return entriesByTime.isEmpty() ? null : entriesByTime.first();
+    }
+
+    /**
+     * Returns all entries ordered by time, earliest first. The returned view must not be used while modifying the
+     * schedule.
+     *
+     * @return all entries ordered by time
+     */
+    Collection<Entry> entries() {
+        return Collections.unmodifiableSet(entriesByTime);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        entriesByName.clear();
+        entriesByTime.clear();
+    }
+
+    /**
+     * Returns the number of scheduled tasks.
+     *
+     * @return number of scheduled tasks
+     */
+    int size() {
+        return entriesByName.size();
+    }
+}
@@ -0,0 +1,35 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Receives events about task executions of a {@link QueueingScheduler} or {@link SimpleScheduler}.
+ * <p>
+ * Listeners are called synchronously by the scheduler and should return quickly. Exceptions thrown by listeners are
+ * logged and otherwise ignored.
+ * </p>
+ */
+public interface SchedulerListener {
+    /**
+     * Called when a task is being started.
+     *
+     * @param taskName      name of started task
+     * @param scheduledTime time the task was scheduled to start at
+     * @param startTime     time the task actually started at
+     */
+    default void onTaskStarted(String taskName, Instant scheduledTime, Instant startTime) {
+        // ignore by default
+    }
+
+    /**
+     * Called when a task has finished, successfully or not.
+     *
+     * @param taskName name of finished task
+     * @param duration time the task has been running for
+     * @param failure  exception the task failed with; {@code null} if successful
+     */
+    default void onTaskFinished(String taskName, Duration duration, Exception failure) {
+        // ignore by default
+    }
+}
@@ -0,0 +1,246 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects execution metrics of a scheduler and forwards events to an optional {@link SchedulerListener}.
+ * <p>
+ * Metrics are recorded per task: the lag between scheduled and actual start time, the run duration and the number of
+ * started and failed executions. Together with the scheduler's current queue depth and running tasks they can be
+ * retrieved as a {@link Snapshot}.
+ * </p>
+ */
+public class SchedulerMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerMetrics.class);
+
+    private final IntSupplier queueDepthSupplier;
+    private final Map<String, TaskRecorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, Instant> runningTasks = new ConcurrentHashMap<>();
+    private final AtomicReference<SchedulerListener> listener = new AtomicReference<>();
+
+    private static class TaskRecorder {
+        private final AtomicLong numStarted = new AtomicLong();
+        private final AtomicLong numFailed = new AtomicLong();
+        private final AtomicReference<Instant> lastStarted = new AtomicReference<>();
+        private final DurationHistogram startLag = new DurationHistogram();
+        private final DurationHistogram runDuration = new DurationHistogram();
+
+        TaskStatistics getStatistics() {
+            return new TaskStatistics(
+                numStarted.get(),
+                numFailed.get(),
+                lastStarted.get(),
+                startLag.getSnapshot(),
+                runDuration.getSnapshot()
+            );
+        }
+    }
+
+    /**
+     * Creates a new collector.
+     *
+     * @param queueDepthSupplier provides the number of tasks currently due but waiting to be started
+     */
+    SchedulerMetrics(IntSupplier queueDepthSupplier) {
+        this.queueDepthSupplier = queueDepthSupplier;
+    }
+
+    void setListener(SchedulerListener listener) {
+        this.listener.set(listener);
+    }
+
+    void onTaskStarted(String taskName, Instant scheduledTime, Instant startTime) {
+        TaskRecorder recorder = recorders.computeIfAbsent(taskName, x -> new TaskRecorder());
+        recorder.numStarted.incrementAndGet();
+        recorder.lastStarted.set(startTime);
+        recorder.startLag.record(Duration.between(scheduledTime, startTime));
+        runningTasks.put(taskName, startTime);
+
+        SchedulerListener currentListener = listener.get();
+        if (currentListener != null) {
+            try {
+                currentListener.onTaskStarted(taskName, scheduledTime, startTime);
+            } catch (Exception ex) {
+                LOGGER.warn("listener failed to handle start of task {}", taskName, ex);
+            }
+        }
+    }
+
+    void onTaskFinished(String taskName, Duration duration, Exception failure) {
+        TaskRecorder recorder = recorders.computeIfAbsent(taskName, x -> new TaskRecorder());
+        recorder.runDuration.record(duration);
+        if (failure != null) {
+            recorder.numFailed.incrementAndGet();
+        }
+        runningTasks.remove(taskName);
+
+        SchedulerListener currentListener = listener.get();
+        if (currentListener != null) {
+            try {
+                currentListener.onTaskFinished(taskName, duration, failure);
+            } catch (Exception ex) {
+                LOGGER.warn("listener failed to handle end of task {}", taskName, ex);
+            }
+        }
+    }
+
+    Snapshot getSnapshot() {
+        Map<String, TaskStatistics> tasks = new TreeMap<>();
+        recorders.forEach((taskName, recorder) -> tasks.put(taskName, recorder.getStatistics()));
+
+        return new Snapshot(
+            Instant.now(),
+            queueDepthSupplier.getAsInt(),
+            Collections.unmodifiableMap(new TreeMap<>(runningTasks)),
+            Collections.unmodifiableMap(tasks)
+        );
+    }
+
+    /**
+     * Immutable execution metrics of a single task.
+     */
+    public static class TaskStatistics {
+        private final long numStarted;
+        private final long numFailed;
+        private final Instant lastStarted;
+        private final DurationHistogram.Snapshot startLag;
+        private final DurationHistogram.Snapshot runDuration;
+
+        private TaskStatistics(long numStarted, long numFailed, Instant lastStarted, DurationHistogram.Snapshot startLag, DurationHistogram.Snapshot runDuration) {
+            this.numStarted = numStarted;
+            this.numFailed = numFailed;
+            this.lastStarted = lastStarted;
+            this.startLag = startLag;
+            this.runDuration = runDuration;
+        }
+
+        /**
+         * Returns the number of started executions, including currently running ones.
+         *
+         * @return number of started executions
+         */
+        public long getNumStarted() {
+            return numStarted;
+        }
+
+        /**
+         * Returns the number of failed executions. Failed executions are retried if a retry interval is configured.
+         *
+         * @return number of failed executions
+         */
+        public long getNumFailed() {
+            return numFailed;
+        }
+
+        /**
+         * Returns the time the task has last been started at.
+         *
+         * @return time of last start; {@code null} if never started
+         */
+        public Instant getLastStarted() {
+            return lastStarted;
+        }
+
+        /**
+         * Returns the distribution of delays between scheduled and actual start times.
+         *
+         * @return distribution of start delays
+         */
+        public DurationHistogram.Snapshot getStartLag() {
+            return startLag;
+        }
+
+        /**
+         * Returns the distribution of run durations of finished executions.
+         *
+         * @return distribution of run durations
+         */
+        public DurationHistogram.Snapshot getRunDuration() {
+            return runDuration;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskStatistics(numStarted=" + numStarted
+                + ", numFailed=" + numFailed
+                + ", lastStarted=" + lastStarted
+                + ", startLag=(" + startLag
+                + "), runDuration=(" + runDuration
+                + "))";
+        }
+    }
+
+    /**
+     * Immutable execution metrics of a scheduler.
+     */
+    public static class Snapshot {
+        private final Instant time;
+        private final int queueDepth;
+        private final Map<String, Instant> runningTasks;
+        private final Map<String, TaskStatistics> tasks;
+
+        private Snapshot(Instant time, int queueDepth, Map<String, Instant> runningTasks, Map<String, TaskStatistics> tasks) {
+            this.time = time;
+            this.queueDepth = queueDepth;
+            this.runningTasks = runningTasks;
+            this.tasks = tasks;
+        }
+
+        /**
+         * Returns the time the snapshot was taken at.
+         *
+         * @return time of snapshot
+         */
+        public Instant getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the number of tasks which were due but had not been started yet. A queue depth that keeps growing
+         * indicates that the scheduler is saturated.
+         *
+         * @return number of due tasks waiting to be started
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * Returns the currently running tasks.
+         *
+         * @return start times of currently running tasks, indexed by task name
+         */
+        public Map<String, Instant> getRunningTasks() {
+            return runningTasks;
+        }
+
+        /**
+         * Returns the metrics of all tasks which have been started at least once.
+         *
+         * @return metrics indexed by task name
+         */
+        public Map<String, TaskStatistics> getTasks() {
+            return tasks;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot(time=" + time
+                + ", queueDepth=" + queueDepth
+                + ", runningTasks=" + runningTasks
+                + ", tasks=" + tasks
+                + ")";
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timer shared by many {@link SimpleScheduler}s, using a single thread to track all trigger times.
+ * <p>
+ * Schedulers created through {@link #createScheduler(String)} provide the same API as a regular
+ * {@link SimpleScheduler} but do not run a thread of their own. Instead, their trigger times are registered with this
+ * timer which dispatches due triggers to a pool of worker threads. The number of threads thus remains constant,
+ * regardless of the number of schedulers.
+ * </p>
+ * <p>
+ * Trigger times are tracked on a hashed timing wheel: Time is divided into ticks of fixed duration which are assigned
+ * to a ring of buckets. Registering and cancelling a trigger takes constant time; cancelled triggers are removed from
+ * their bucket immediately. Triggers are dispatched on the first tick after they became due, so the tick duration
+ * determines the precision. The timer thread only wakes up for the next tick a trigger is due at, so it does not wake
+ * up while no triggers are registered and ticks without due triggers are skipped.
+ * </p>
+ * <p>
+ * The timer needs to be explicitly {@link #start()}ed and should be shut down through
+ * {@link #shutdownAndWait(Duration)} once it is no longer needed.
+ * </p>
+ */
+public class SharedTimer implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedTimer.class);
+
+    private static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(100);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int DEFAULT_NUM_WORKERS = 2;
+
+    /**
+     * Limits delays to keep calculations on nanoseconds free of overflows (about 146 years).
+     */
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE / 2;
+
+    private final String name;
+    private final long tickNanos;
+    private final List<Bucket> wheel;
+    private final int wheelMask;
+    private final Executor workers;
+    private final ExecutorService ownedWorkers;
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numTimeouts = new AtomicInteger();
+    private final AtomicLong numWakeUps = new AtomicLong();
+    private final Object wakeUp = new Object();
+
+    private final AtomicReference<Thread> timerThread = new AtomicReference<>();
+    private final AtomicBoolean shouldShutdown = new AtomicBoolean();
+
+    private final long startNanos = System.nanoTime();
+    private long currentTick;
+
+    /**
+     * A trigger registered with the timer. All fields other than the constant ones are guarded by the lock on
+     * {@link #wakeUp}.
+     */
+    class Timeout {
+        private final Runnable action;
+        private final long deadlineNanos;
+        private long deadlineTick;
+        private boolean cancelled;
+        private boolean dispatched;
+
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Runnable action, long deadlineNanos) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the trigger. The action will not be dispatched unless it already has been.
+         */
+        void cancel() {
+            synchronized (wakeUp) {
+                if (cancelled || dispatched) {
+                    return;
+                }
+
+                cancelled = true;
+                numTimeouts.decrementAndGet();
+
+                // timeouts not transferred to the wheel yet are discarded on transfer
+                if (bucket != null) {
+                    bucket.remove(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * All timeouts assigned to one slot of the wheel, linked to each other so they can be removed in constant time.
+     * Guarded by the lock on {@link #wakeUp}.
+     */
+    private static class Bucket {
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+    }
+
+    /**
+     * Creates a new timer using a tick duration of 100ms and a dedicated pool of two worker threads.
+     *
+     * @param name name to identify threads with
+     */
+    public SharedTimer(String name) {
+        this(name, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, null);
+    }
+
+    /**
+     * Creates a new timer using a tick duration of 100ms.
+     *
+     * @param name    name to identify threads with
+     * @param workers runs triggered actions; not managed by this timer
+     */
+    public SharedTimer(String name, Executor workers) {
+        this(name, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, workers);
+    }
+
+    /**
+     * Creates a new timer.
+     * <p>
+     * Actions are run by the given {@link Executor} which remains managed by the caller. If no {@link Executor} is
+     * provided, a dedicated pool of two worker threads is created which will be shut down together with this timer.
+     * </p>
+     *
+     * @param name         name to identify threads with
+     * @param tickDuration precision of trigger times
+     * @param wheelSize    number of buckets; will be rounded up to a power of two
+     * @param workers      runs triggered actions; {@code null} to create a dedicated pool
+     */
+    public SharedTimer(String name, Duration tickDuration, int wheelSize, Executor workers) {
+        if (tickDuration.compareTo(Duration.ofMillis(1)) < 0) {
+            throw new IllegalArgumentException("tick duration must be at least 1ms");
+        }
+
+        if ((wheelSize < 1) || (wheelSize > (1 << 30))) {
+            throw new IllegalArgumentException("wheel size must be between 1 and 2^30");
+        }
+
+        this.name = name;
+        this.tickNanos = tickDuration.toNanos();
+
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new Bucket());
+        }
+        this.wheelMask = size - 1;
+
+        if (workers != null) {
+            this.workers = workers;
+            this.ownedWorkers = null;
+        } else {
+            this.ownedWorkers = Executors.newFixedThreadPool(DEFAULT_NUM_WORKERS, new WorkerThreadFactory(name));
+            this.workers = ownedWorkers;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger numThreads = new AtomicInteger();
+
+        WorkerThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName(name + " worker " + numThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Creates a new {@link SimpleScheduler} whose triggers are handled by this timer. Other than regular
+     * {@link SimpleScheduler}s, the returned scheduler does not run a thread; {@link SimpleScheduler#start()} only
+     * activates it.
+     *
+     * @param name name to identify the scheduler in logs
+     * @return new scheduler handled by this timer
+     */
+    public SimpleScheduler createScheduler(String name) {
+        return new SharedTimerScheduler(name, this);
+    }
+
+    /**
+     * Registers the given action to be dispatched to the workers at the given time.
+     *
+     * @param action   action to run
+     * @param deadline time to run action at
+     * @return registered trigger, can be cancelled; {@code null} if the timer has been shut down
+     */
+    Timeout schedule(Runnable action, Instant deadline) {
+        if (shouldShutdown.get()) {
+            LOGGER.debug("timer {} has been shut down, ignoring new trigger", name);
+            return null;
+        }
+
+        long delayNanos;
+        try {
+            delayNanos = Math.max(0, Math.min(MAX_DELAY_NANOS, Duration.between(Instant.now(), deadline).toNanos()));
+        } catch (ArithmeticException ex) {
+            delayNanos = MAX_DELAY_NANOS;
+        }
+
+        Timeout timeout = new Timeout(action, elapsedNanos() + delayNanos);
+        numTimeouts.incrementAndGet();
+        pendingTimeouts.add(timeout);
+
+        synchronized (wakeUp) {
+            wakeUp.notifyAll();
+        }
+
+        return timeout;
+    }
+
+    private long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Starts the timer thread.
+     */
+    public void start() {
+        Thread thread = new Thread(this);
+        if (!timerThread.compareAndSet(null, thread)) {
+            LOGGER.warn("timer {} was attempted to be started twice", name);
+            return;
+        }
+
+        thread.setName(name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        LOGGER.debug("timer {} started", name);
+
+        synchronized (wakeUp) {
+            currentTick = elapsedNanos() / tickNanos;
+
+            while (!shouldShutdown.get()) {
+                numWakeUps.incrementAndGet();
+                long nowTick = elapsedNanos() / tickNanos;
+
+                if (numTimeouts.get() == 0) {
+                    // nothing to track; skip all ticks passed while idle
+                    currentTick = nowTick;
+                    try {
+                        wakeUp.wait();
+                    } catch (InterruptedException ex) {
+                        LOGGER.warn("timer {} got interrupted, shutting down", name, ex);
+                        break;
+                    }
+                    continue;
+                }
+
+                transferPendingTimeouts();
+                expireUntil(nowTick);
+
+                long nextTick = findNextDeadlineTick();
+                try {
+                    if (nextTick == Long.MAX_VALUE) {
+                        // remaining timeouts have just been scheduled and will notify us
+                        wakeUp.wait();
+                    } else {
+                        long sleepNanos = (nextTick * tickNanos) - elapsedNanos();
+                        if (sleepNanos > 0) {
+                            TimeUnit.NANOSECONDS.timedWait(wakeUp, sleepNanos);
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    LOGGER.warn("timer {} got interrupted, shutting down", name, ex);
+                    break;
+                }
+            }
+        }
+
+        LOGGER.debug("timer {} terminated", name);
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+
+            // round up so actions are never dispatched before their deadline
+            long deadlineTick = (timeout.deadlineNanos + tickNanos - 1) / tickNanos;
+            timeout.deadlineTick = Math.max(deadlineTick, currentTick);
+
+            wheel.get((int) (timeout.deadlineTick & wheelMask)).add(timeout);
+        }
+    }
+
+    /**
+     * Dispatches all timeouts due up to the given tick. All ticks since the last call are processed but each bucket
+     * needs to be checked at most once, no matter how long the timer has been sleeping.
+     *
+     * @param nowTick current tick
+     */
+    private void expireUntil(long nowTick) {
+        long lastTick = Math.min(nowTick, currentTick + wheel.size() - 1);
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            expire(wheel.get((int) (tick & wheelMask)), nowTick);
+        }
+
+        currentTick = Math.max(currentTick, nowTick + 1);
+    }
+
+    private void expire(Bucket bucket, long nowTick) {
+        List<Timeout> due = null;
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+
+            if (timeout.deadlineTick <= nowTick) {
+                bucket.remove(timeout);
+                timeout.dispatched = true;
+                numTimeouts.decrementAndGet();
+                if (due == null) {
+                    due = new ArrayList<>();
+                }
+                due.add(timeout);
+            }
+
+            timeout = next;
+        }
+
+        if (due == null) {
+            return;
+        }
+
+        // executors may run actions directly, cancelling other timeouts of the same bucket
+        for (Timeout dueTimeout : due) {
+            dispatch(dueTimeout);
+        }
+    }
+
+    /**
+     * Finds the tick the earliest registered timeout is due at. Buckets are checked in order of their next tick, so
+     * the search usually ends at the first occupied bucket.
+     *
+     * @return tick of earliest deadline; {@link Long#MAX_VALUE} if no timeouts are on the wheel
+     */
+    private long findNextDeadlineTick() {
+        long earliest = Long.MAX_VALUE;
+        for (long tick = currentTick; tick < currentTick + wheel.size(); tick++) {
+            for (Timeout timeout = wheel.get((int) (tick & wheelMask)).head; timeout != null; timeout = timeout.next) {
+                if (timeout.deadlineTick == tick) {
+                    return tick;
+                }
+
+                earliest = Math.min(earliest, timeout.deadlineTick);
+            }
+        }
+
+        return earliest;
+    }
+
+    private void dispatch(Timeout timeout) {
+        try {
+            workers.execute(timeout.action);
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("timer {} failed to dispatch action", name, ex);
+        }
+    }
+
+    /**
+     * Stops the timer and waits until complete or the given timeout expires. Pending triggers will no longer be
+     * dispatched. The dedicated worker pool, if any, is shut down as well, waiting for running actions to finish.
+     *
+     * @param timeout maximum time to wait for shutdown to complete
+     * @return {@code true} if shutdown completed within the timeout, {@code false} if threads may still be running
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdownAndWait(Duration timeout) throws InterruptedException {
+        Instant startOfShutdown = Instant.now();
+
+        LOGGER.debug("shutting down timer {}", name);
+        shouldShutdown.set(true);
+
+        synchronized (wakeUp) {
+            wakeUp.notifyAll();
+        }
+
+        Thread thread = timerThread.get();
+        if (thread != null) {
+            thread.join(timeout.toMillis());
+            if (thread.isAlive()) {
+                LOGGER.warn("timer {} is still running after {}", name, timeout);
+                return false;
+            }
+        }
+
+        if (ownedWorkers != null) {
+            Duration timeoutRemaining = timeout.minus(Duration.between(startOfShutdown, Instant.now()));
+            ownedWorkers.shutdown();
+            return ownedWorkers.awaitTermination(Math.max(0, timeoutRemaining.toMillis()), TimeUnit.MILLISECONDS);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of currently registered triggers which have neither been cancelled nor dispatched yet.
+     *
+     * @return number of registered triggers
+     */
+    public int getNumPendingTriggers() {
+        return numTimeouts.get();
+    }
+
+    long getNumWakeUps() {
+        return numWakeUps.get();
+    }
+}
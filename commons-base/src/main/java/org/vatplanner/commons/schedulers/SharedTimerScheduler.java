@@ -0,0 +1,152 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SimpleScheduler} handled by a {@link SharedTimer} instead of a dedicated thread.
+ * <p>
+ * The next trigger time is registered with the {@link SharedTimer} whenever it changes. Triggers are run on the
+ * timer's workers; only one trigger of the same scheduler runs at a time. The thread this class formally extends is
+ * never started.
+ * </p>
+ */
+class SharedTimerScheduler extends SimpleScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedTimerScheduler.class);
+
+    private final SharedTimer timer;
+
+    private final Object lock = new Object();
+    private boolean started;
+    private boolean running;
+    private SharedTimer.Timeout timeout;
+    private long generation;
+
+    SharedTimerScheduler(String name, SharedTimer timer) {
+        super(name);
+        this.timer = timer;
+    }
+
+    /**
+     * Activates the scheduler. No thread is started; triggers will be run by the {@link SharedTimer}'s workers.
+     */
+    @Override
+    public void start() {
+        synchronized (lock) {
+            if (started) {
+                throw new IllegalThreadStateException("scheduler " + getName() + " has already been started");
+            }
+
+            started = true;
+        }
+
+        onNextTriggerChanged();
+    }
+
+    /**
+     * Does nothing; triggers are run by the {@link SharedTimer}.
+     */
+    @Override
+    public void run() {
+        LOGGER.warn("scheduler {} is handled by a shared timer and cannot be run directly", getName());
+    }
+
+    @Override
+    void onNextTriggerChanged() {
+        synchronized (lock) {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+                generation++;
+            }
+
+            if (!started || running || isShutdown() || !isEnabled()) {
+                // running triggers register the next trigger when finished
+                return;
+            }
+
+            Instant nextTrigger = getNextTrigger();
+            if (nextTrigger.equals(Instant.MAX)) {
+                return;
+            }
+
+            register(nextTrigger);
+        }
+    }
+
+    /**
+     * Registers the next trigger with the timer. Must be called while holding {@link #lock}.
+     *
+     * @param nextTrigger time to trigger at
+     */
+    private void register(Instant nextTrigger) {
+        // actions of outdated timeouts may already have been dispatched, so they need to be told apart
+        long currentGeneration = ++generation;
+        timeout = timer.schedule(() -> onTimeout(currentGeneration), nextTrigger);
+    }
+
+    private void onTimeout(long timeoutGeneration) {
+        synchronized (lock) {
+            if ((timeoutGeneration != generation) || running || isShutdown() || !isEnabled()) {
+                return;
+            }
+
+            Instant nextTrigger = getNextTrigger();
+            if (Instant.now().isBefore(nextTrigger)) {
+                // trigger has been postponed or clocks drifted
+                if (!nextTrigger.equals(Instant.MAX)) {
+                    register(nextTrigger);
+                }
+                return;
+            }
+
+            timeout = null;
+            running = true;
+        }
+
+        try {
+            fire();
+        } finally {
+            synchronized (lock) {
+                running = false;
+                lock.notifyAll();
+            }
+
+            onNextTriggerChanged();
+        }
+    }
+
+    /**
+     * Shuts the scheduler down, so it will no longer be triggered, and waits for a currently running trigger to
+     * finish within the specified timeout.
+     *
+     * @param timeout maximum time to block waiting for a running trigger to finish
+     * @return {@code true} if no trigger is running anymore, {@code false} if a trigger is still running
+     */
+    @Override
+    public boolean shutdownAndJoin(Duration timeout) {
+        super.shutdownAndJoin(timeout);
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (lock) {
+            while (running) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+
+                try {
+                    lock.wait(remainingMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
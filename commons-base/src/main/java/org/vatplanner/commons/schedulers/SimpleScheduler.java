@@ -5,23 +5,34 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * An easy-to-use scheduler that checks for trigger events at fixed intervals and reschedules tasks depending on whether
- * execution has succeeded or failed.
+ * An easy-to-use scheduler that triggers an action at a given time and reschedules it depending on whether execution
+ * has succeeded or failed.
+ * <p>
+ * The scheduler thread sleeps until the next trigger is due and is woken up early if the trigger time changes or the
+ * scheduler gets enabled. An additional check interval can be set as a safety net, see
+ * {@link #setCheckIntervalMillis(Duration)}.
+ * </p>
+ * <p>
+ * Each instance runs a dedicated thread. Applications using many schedulers can create them through a
+ * {@link SharedTimer} instead, which handles all of its schedulers on a constant number of threads.
+ * </p>
  */
 public class SimpleScheduler extends Thread {
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleScheduler.class);
 
     private final String name;
-    private final AtomicLong checkIntervalMillis = new AtomicLong(Duration.ofSeconds(30).toMillis());
+    private final AtomicLong checkIntervalMillis = new AtomicLong(0);
     private final AtomicReference<Duration> repeatInterval = new AtomicReference<>(null);
     private final AtomicReference<Duration> retryInterval = new AtomicReference<>(null);
 
@@ -31,8 +42,13 @@ public class SimpleScheduler extends Thread {
 
     private final AtomicReference<Runnable> triggerAction = new AtomicReference<>();
     private final AtomicReference<Consumer<Exception>> exceptionHandler = new AtomicReference<>();
+    private final AtomicReference<TriggerCoalescer> triggerCoalescer = new AtomicReference<>();
+    private final SchedulerMetrics metrics = new SchedulerMetrics(this::countWaitingDueTriggers);
 
     private final Object checkTrigger = new Object();
+    private boolean hasTriggerChanged;
+
+    private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     /**
      * Creates a scheduler identifying in logs by the given name.
@@ -51,45 +67,41 @@ public class SimpleScheduler extends Thread {
         while (!shutdown.get()) {
             LOGGER.trace("Scheduler for \"{}\" woke up", name);
 
+            synchronized (checkTrigger) {
+                // changes from now on need to interrupt the wait below
+                hasTriggerChanged = false;
+            }
+
+            long waitNanos = Long.MAX_VALUE;
             if (!enabled.get()) {
                 LOGGER.debug("Scheduler for \"{}\" is disabled, not triggering", name);
-            } else if (Instant.now().isAfter(nextTrigger.get())) {
-                LOGGER.debug("Triggering \"{}\"", name);
-
-                nextTrigger.set(Instant.MAX);
-                Duration delay = null;
-
-                Runnable action = triggerAction.get();
-                if (action == null) {
-                    LOGGER.warn("No action set for scheduler \"{}\"", name);
-                } else {
-                    try {
-                        action.run();
-                    } catch (Exception ex) {
-                        LOGGER.warn("Trigger for \"{}\" failed", name, ex);
-                        Consumer<Exception> handler = exceptionHandler.get();
-                        if (handler != null) {
-                            try {
-                                handler.accept(ex);
-                            } catch (Exception ex2) {
-                                LOGGER.warn("Exception handler for \"{}\" failed", name, ex2);
-                            }
-                        }
-
-                        delay = retryInterval.get();
-                    }
+            } else {
+                Instant now = Instant.now();
+                Instant trigger = nextTrigger.get();
+                if (!now.isBefore(trigger)) {
+                    fire();
+                    continue;
                 }
 
-                delay = min(delay, repeatInterval.get()).orElse(null);
-                if (delay != null) {
-                    setNextTriggerIfEarlier(delay);
-                }
+                waitNanos = nanosBetween(now, trigger);
+            }
+
+            long checkInterval = checkIntervalMillis.get();
+            if (checkInterval > 0) {
+                waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(checkInterval));
             }
 
             try {
+                if (waitNanos < MIN_WAIT_NANOS) {
+                    // monitors only wait for full milliseconds
+                    LockSupport.parkNanos(waitNanos);
+                    continue;
+                }
+
                 synchronized (checkTrigger) {
-                    if (!shutdown.get()) {
-                        checkTrigger.wait(checkIntervalMillis.get());
+                    if (!shutdown.get() && !hasTriggerChanged) {
+                        LOGGER.trace("Scheduler for \"{}\" waits for {}ns", name, waitNanos);
+                        checkTrigger.wait((waitNanos == Long.MAX_VALUE) ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos));
                     }
                 }
             } catch (InterruptedException ex) {
@@ -101,14 +113,106 @@ public class SimpleScheduler extends Thread {
     }
 
     /**
-     * Sets the interval at which the scheduler wakes up to check for due tasks.
+     * Runs the trigger action and schedules the next trigger according to the outcome.
+     */
+    void fire() {
+        LOGGER.debug("Triggering \"{}\"", name);
+
+        Instant scheduledTime;
+        TriggerCoalescer coalescer = triggerCoalescer.get();
+        if (coalescer == null) {
+            scheduledTime = nextTrigger.getAndSet(Instant.MAX);
+        } else {
+            // requests coalesced by policy must not interleave with the reset
+            synchronized (coalescer) {
+                scheduledTime = nextTrigger.getAndSet(Instant.MAX);
+                coalescer.onRunStarted(Instant.now());
+            }
+        }
+
+        Duration delay = null;
+
+        Runnable action = triggerAction.get();
+        if (action == null) {
+            LOGGER.warn("No action set for scheduler \"{}\"", name);
+        } else {
+            metrics.onTaskStarted(name, scheduledTime, Instant.now());
+            long startNanos = System.nanoTime();
+            Exception failure = null;
+            try {
+                action.run();
+            } catch (Exception ex) {
+                failure = ex;
+                LOGGER.warn("Trigger for \"{}\" failed", name, ex);
+                Consumer<Exception> handler = exceptionHandler.get();
+                if (handler != null) {
+                    try {
+                        handler.accept(ex);
+                    } catch (Exception ex2) {
+                        LOGGER.warn("Exception handler for \"{}\" failed", name, ex2);
+                    }
+                }
+
+                delay = retryInterval.get();
+            }
+            metrics.onTaskFinished(name, Duration.ofNanos(System.nanoTime() - startNanos), failure);
+        }
+
+        delay = min(delay, repeatInterval.get()).orElse(null);
+        if (delay != null) {
+            advanceNextTrigger(Instant.now().plus(delay));
+        }
+    }
+
+    private static long nanosBetween(Instant start, Instant end) {
+        try {
+            return Duration.between(start, end).toNanos();
+        } catch (ArithmeticException ex) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Called whenever the time of the next trigger or the enabled state may have changed. Wakes up the scheduler
+     * thread to re-evaluate the time to wait for.
+     */
+    void onNextTriggerChanged() {
+        synchronized (checkTrigger) {
+            hasTriggerChanged = true;
+            checkTrigger.notifyAll();
+        }
+    }
+
+    private int countWaitingDueTriggers() {
+        return (enabled.get() && !Instant.now().isBefore(nextTrigger.get())) ? 1 : 0;
+    }
+
+    Instant getNextTrigger() {
+        return nextTrigger.get();
+    }
+
+    boolean isEnabled() {
+        return enabled.get();
+    }
+
+    boolean isShutdown() {
+        return shutdown.get();
+    }
+
+    /**
+     * Sets an additional interval at which the scheduler wakes up to check for due tasks.
+     * <p>
+     * The scheduler already wakes up exactly when the next trigger is due or its time is changed, so the check
+     * interval is only a safety net, e.g. against large jumps of the system clock. It is disabled by default.
+     * </p>
      *
-     * @param checkInterval new interval at which to check for tasks
+     * @param checkInterval new interval at which to check for tasks; {@code null} or zero to disable
      * @return same instance for method-chaining
      */
     public SimpleScheduler setCheckIntervalMillis(Duration checkInterval) {
         LOGGER.debug("Setting \"{}\" check interval to {}", name, checkInterval);
-        checkIntervalMillis.set(checkInterval.toMillis());
+        checkIntervalMillis.set((checkInterval != null) ? Math.max(0, checkInterval.toMillis()) : 0);
+        onNextTriggerChanged();
         return this;
     }
 
@@ -121,6 +225,7 @@ public class SimpleScheduler extends Thread {
     public SimpleScheduler setNextTrigger(Instant nextTrigger) {
         LOGGER.debug("Setting \"{}\" trigger time to {}", name, nextTrigger);
         this.nextTrigger.set(nextTrigger);
+        onNextTriggerChanged();
         return this;
     }
 
@@ -192,19 +297,100 @@ public class SimpleScheduler extends Thread {
         return this;
     }
 
+    /**
+     * Sets a listener to be informed about started and finished triggers. Events are reported under the name of
+     * this scheduler. Listeners are called from the thread running the trigger action.
+     *
+     * @param listener receives trigger events; {@code null} to remove a previously set listener
+     * @return same instance for method-chaining
+     * @see #getMetrics()
+     */
+    public SimpleScheduler setListener(SchedulerListener listener) {
+        metrics.setListener(listener);
+        return this;
+    }
+
+    /**
+     * Returns a snapshot of execution metrics recorded since the scheduler has been created. The action is recorded
+     * under the name of this scheduler; the queue depth is 1 while a trigger is due but has not been run yet.
+     *
+     * @return current execution metrics
+     */
+    public SchedulerMetrics.Snapshot getMetrics() {
+        return metrics.getSnapshot();
+    }
+
+    /**
+     * Sets the policy to coalesce requests made through {@link #setNextTriggerIfEarlier(Instant)} with.
+     * <p>
+     * Without a policy, each request moves the next trigger to the requested time if earlier, so frequent requests
+     * result in back-to-back executions. A {@link TriggerPolicy} debounces and/or throttles requests instead, so a
+     * burst of requests can be collapsed into one or two executions. Requested times in the past count as requests
+     * made now. {@link #setNextTrigger(Instant)}, repetitions and retries are not affected. Any execution covers all
+     * requests received until it started.
+     * </p>
+     *
+     * @param policy policy to apply to requests; {@code null} to remove a previously set policy
+     * @return same instance for method-chaining
+     */
+    public SimpleScheduler setTriggerPolicy(TriggerPolicy policy) {
+        LOGGER.debug("Setting \"{}\" trigger policy to {}", name, policy);
+        triggerCoalescer.set((policy != null) ? new TriggerCoalescer(policy) : null);
+        return this;
+    }
+
     /**
      * Schedules next trigger for the given or existing time, whichever would be earlier.
+     * <p>
+     * If a {@link TriggerPolicy} has been set, the next trigger is instead determined by that policy, see
+     * {@link #setTriggerPolicy(TriggerPolicy)}.
+     * </p>
      *
      * @param nextTrigger next time to trigger (if earlier than already set trigger)
-     * @return {@code true} if the given timestamp will be the next trigger time, {@code false} if there already is an earlier trigger pending
+     * @return {@code true} if the next trigger time has been set according to this request, {@code false} if there already is an earlier trigger pending or the request has been dropped by the policy
      */
     public boolean setNextTriggerIfEarlier(Instant nextTrigger) {
+        TriggerCoalescer coalescer = triggerCoalescer.get();
+        if (coalescer == null) {
+            return advanceNextTrigger(nextTrigger);
+        }
+
+        synchronized (coalescer) {
+            Instant now = Instant.now();
+            Instant previousTrigger = this.nextTrigger.get();
+            boolean isPreviousFromPolicy = previousTrigger.equals(coalescer.getPendingTime());
+
+            Instant time = coalescer.onTrigger(nextTrigger.isAfter(now) ? nextTrigger : now);
+            if (time == null) {
+                LOGGER.debug("Request to trigger \"{}\" is dropped by policy", name);
+                return false;
+            }
+
+            if (!isPreviousFromPolicy && previousTrigger.isBefore(time)) {
+                // an earlier trigger has been set independently and will cover this request
+                return false;
+            }
+
+            LOGGER.debug("Setting \"{}\" trigger time to {} by policy", name, time);
+            this.nextTrigger.set(time);
+        }
+
+        onNextTriggerChanged();
+        return true;
+    }
+
+    private boolean advanceNextTrigger(Instant nextTrigger) {
         LOGGER.debug("Setting \"{}\" trigger time to {} if earlier (conditional)", name, nextTrigger);
 
         Instant effectiveTrigger = this.nextTrigger.updateAndGet(oldTrigger -> nextTrigger.isBefore(oldTrigger) ? nextTrigger : oldTrigger);
         LOGGER.debug("Trigger time for \"{}\" is {}", name, effectiveTrigger);
 
-        return effectiveTrigger.equals(nextTrigger);
+        boolean isEarlier = effectiveTrigger.equals(nextTrigger);
+        if (isEarlier) {
+            onNextTriggerChanged();
+        }
+
+        return isEarlier;
     }
 
     /**
@@ -212,6 +398,7 @@ public class SimpleScheduler extends Thread {
      *
      * @param delay delay until next time to trigger (if earlier than already set trigger)
      * @return {@code true} if the given delay will be used for next trigger time, {@code false} if there already is an earlier trigger pending
+     * @see #setNextTriggerIfEarlier(Instant)
      */
     public boolean setNextTriggerIfEarlier(Duration delay) {
         return setNextTriggerIfEarlier(Instant.now().plus(delay));
@@ -226,10 +413,7 @@ public class SimpleScheduler extends Thread {
     public boolean shutdownAndJoin(Duration timeout) {
         LOGGER.debug("Shutting down \"{}\"", name);
         shutdown.set(true);
-
-        synchronized (checkTrigger) {
-            checkTrigger.notifyAll();
-        }
+        onNextTriggerChanged();
 
         if (isAlive()) {
             try {
@@ -254,6 +438,8 @@ public class SimpleScheduler extends Thread {
 
         LOGGER.info("Scheduler \"{}\" is now {}", name, enabled ? "enabled" : "disabled");
 
+        onNextTriggerChanged();
+
         return this;
     }
 
@@ -0,0 +1,106 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Applies a {@link TriggerPolicy} to the triggers of a single task, determining when the next execution should run.
+ * <p>
+ * Schedulers report each trigger through {@link #onTrigger(Instant)} and each started execution through
+ * {@link #onRunStarted(Instant)}. All triggers received before an execution starts are considered to be covered by it.
+ * </p>
+ */
+class TriggerCoalescer {
+    private final TriggerPolicy policy;
+
+    private Instant lastTrigger;
+    private Instant lastRun;
+    private Instant pendingSince;
+    private Instant pendingTime;
+
+    TriggerCoalescer(TriggerPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Records a trigger and returns the time the execution covering it should be run at.
+     *
+     * @param now time of trigger
+     * @return time to run the pending execution at; {@code null} if the trigger is dropped
+     */
+    synchronized Instant onTrigger(Instant now) {
+        boolean isNewBurst = (lastTrigger == null) || !now.isBefore(lastTrigger.plus(policy.getQuietPeriod()));
+        if ((lastTrigger == null) || now.isAfter(lastTrigger)) {
+            lastTrigger = now;
+        }
+
+        if (pendingTime != null) {
+            if (pendingSince == null) {
+                // leading execution has not started yet and already covers this trigger
+                return pendingTime;
+            }
+
+            pendingTime = getTrailingTime(now);
+            return pendingTime;
+        }
+
+        Instant earliest = getEarliestRun(now);
+
+        if (policy.isLeadingEdge() && isNewBurst) {
+            pendingTime = earliest;
+            return pendingTime;
+        }
+
+        if (!policy.isTrailingEdge()) {
+            return null;
+        }
+
+        pendingSince = now;
+        pendingTime = getTrailingTime(now);
+        return pendingTime;
+    }
+
+    private Instant getEarliestRun(Instant now) {
+        if (lastRun == null) {
+            return now;
+        }
+
+        Instant earliest = lastRun.plus(policy.getMinSpacing());
+        return earliest.isAfter(now) ? earliest : now;
+    }
+
+    private Instant getTrailingTime(Instant now) {
+        Instant time = now.plus(policy.getQuietPeriod());
+
+        Duration maxDelay = policy.getMaxDelay();
+        if (maxDelay != null) {
+            Instant latest = pendingSince.plus(maxDelay);
+            if (latest.isBefore(time)) {
+                time = latest;
+            }
+        }
+
+        Instant earliest = getEarliestRun(now);
+        return earliest.isAfter(time) ? earliest : time;
+    }
+
+    /**
+     * Records the start of an execution which covers all previously received triggers.
+     *
+     * @param now time the execution started at
+     */
+    synchronized void onRunStarted(Instant now) {
+        lastRun = now;
+        pendingSince = null;
+        pendingTime = null;
+    }
+
+    /**
+     * Returns the time of the currently pending execution as last returned by {@link #onTrigger(Instant)}.
+     *
+     * @return time of pending execution; {@code null} if no execution is pending
+     */
+    synchronized Instant getPendingTime() {
+        return pendingTime;
+    }
+}
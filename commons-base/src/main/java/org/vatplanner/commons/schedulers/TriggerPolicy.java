@@ -0,0 +1,219 @@
+package org.vatplanner.commons.schedulers;
+
+import java.time.Duration;
+
+/**
+ * Describes how bursts of triggers are coalesced into fewer executions (debouncing and throttling).
+ * <p>
+ * Triggers arriving less than the {@link Builder#setQuietPeriod(Duration) quiet period} apart form a burst. Depending
+ * on the enabled edges, an execution is run at the start of a burst (leading edge) and/or once the burst has calmed
+ * down (trailing edge). The trailing execution is postponed by each further trigger but no longer than the
+ * {@link Builder#setMaxDelay(Duration) maximum delay} after the first trigger it covers. Independent of bursts,
+ * consecutive executions are always started at least the {@link Builder#setMinSpacing(Duration) minimum spacing}
+ * apart.
+ * </p>
+ * <p>
+ * Common configurations are available through {@link #debounce(Duration, Duration)} and {@link #throttle(Duration)}.
+ * </p>
+ */
+public class TriggerPolicy {
+    private final Duration minSpacing;
+    private final Duration quietPeriod;
+    private final Duration maxDelay;
+    private final boolean leadingEdge;
+    private final boolean trailingEdge;
+
+    private TriggerPolicy(Duration minSpacing, Duration quietPeriod, Duration maxDelay, boolean leadingEdge, boolean trailingEdge) {
+        this.minSpacing = minSpacing;
+        this.quietPeriod = quietPeriod;
+        this.maxDelay = maxDelay;
+        this.leadingEdge = leadingEdge;
+        this.trailingEdge = trailingEdge;
+    }
+
+    /**
+     * Creates a policy running a single execution once no further triggers have been received for the given quiet
+     * period (trailing edge only).
+     *
+     * @param quietPeriod time without triggers before running
+     * @param maxDelay    maximum time to postpone execution after the first coalesced trigger; {@code null} for no limit
+     * @return debouncing policy
+     */
+    public static TriggerPolicy debounce(Duration quietPeriod, Duration maxDelay) {
+        return builder().setQuietPeriod(quietPeriod)
+                        .setMaxDelay(maxDelay)
+                        .build();
+    }
+
+    /**
+     * Creates a policy running at most one execution per given interval. The first trigger runs immediately, further
+     * triggers within the interval are coalesced into one execution at the end of the interval (leading and trailing
+     * edge).
+     *
+     * @param minSpacing minimum time between the start of consecutive executions
+     * @return throttling policy
+     */
+    public static TriggerPolicy throttle(Duration minSpacing) {
+        return builder().setMinSpacing(minSpacing)
+                        .setLeadingEdge(true)
+                        .build();
+    }
+
+    /**
+     * Returns the minimum time between the start of consecutive executions.
+     *
+     * @return minimum spacing of executions
+     */
+    public Duration getMinSpacing() {
+        return minSpacing;
+    }
+
+    /**
+     * Returns the time without further triggers after which a burst is considered to have ended.
+     *
+     * @return quiet period ending a burst
+     */
+    public Duration getQuietPeriod() {
+        return quietPeriod;
+    }
+
+    /**
+     * Returns the maximum time a trailing execution is postponed after the first trigger it covers.
+     *
+     * @return maximum delay; {@code null} if unlimited
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Indicates whether an execution is run at the start of a burst.
+     *
+     * @return {@code true} if the leading edge is enabled
+     */
+    public boolean isLeadingEdge() {
+        return leadingEdge;
+    }
+
+    /**
+     * Indicates whether an execution is run after a burst for triggers not covered by an earlier execution.
+     *
+     * @return {@code true} if the trailing edge is enabled
+     */
+    public boolean isTrailingEdge() {
+        return trailingEdge;
+    }
+
+    /**
+     * Creates a new {@link Builder} instance.
+     *
+     * @return new {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String toString() {
+        return "TriggerPolicy(minSpacing=" + minSpacing
+            + ", quietPeriod=" + quietPeriod
+            + ", maxDelay=" + maxDelay
+            + ", leadingEdge=" + leadingEdge
+            + ", trailingEdge=" + trailingEdge
+            + ")";
+    }
+
+    /**
+     * Builder for constructing {@link TriggerPolicy} instances. Defaults to trailing edge only without any delays.
+     */
+    public static class Builder {
+        private Duration minSpacing = Duration.ZERO;
+        private Duration quietPeriod = Duration.ZERO;
+        private Duration maxDelay;
+        private boolean leadingEdge;
+        private boolean trailingEdge = true;
+
+        /**
+         * Sets the minimum time between the start of consecutive executions. Defaults to zero.
+         *
+         * @param minSpacing minimum spacing of executions
+         * @return same instance for method-chaining
+         */
+        public Builder setMinSpacing(Duration minSpacing) {
+            this.minSpacing = minSpacing;
+            return this;
+        }
+
+        /**
+         * Sets the time without further triggers after which a burst is considered to have ended. Defaults to zero.
+         *
+         * @param quietPeriod quiet period ending a burst
+         * @return same instance for method-chaining
+         */
+        public Builder setQuietPeriod(Duration quietPeriod) {
+            this.quietPeriod = quietPeriod;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time a trailing execution is postponed after the first trigger it covers. The minimum
+         * spacing still applies. Unlimited by default.
+         *
+         * @param maxDelay maximum delay; {@code null} for no limit
+         * @return same instance for method-chaining
+         */
+        public Builder setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets whether an execution is run at the start of a burst. Disabled by default.
+         *
+         * @param leadingEdge {@code true} to enable the leading edge
+         * @return same instance for method-chaining
+         */
+        public Builder setLeadingEdge(boolean leadingEdge) {
+            this.leadingEdge = leadingEdge;
+            return this;
+        }
+
+        /**
+         * Sets whether an execution is run after a burst for triggers not covered by an earlier execution. Enabled
+         * by default.
+         *
+         * @param trailingEdge {@code true} to enable the trailing edge
+         * @return same instance for method-chaining
+         */
+        public Builder setTrailingEdge(boolean trailingEdge) {
+            this.trailingEdge = trailingEdge;
+            return this;
+        }
+
+        /**
+         * Constructs a {@link TriggerPolicy} instance from given configuration.
+         *
+         * @return {@link TriggerPolicy} instance from given configuration
+         * @throws IllegalArgumentException if a duration is negative or both edges are disabled
+         */
+        public TriggerPolicy build() {
+            if ((minSpacing == null) || minSpacing.isNegative()) {
+                throw new IllegalArgumentException("minimum spacing must not be negative");
+            }
+
+            if ((quietPeriod == null) || quietPeriod.isNegative()) {
+                throw new IllegalArgumentException("quiet period must not be negative");
+            }
+
+            if ((maxDelay != null) && maxDelay.isNegative()) {
+                throw new IllegalArgumentException("maximum delay must not be negative");
+            }
+
+            if (!leadingEdge && !trailingEdge) {
+                throw new IllegalArgumentException("at least one edge must be enabled");
+            }
+
+            return new TriggerPolicy(minSpacing, quietPeriod, maxDelay, leadingEdge, trailingEdge);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.vatplanner.commons.utils;
+
+/**
+ * A source of monotonic time measured in nanoseconds.
+ * <p>
+ * Values returned by a {@link Ticker} only have a meaning relative to each other; they are not related to wall-clock
+ * time and thus are not affected by adjustments of the system clock. Differences must be calculated by subtraction
+ * (not comparison) to account for numerical overflow.
+ * </p>
+ */
+@FunctionalInterface
+public interface Ticker {
+    /**
+     * {@link Ticker} based on {@link System#nanoTime()}.
+     */
+    Ticker SYSTEM = System::nanoTime;
+
+    /**
+     * Returns the current time in nanoseconds relative to an arbitrary but fixed origin.
+     *
+     * @return current time in nanoseconds
+     */
+    long read();
+}
@@ -0,0 +1,129 @@
+package org.vatplanner.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLRUCacheTest {
+    @Test
+    void testPut_maxEntriesExceededAfterManyReads_leastRecentlyReadEntryIsRemoved() {
+        // arrange
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<String, Integer>().setMaxEntries(3);
+
+        cache.put("m", 200);
+        cache.put("z", 1);
+        cache.put("a", 500);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("m");
+            cache.get("a");
+        }
+
+        // act
+        cache.put("n", 100);
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.get("m")).describedAs("frequently read entry (should be kept)")
+                                            .isEqualTo(200),
+
+            () -> assertThat(cache.get("z")).describedAs("least recently read entry (should be removed)")
+                                            .isNull(),
+
+            () -> assertThat(cache.get("a")).describedAs("frequently read entry (should be kept)")
+                                            .isEqualTo(500),
+
+            () -> assertThat(cache.get("n")).describedAs("most recent entry (should be kept)")
+                                            .isEqualTo(100)
+        );
+    }
+
+    @Test
+    void testGet_notReplayedYet_keepsTimeOfLastUsage() {
+        // arrange
+        AtomicLong mockNow = new AtomicLong(Duration.ofDays(1).toNanos());
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(mockNow::get);
+        cache.put("a", 1);
+        long timeOfInsertion = mockNow.get();
+        mockNow.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        // act
+        cache.get("a");
+
+        // assert
+        assertThat(cache.map.get("a").lastUsed).isEqualTo(timeOfInsertion);
+    }
+
+    @Test
+    void testMaintain_readEldestEntry_evictsExpiredEntriesBehindIt() {
+        // arrange
+        AtomicLong mockNow = new AtomicLong(Duration.ofDays(1).toNanos());
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<String, Integer>(mockNow::get).setUsageExpiration(Duration.ofSeconds(10));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        mockNow.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.get("a");
+        mockNow.addAndGet(Duration.ofSeconds(6).toNanos());
+
+        // act
+        cache.maintain();
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.map).describedAs("b expired").doesNotContainKey("b"),
+            () -> assertThat(cache.map.get("a").lastUsed).describedAs("a replayed").isEqualTo(mockNow.get())
+        );
+    }
+
+    @Test
+    void testGet_concurrentReadersAndWriters_neverExceedsMaxEntries() throws Exception {
+        // arrange
+        int maxEntries = 50;
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<Integer, Integer>().setMaxEntries(maxEntries);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // act
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int key = (i * 7 + offset) % 200;
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else if (value != key) {
+                        throw new IllegalStateException("unexpected value " + value + " for key " + key);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        cache.maintain();
+
+        // assert
+        int numRemaining = 0;
+        for (int key = 0; key < 200; key++) {
+            if (cache.get(key) != null) {
+                numRemaining++;
+            }
+        }
+        assertThat(numRemaining).isEqualTo(maxEntries);
+    }
+}
@@ -1,22 +1,59 @@
 package org.vatplanner.commons;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.junit.jupiter.api.Assertions.assertAll;
-
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.concurrent.atomic.AtomicReference;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.vatplanner.commons.schedulers.SimpleScheduler;
 
 class LRUCacheTest {
     private static class LRUCacheMock<K, V> extends LRUCache<K, V> {
-        static final Instant REFERENCE_TIME = Instant.parse("2024-01-01T12:00:00Z");
-        final AtomicReference<Instant> mockNow = new AtomicReference<>(REFERENCE_TIME);
+        static final long REFERENCE_TIME = Duration.ofDays(1).toNanos();
+        final AtomicLong mockNow;
+
+        LRUCacheMock() {
+            this(new AtomicLong(REFERENCE_TIME));
+        }
+
+        private LRUCacheMock(AtomicLong mockNow) {
+            super(mockNow::get);
+            this.mockNow = mockNow;
+        }
 
         LRUCacheMock<K, V> atSecondsBeforeMockReferenceTime(int seconds) {
-            mockNow.set(REFERENCE_TIME.minus(Duration.ofSeconds(seconds)));
+            mockNow.set(REFERENCE_TIME - Duration.ofSeconds(seconds).toNanos());
             return this;
         }
 
@@ -24,11 +61,6 @@ class LRUCacheTest {
             mockNow.set(REFERENCE_TIME);
             return this;
         }
-
-        @Override
-        Instant now() {
-            return mockNow.get();
-        }
     }
 
     @Nested
@@ -119,6 +151,224 @@ class LRUCacheTest {
             );
         }
 
+        @Test
+        void testEvictEldest_afterUsage_removesLeastRecentlyUsedEntry() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.get("a");
+
+            // act
+            boolean result = cache.evictEldest();
+
+            // assert
+            assertAll(
+                () -> assertThat(result).describedAs("result").isTrue(),
+                () -> assertThat(cache.get("a")).describedAs("recently used").isEqualTo(1),
+                () -> assertThat(cache.get("b")).describedAs("least recently used").isNull()
+            );
+        }
+
+        @Test
+        void testEvictEldest_empty_returnsFalse() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+
+            // act
+            boolean result = cache.evictEldest();
+
+            // assert
+            assertThat(result).isFalse();
+        }
+
+        @Test
+        void testPut_maxEntriesExceededAfterOldestEntryWasUsed_leastRecentlyUsedEntryIsRemoved() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.setMaxEntries(3);
+
+            cache.put("m", 200);
+            cache.put("z", 1);
+            cache.put("a", 500);
+            cache.get("m");
+
+            // act
+            cache.put("n", 100);
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("m")).describedAs("oldest inserted but recently used entry (should be kept)")
+                                                .isEqualTo(200),
+
+                () -> assertThat(cache.get("z")).describedAs("least recently used entry (should be removed)")
+                                                .isNull(),
+
+                () -> assertThat(cache.get("a")).describedAs("second recent entry (should be kept)")
+                                                .isEqualTo(500),
+
+                () -> assertThat(cache.get("n")).describedAs("most recent entry (should be kept)")
+                                                .isEqualTo(100)
+            );
+        }
+
+        @Test
+        void testPut_existingKeyWithMaxEntriesReached_noEntryIsRemoved() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.setMaxEntries(3);
+
+            cache.put("m", 200);
+            cache.put("z", 1);
+            cache.put("a", 500);
+
+            // act
+            cache.put("m", 300);
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("m")).describedAs("updated entry").isEqualTo(300),
+                () -> assertThat(cache.get("z")).describedAs("second entry").isEqualTo(1),
+                () -> assertThat(cache.get("a")).describedAs("third entry").isEqualTo(500)
+            );
+        }
+
+        @Test
+        void testPut_maxWeightExceeded_leastRecentlyUsedEntriesAreRemovedUntilWeightFits() {
+            // arrange
+            LRUCache<String, String> cache = new LRUCache<String, String>().setWeigher((key, value) -> value.length())
+                                                                           .setMaxWeight(10);
+
+            cache.put("m", "aaaa");
+            cache.put("z", "bbb");
+            cache.put("a", "cc");
+
+            // act
+            cache.put("n", "dddd");
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("m")).describedAs("oldest entry (should be removed)")
+                                                .isNull(),
+
+                () -> assertThat(cache.get("z")).describedAs("third recent entry (should be kept)")
+                                                .isEqualTo("bbb"),
+
+                () -> assertThat(cache.get("a")).describedAs("second recent entry (should be kept)")
+                                                .isEqualTo("cc"),
+
+                () -> assertThat(cache.get("n")).describedAs("most recent entry (should be kept)")
+                                                .isEqualTo("dddd"),
+
+                () -> assertThat(cache.getWeight()).describedAs("total weight")
+                                                   .isEqualTo(9)
+            );
+        }
+
+        @Test
+        void testSetWeigher_entriesPresent_recalculatesWeight() {
+            // arrange
+            LRUCache<String, String> cache = new LRUCache<>();
+            cache.put("m", "aaaa");
+            cache.put("z", "bbb");
+
+            // act
+            cache.setWeigher((key, value) -> value.length());
+
+            // assert
+            assertThat(cache.getWeight()).isEqualTo(7);
+        }
+
+        @Test
+        void testPut_frequencyAdmissionWithScanExceedingMaxEntries_frequentlyUsedEntriesAreKept() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setMaxEntries(3)
+                                                                             .setFrequencyAdmission(true);
+
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.put("c", 3);
+
+            for (int i = 0; i < 10; i++) {
+                cache.get("a");
+                cache.get("b");
+            }
+
+            // act
+            for (int i = 0; i < 10; i++) {
+                cache.put("scan" + i, i);
+            }
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("a")).describedAs("frequently used entry (should be kept)")
+                                                .isEqualTo(1),
+
+                () -> assertThat(cache.get("b")).describedAs("frequently used entry (should be kept)")
+                                                .isEqualTo(2),
+
+                () -> assertThat(cache.get("c")).describedAs("rarely used entry (should be kept as scanned entries are not used more often)")
+                                                .isEqualTo(3),
+
+                () -> assertThat(cache.get("scan9")).describedAs("most recent scanned entry (should not be admitted)")
+                                                    .isNull()
+            );
+        }
+
+        @Test
+        void testPut_frequencyAdmissionWithEquallyUsedEntries_rejectsNewEntry() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setMaxEntries(2)
+                                                                             .setFrequencyAdmission(true);
+
+            cache.put("m", 200);
+            cache.put("z", 1);
+
+            // act
+            cache.put("n", 100);
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("m")).describedAs("oldest entry (should be kept)")
+                                                .isEqualTo(200),
+
+                () -> assertThat(cache.get("z")).describedAs("second recent entry (should be kept)")
+                                                .isEqualTo(1),
+
+                () -> assertThat(cache.get("n")).describedAs("new entry used equally often (should not be admitted)")
+                                                .isNull()
+            );
+        }
+
+        @Test
+        void testPut_frequencyAdmissionWhileGrowing_keepsRecordedFrequencies() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setMaxEntries(100)
+                                                                             .setFrequencyAdmission(true);
+
+            cache.put("hot", 1);
+            for (int i = 0; i < 10; i++) {
+                cache.get("hot");
+            }
+
+            // frequency sketch grows while filling the cache
+            for (int i = 0; i < 99; i++) {
+                cache.put("filler" + i, i);
+            }
+
+            // act
+            cache.put("scan", 0);
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("hot")).describedAs("frequently used entry (should be kept)")
+                                                  .isEqualTo(1),
+
+                () -> assertThat(cache.get("scan")).describedAs("scanned entry (should not be admitted)")
+                                                   .isNull()
+            );
+        }
+
         @Test
         void testPut_usageExpired_expiredEntriesAreRemoved() {
             // arrange
@@ -384,4 +634,795 @@ class LRUCacheTest {
             );
         }
     }
+
+    @Nested
+    class ProactiveMaintenance {
+        @Test
+        void testSetMaintenanceScheduler_triggered_evictsExpiredEntriesAndReschedulesForNextExpiration() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setUsageExpiration(Duration.ofSeconds(30));
+
+            SimpleScheduler scheduler = mock(SimpleScheduler.class);
+            ArgumentCaptor<Runnable> actionCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+            cache.setMaintenanceScheduler(scheduler);
+            verify(scheduler).onTrigger(actionCaptor.capture());
+            clearInvocations(scheduler);
+
+            cache.atSecondsBeforeMockReferenceTime(40)
+                 .put("m", 200);
+            cache.atSecondsBeforeMockReferenceTime(20)
+                 .put("z", 1);
+
+            // act
+            cache.atMockReferenceTime();
+            actionCaptor.getValue().run();
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("m")).describedAs("expired entry (should be removed)")
+                                                .isNull(),
+
+                () -> assertThat(cache.get("z")).describedAs("unexpired entry (should be kept)")
+                                                .isEqualTo(1),
+
+                () -> verify(scheduler).setNextTriggerIfEarlier(Duration.ofSeconds(10).plusNanos(1))
+            );
+        }
+
+        @Test
+        void testSetMaintenanceScheduler_noUsageExpiration_doesNotReschedule() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+
+            SimpleScheduler scheduler = mock(SimpleScheduler.class);
+            ArgumentCaptor<Runnable> actionCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+            cache.setMaintenanceScheduler(scheduler);
+            verify(scheduler).onTrigger(actionCaptor.capture());
+            clearInvocations(scheduler);
+
+            cache.put("m", 200);
+
+            // act
+            actionCaptor.getValue().run();
+
+            // assert
+            verify(scheduler, never()).setNextTriggerIfEarlier(any(Duration.class));
+        }
+    }
+
+    @Nested
+    class Loading {
+        @Test
+        void testGet_missingWithLoader_returnsAndStoresLoadedValue() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            AtomicInteger numLoads = new AtomicInteger();
+
+            // act
+            Integer firstResult = cache.get("key", key -> numLoads.incrementAndGet() * 10);
+            Integer secondResult = cache.get("key", key -> numLoads.incrementAndGet() * 10);
+
+            // assert
+            assertAll(
+                () -> assertThat(firstResult).isEqualTo(10),
+                () -> assertThat(secondResult).isEqualTo(10),
+                () -> assertThat(numLoads).hasValue(1)
+            );
+        }
+
+        @Test
+        void testGet_previousLoadFailed_loadsAgain() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            assertThatThrownBy(() -> cache.get("key", key -> {
+                throw new IllegalStateException("test");
+            })).isInstanceOf(IllegalStateException.class);
+
+            // act
+            Integer result = cache.get("key", key -> 5);
+
+            // assert
+            assertThat(result).isEqualTo(5);
+        }
+
+        @Test
+        void testGet_loaderFails_throwsLoaderException() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+
+            // act
+            ThrowingCallable action = () -> cache.get("key", key -> {
+                throw new IllegalStateException("test");
+            });
+
+            // assert
+            assertThatThrownBy(action).isInstanceOf(IllegalStateException.class)
+                                      .hasMessage("test");
+        }
+
+        @Test
+        void testGetAsync_concurrentRequestsForSameKey_loadsOnlyOnce() throws Exception {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            AtomicInteger numLoads = new AtomicInteger();
+            CountDownLatch loaderBlocked = new CountDownLatch(1);
+            CountDownLatch releaseLoader = new CountDownLatch(1);
+
+            CompletableFuture<Integer> first = cache.getAsync("key", key -> {
+                numLoads.incrementAndGet();
+                loaderBlocked.countDown();
+                await(releaseLoader);
+                return 42;
+            });
+            await(loaderBlocked);
+
+            // act
+            CompletableFuture<Integer> second = cache.getAsync("key", key -> numLoads.incrementAndGet());
+            releaseLoader.countDown();
+
+            // assert
+            assertAll(
+                () -> assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(42),
+                () -> assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo(42),
+                () -> assertThat(numLoads).hasValue(1),
+                () -> assertThat(cache.get("key")).isEqualTo(42)
+            );
+        }
+
+        @Test
+        void testGetOrLoadAsync_loaderFails_futureCompletesExceptionallyAndNothingIsStored() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setLoader(key -> {
+                throw new IllegalStateException("test");
+            });
+
+            // act
+            CompletableFuture<Integer> future = cache.getOrLoadAsync("key");
+
+            // assert
+            assertAll(
+                () -> assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                                                                               .hasCauseInstanceOf(IllegalStateException.class),
+                () -> assertThat(cache.get("key")).isNull()
+            );
+        }
+
+        @Test
+        void testGet_staleEntry_returnsCurrentValueAndRefreshesAsynchronously() {
+            // arrange
+            List<Runnable> tasks = new ArrayList<>();
+            AtomicInteger numLoads = new AtomicInteger();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setRefreshAfterWrite(Duration.ofSeconds(10))
+                 .setExecutor(tasks::add)
+                 .setLoader(key -> numLoads.incrementAndGet() * 10);
+
+            cache.atSecondsBeforeMockReferenceTime(11).put("key", 1);
+            cache.atMockReferenceTime();
+
+            // act
+            Integer firstResult = cache.get("key");
+            Integer secondResult = cache.get("key");
+            tasks.forEach(Runnable::run);
+            Integer thirdResult = cache.get("key");
+
+            // assert
+            assertAll(
+                () -> assertThat(firstResult).describedAs("first").isEqualTo(1),
+                () -> assertThat(secondResult).describedAs("second").isEqualTo(1),
+                () -> assertThat(tasks).describedAs("scheduled refreshes").hasSize(1),
+                () -> assertThat(numLoads).hasValue(1),
+                () -> assertThat(thirdResult).describedAs("after refresh").isEqualTo(10)
+            );
+        }
+
+        @Test
+        void testGet_notStale_doesNotRefresh() {
+            // arrange
+            List<Runnable> tasks = new ArrayList<>();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setRefreshAfterWrite(Duration.ofSeconds(10))
+                 .setExecutor(tasks::add)
+                 .setLoader(key -> 10);
+
+            cache.atSecondsBeforeMockReferenceTime(10).put("key", 1);
+            cache.atMockReferenceTime();
+
+            // act
+            cache.get("key");
+
+            // assert
+            assertThat(tasks).isEmpty();
+        }
+
+        @Test
+        void testGet_refreshFails_keepsCurrentValue() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setRefreshAfterWrite(Duration.ofSeconds(10))
+                 .setExecutor(Runnable::run)
+                 .setLoader(key -> {
+                     throw new IllegalStateException("test");
+                 });
+
+            cache.atSecondsBeforeMockReferenceTime(11).put("key", 1);
+            cache.atMockReferenceTime();
+
+            // act
+            Integer result = cache.get("key");
+
+            // assert
+            assertAll(
+                () -> assertThat(result).isEqualTo(1),
+                () -> assertThat(cache.get("key")).describedAs("after failed refresh").isEqualTo(1)
+            );
+        }
+
+        @Test
+        void testGet_refreshedEntry_keepsEvictionOrder() {
+            // arrange
+            List<Runnable> tasks = new ArrayList<>();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setMaxEntries(2)
+                 .setRefreshAfterWrite(Duration.ofSeconds(10))
+                 .setExecutor(tasks::add)
+                 .setLoader(key -> 99);
+
+            cache.atSecondsBeforeMockReferenceTime(11).put("a", 1);
+            cache.atMockReferenceTime();
+            cache.put("b", 2);
+            cache.get("b");
+            cache.get("a");
+            cache.get("b");
+            tasks.forEach(Runnable::run);
+
+            // act
+            cache.put("c", 3);
+
+            // assert
+            assertAll(
+                () -> assertThat(tasks).describedAs("scheduled refreshes").hasSize(1),
+                () -> assertThat(cache.get("a")).describedAs("refreshed but least recently used").isNull(),
+                () -> assertThat(cache.get("b")).describedAs("most recently used").isEqualTo(2),
+                () -> assertThat(cache.get("c")).describedAs("new").isEqualTo(3)
+            );
+        }
+
+        @Test
+        void testGet_refreshedEntry_notifiesRefreshedRemoval() {
+            // arrange
+            List<Runnable> tasks = new ArrayList<>();
+            List<LRUCache.RemovalCause> causes = new ArrayList<>();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setRefreshAfterWrite(Duration.ofSeconds(10))
+                 .setExecutor(tasks::add)
+                 .setLoader(key -> 99)
+                 .setRemovalListener((key, value, cause) -> causes.add(cause));
+
+            cache.atSecondsBeforeMockReferenceTime(11).put("a", 1);
+            cache.atMockReferenceTime();
+            cache.get("a");
+
+            // act
+            tasks.forEach(Runnable::run);
+
+            // assert
+            assertAll(
+                () -> assertThat(causes).describedAs("removal causes").containsExactly(LRUCache.RemovalCause.REFRESHED),
+                () -> assertThat(cache.get("a")).describedAs("refreshed value").isEqualTo(99)
+            );
+        }
+
+        @Test
+        void testGet_putWhileRefreshing_discardsRefreshedValue() {
+            // arrange
+            List<Runnable> tasks = new ArrayList<>();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setRefreshAfterWrite(Duration.ofSeconds(10))
+                 .setExecutor(tasks::add)
+                 .setLoader(key -> 10);
+
+            cache.atSecondsBeforeMockReferenceTime(11).put("key", 1);
+            cache.atMockReferenceTime();
+            cache.get("key");
+
+            // act
+            cache.put("key", 2);
+            tasks.forEach(Runnable::run);
+
+            // assert
+            assertThat(cache.get("key")).isEqualTo(2);
+        }
+
+        private void await(CountDownLatch latch) {
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("timeout");
+                }
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    @Nested
+    class TimeToLive {
+        @Test
+        void testGet_timeToLiveExceeded_returnsNullWithoutMaintenance() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.atSecondsBeforeMockReferenceTime(11).put("a", 1, Duration.ofSeconds(10));
+            cache.atSecondsBeforeMockReferenceTime(11).put("b", 2, Duration.ofSeconds(11));
+
+            // act
+            cache.atMockReferenceTime();
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("a")).describedAs("expired").isNull(),
+                () -> assertThat(cache.get("b")).describedAs("expiring exactly now (inclusive)").isEqualTo(2)
+            );
+        }
+
+        @Test
+        void testGet_recentlyUsedButTimeToLiveExceeded_returnsNull() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.atSecondsBeforeMockReferenceTime(20).put("a", 1, Duration.ofSeconds(15));
+            cache.atSecondsBeforeMockReferenceTime(10).get("a");
+
+            // act
+            Integer result = cache.atMockReferenceTime().get("a");
+
+            // assert
+            assertThat(result).isNull();
+        }
+
+        @Test
+        void testMaintain_expiry_evictsOnlyEntriesThatOutlivedTheirTimeToLive() {
+            // arrange
+            List<String> removed = new ArrayList<>();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setMinEntries(10)
+                 .setExpiry((key, value) -> (value < 0) ? null : Duration.ofSeconds(value))
+                 .setRemovalListener((key, value, cause) -> removed.add(key + "/" + cause));
+
+            cache.atSecondsBeforeMockReferenceTime(30);
+            cache.put("short", 10);
+            cache.put("long", 60);
+            cache.put("never", -1);
+            cache.put("explicit", 60, Duration.ofSeconds(5));
+
+            // act
+            cache.atMockReferenceTime().maintain();
+
+            // assert
+            assertAll(
+                () -> assertThat(removed).containsExactlyInAnyOrder("short/EXPIRED", "explicit/EXPIRED"),
+                () -> assertThat(cache.get("long")).describedAs("long").isEqualTo(60),
+                () -> assertThat(cache.get("never")).describedAs("never").isEqualTo(-1)
+            );
+        }
+
+        @Test
+        void testPut_rewritten_restartsTimeToLive() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.atSecondsBeforeMockReferenceTime(30).put("a", 1, Duration.ofSeconds(20));
+            cache.atSecondsBeforeMockReferenceTime(15).put("a", 2, Duration.ofSeconds(20));
+
+            // act
+            cache.atMockReferenceTime().maintain();
+
+            // assert
+            assertThat(cache.get("a")).isEqualTo(2);
+        }
+
+        @Test
+        void testPut_rewrittenWithoutTimeToLive_doesNotExpire() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.atSecondsBeforeMockReferenceTime(30).put("a", 1, Duration.ofSeconds(5));
+            cache.atSecondsBeforeMockReferenceTime(29).put("a", 2);
+
+            // act
+            cache.atMockReferenceTime().maintain();
+
+            // assert
+            assertThat(cache.get("a")).isEqualTo(2);
+        }
+
+        @Test
+        void testPut_expiredEntryPresent_notifiesExpirationInsteadOfReplacement() {
+            // arrange
+            List<String> removed = new ArrayList<>();
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setRemovalListener((key, value, cause) -> removed.add(key + "/" + value + "/" + cause));
+            cache.atSecondsBeforeMockReferenceTime(30).put("a", 1, Duration.ofSeconds(5));
+
+            // act
+            cache.atMockReferenceTime().put("a", 2);
+
+            // assert
+            assertAll(
+                () -> assertThat(removed).containsExactly("a/1/EXPIRED"),
+                () -> assertThat(cache.get("a")).isEqualTo(2)
+            );
+        }
+
+        @Test
+        void testGetWithLoader_timeToLiveExceeded_loadsAgain() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.atSecondsBeforeMockReferenceTime(30).put("a", 1, Duration.ofSeconds(5));
+
+            // act
+            Integer result = cache.atMockReferenceTime().get("a", key -> 2);
+
+            // assert
+            assertThat(result).isEqualTo(2);
+        }
+
+        @Test
+        void testMaintenanceScheduler_timeToLiveShorterThanScheduled_triggersEarlier() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            SimpleScheduler scheduler = mock(SimpleScheduler.class);
+            cache.setMaintenanceScheduler(scheduler);
+            clearInvocations(scheduler);
+
+            // act
+            cache.put("a", 1, Duration.ofSeconds(5));
+
+            // assert
+            verify(scheduler).setNextTriggerIfEarlier(Duration.ofSeconds(5).plusNanos(1));
+        }
+    }
+
+    @Nested
+    class BulkOperations {
+        @Test
+        void testGetAll_mixedKeys_returnsOnlyPresentEntries() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.put("a", 1);
+            cache.put("c", 3);
+
+            // act
+            Map<String, Integer> result = cache.getAll(Arrays.asList("a", "b", "c"));
+
+            // assert
+            assertThat(result).containsExactly(
+                entry("a", 1),
+                entry("c", 3)
+            );
+        }
+
+        @Test
+        void testGetAll_present_resetsUsage() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setMaxEntries(3);
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.put("c", 3);
+            cache.getAll(Arrays.asList("a", "b"));
+
+            // act
+            cache.put("d", 4);
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("a")).describedAs("a").isEqualTo(1),
+                () -> assertThat(cache.get("b")).describedAs("b").isEqualTo(2),
+                () -> assertThat(cache.get("c")).describedAs("c").isNull(),
+                () -> assertThat(cache.get("d")).describedAs("d").isEqualTo(4)
+            );
+        }
+
+        @Test
+        void testPutAll_exceedingMaxEntries_evictsEldestAfterStoringAll() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setMaxEntries(2);
+            cache.put("a", 1);
+
+            Map<String, Integer> entries = new LinkedHashMap<>();
+            entries.put("b", 2);
+            entries.put("c", 3);
+
+            // act
+            cache.putAll(entries);
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("a")).describedAs("a").isNull(),
+                () -> assertThat(cache.get("b")).describedAs("b").isEqualTo(2),
+                () -> assertThat(cache.get("c")).describedAs("c").isEqualTo(3)
+            );
+        }
+
+        @Test
+        void testInvalidateAll_givenKeys_removesOnlyThoseEntries() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.put("a", 1);
+            cache.put("b", 2);
+            cache.put("c", 3);
+
+            // act
+            cache.invalidateAll(Arrays.asList("a", "c", "x"));
+
+            // assert
+            assertAll(
+                () -> assertThat(cache.get("a")).describedAs("a").isNull(),
+                () -> assertThat(cache.get("b")).describedAs("b").isEqualTo(2),
+                () -> assertThat(cache.get("c")).describedAs("c").isNull()
+            );
+        }
+
+        @Test
+        void testGetAllWithLoader_missingKeys_loadsOnlyMissingKeysInSingleCall() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.put("a", 1);
+            List<Set<String>> requests = new ArrayList<>();
+
+            // act
+            Map<String, Integer> result = cache.getAll(Arrays.asList("a", "b", "c"), keys -> {
+                requests.add(new HashSet<>(keys));
+                Map<String, Integer> loaded = new HashMap<>();
+                for (String key : keys) {
+                    loaded.put(key, (int) key.charAt(0));
+                }
+                return loaded;
+            });
+
+            // assert
+            assertAll(
+                () -> assertThat(requests).containsExactly(new HashSet<>(Arrays.asList("b", "c"))),
+                () -> assertThat(result).containsExactly(
+                    entry("a", 1),
+                    entry("b", (int) 'b'),
+                    entry("c", (int) 'c')
+                ),
+                () -> assertThat(cache.get("b")).describedAs("b stored").isEqualTo((int) 'b')
+            );
+        }
+
+        @Test
+        void testGetAllWithLoader_loaderOmitsKey_omitsKeyAndStoresNothing() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+
+            // act
+            Map<String, Integer> result = cache.getAll(Arrays.asList("a", "b"), keys -> {
+                Map<String, Integer> loaded = new HashMap<>();
+                loaded.put("a", 1);
+                loaded.put("x", 99);
+                return loaded;
+            });
+
+            // assert
+            assertAll(
+                () -> assertThat(result).containsExactly(entry("a", 1)),
+                () -> assertThat(cache.get("b")).describedAs("b").isNull(),
+                () -> assertThat(cache.get("x")).describedAs("x").isNull()
+            );
+        }
+
+        @Test
+        void testGetAllWithLoader_loaderFails_throwsAndAllowsReload() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+
+            // act
+            ThrowingCallable action = () -> cache.getAll(Arrays.asList("a", "b"), keys -> {
+                throw new IllegalStateException("test");
+            });
+
+            // assert
+            assertAll(
+                () -> assertThatThrownBy(action).isInstanceOf(IllegalStateException.class)
+                                                .hasMessage("test"),
+                () -> assertThat(cache.get("a", key -> 5)).isEqualTo(5)
+            );
+        }
+
+        @Test
+        void testGetAllWithLoader_statisticsEnabled_countsHitsMissesAndSingleLoad() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setStatisticsEnabled(true);
+            cache.put("a", 1);
+
+            // act
+            cache.getAll(Arrays.asList("a", "b", "c"), keys -> new HashMap<>());
+
+            // assert
+            CacheStatistics statistics = cache.getStatistics();
+            assertAll(
+                () -> assertThat(statistics.getHitCount()).describedAs("hits").isEqualTo(1),
+                () -> assertThat(statistics.getMissCount()).describedAs("misses").isEqualTo(2),
+                () -> assertThat(statistics.getLoadSuccessCount()).describedAs("loads").isEqualTo(1)
+            );
+        }
+    }
+
+    @Nested
+    class Snapshots {
+        private final CacheSnapshotSerializer<String, Integer> serializer = new CacheSnapshotSerializer<String, Integer>() {
+            @Override
+            public void writeKey(DataOutput out, String key) throws IOException {
+                out.writeUTF(key);
+            }
+
+            @Override
+            public void writeValue(DataOutput out, Integer value) throws IOException {
+                out.writeInt(value);
+            }
+
+            @Override
+            public String readKey(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+
+            @Override
+            public Integer readValue(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+
+        @Test
+        void testReadSnapshot_writtenSnapshot_restoresEntriesInOrderOfUsage() throws Exception {
+            // arrange
+            LRUCache<String, Integer> original = new LRUCache<>();
+            original.put("a", 1);
+            original.put("b", 2);
+            original.put("c", 3);
+            original.get("a");
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            original.writeSnapshot(baos, serializer);
+
+            LRUCache<String, Integer> restored = new LRUCache<String, Integer>().setMaxEntries(2);
+
+            // act
+            int numRead = restored.readSnapshot(new ByteArrayInputStream(baos.toByteArray()), serializer);
+
+            // assert
+            assertAll(
+                () -> assertThat(numRead).describedAs("number of entries").isEqualTo(3),
+                () -> assertThat(restored.get("b")).describedAs("b").isNull(),
+                () -> assertThat(restored.get("c")).describedAs("c").isEqualTo(3),
+                () -> assertThat(restored.get("a")).describedAs("a").isEqualTo(1)
+            );
+        }
+
+        @Test
+        void testReadSnapshot_moreEntriesThanAllowed_keepsMostRecentlyUsed() throws Exception {
+            // arrange
+            LRUCache<String, Integer> original = new LRUCache<>();
+            for (int i = 0; i < 3000; i++) {
+                original.put("key" + i, i);
+            }
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            original.writeSnapshot(baos, serializer);
+
+            LRUCache<String, Integer> restored = new LRUCache<String, Integer>().setMaxEntries(10);
+
+            // act
+            restored.readSnapshot(new ByteArrayInputStream(baos.toByteArray()), serializer);
+
+            // assert
+            assertAll(
+                () -> assertThat(restored.get("key2989")).describedAs("oldest evicted").isNull(),
+                () -> assertThat(restored.get("key2990")).describedAs("oldest kept").isEqualTo(2990),
+                () -> assertThat(restored.get("key2999")).describedAs("youngest").isEqualTo(2999)
+            );
+        }
+
+        @Test
+        void testWriteSnapshot_nullValue_omitsEntry() throws Exception {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.put("a", null);
+            cache.put("b", 2);
+
+            // act
+            int numWritten = cache.writeSnapshot(new ByteArrayOutputStream(), serializer);
+
+            // assert
+            assertThat(numWritten).isEqualTo(1);
+        }
+
+        @Test
+        void testReadSnapshot_invalidData_throwsIOException() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            byte[] data = "no snapshot".getBytes(StandardCharsets.UTF_8);
+
+            // act
+            ThrowingCallable action = () -> cache.readSnapshot(new ByteArrayInputStream(data), serializer);
+
+            // assert
+            assertThatThrownBy(action).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Nested
+    class Monitoring {
+        @Test
+        void testGetStatistics_enabled_countsHitsMissesLoadsAndRemovals() {
+            // arrange
+            LRUCacheMock<String, Integer> cache = new LRUCacheMock<>();
+            cache.setStatisticsEnabled(true)
+                 .setMaxEntries(2)
+                 .setUsageExpiration(Duration.ofSeconds(30));
+
+            cache.atSecondsBeforeMockReferenceTime(60)
+                 .put("m", 200);
+            cache.put("z", 1);
+            cache.put("a", 500);
+            cache.get("z");
+            cache.get("n");
+            cache.get("n", key -> 100);
+            cache.remove("z");
+
+            // act
+            CacheStatistics result = cache.atMockReferenceTime()
+                                          .getStatistics();
+            cache.maintain();
+            CacheStatistics resultAfterMaintenance = cache.getStatistics();
+
+            // assert
+            assertAll(
+                () -> assertThat(result.getHitCount()).describedAs("hits").isEqualTo(1),
+                () -> assertThat(result.getMissCount()).describedAs("misses").isEqualTo(2),
+                () -> assertThat(result.getLoadSuccessCount()).describedAs("successful loads").isEqualTo(1),
+                () -> assertThat(result.getRemovalCount(LRUCache.RemovalCause.SIZE)).describedAs("evicted by size").isEqualTo(2),
+                () -> assertThat(result.getRemovalCount(LRUCache.RemovalCause.EXPLICIT)).describedAs("removed explicitly").isEqualTo(1),
+                () -> assertThat(resultAfterMaintenance.getRemovalCount(LRUCache.RemovalCause.EXPIRED)).describedAs("expired").isEqualTo(1),
+                () -> assertThat(resultAfterMaintenance.getEvictionCount()).describedAs("all evictions").isEqualTo(3)
+            );
+        }
+
+        @Test
+        void testGetStatistics_disabled_returnsEmptyStatistics() {
+            // arrange
+            LRUCache<String, Integer> cache = new LRUCache<>();
+            cache.put("m", 200);
+            cache.get("m");
+
+            // act
+            CacheStatistics result = cache.getStatistics();
+
+            // assert
+            assertThat(result.getRequestCount()).isZero();
+        }
+
+        @Test
+        void testSetRemovalListener_entriesRemoved_notifiesWithCauses() {
+            // arrange
+            List<String> removals = new ArrayList<>();
+            LRUCache<String, Integer> cache = new LRUCache<String, Integer>().setMaxEntries(2)
+                                                                             .setRemovalListener((key, value, cause) -> removals.add(key + "=" + value + " " + cause));
+
+            cache.put("m", 200);
+            cache.put("z", 1);
+
+            // act
+            cache.put("m", 300);
+            cache.put("a", 500);
+            cache.remove("m");
+
+            // assert
+            assertThat(removals).containsExactly(
+                "m=200 REPLACED",
+                "z=1 SIZE",
+                "m=300 EXPLICIT"
+            );
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package org.vatplanner.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LongLRUCacheTest {
+    @Test
+    void testGet_removed_returnsNull() {
+        // arrange
+        LongLRUCache<Integer> cache = new LongLRUCache<>();
+        cache.put(123L, 5);
+        cache.remove(123L);
+
+        // act
+        Integer result = cache.get(123L);
+
+        // assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void testPut_maxEntriesExceededAfterOldestEntryWasUsed_leastRecentlyUsedEntryIsRemoved() {
+        // arrange
+        LongLRUCache<Integer> cache = new LongLRUCache<Integer>().setMaxEntries(3);
+
+        cache.put(-1L, 200);
+        cache.put(Long.MAX_VALUE, 1);
+        cache.put(0L, 500);
+        cache.get(-1L);
+
+        // act
+        cache.put(Long.MIN_VALUE, 100);
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.get(-1L)).describedAs("oldest inserted but recently used entry (should be kept)")
+                                            .isEqualTo(200),
+
+            () -> assertThat(cache.get(Long.MAX_VALUE)).describedAs("least recently used entry (should be removed)")
+                                                       .isNull(),
+
+            () -> assertThat(cache.get(0L)).describedAs("second recent entry (should be kept)")
+                                           .isEqualTo(500),
+
+            () -> assertThat(cache.get(Long.MIN_VALUE)).describedAs("most recent entry (should be kept)")
+                                                       .isEqualTo(100)
+        );
+    }
+
+    @Test
+    void testMaintain_minEntriesWithUsageExpired_expiredMinimumNumberOfMostRecentEntriesAreKept() {
+        // arrange
+        AtomicLong mockNow = new AtomicLong();
+        LongLRUCache<Integer> cache = new LongLRUCache<Integer>(mockNow::get).setMinEntries(1)
+                                                                             .setUsageExpiration(Duration.ofSeconds(30));
+
+        cache.put(1L, 200);
+        mockNow.set(Duration.ofSeconds(10).toNanos());
+        cache.put(2L, 1);
+        mockNow.set(Duration.ofSeconds(35).toNanos());
+        cache.put(3L, 500);
+
+        // act
+        mockNow.set(Duration.ofSeconds(120).toNanos());
+        cache.maintain();
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.size()).describedAs("number of remaining entries").isEqualTo(1),
+            () -> assertThat(cache.get(3L)).describedAs("most recent expired entry (should be kept)").isEqualTo(500)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5})
+    void testRandomOperations_comparedToLinkedHashMap_behaveIdentically(long seed) {
+        // arrange
+        int maxEntries = 100;
+        LongLRUCache<Long> cache = new LongLRUCache<Long>().setMaxEntries(maxEntries);
+        Map<Long, Long> expected = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        Random random = new Random(seed);
+
+        // act & assert
+        for (int i = 0; i < 20000; i++) {
+            long key = (random.nextInt(300) - 150) * 0x100000001L;
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                long value = random.nextLong();
+                assertThat(cache.put(key, value)).isEqualTo(expected.put(key, value));
+            } else if (operation < 8) {
+                assertThat(cache.get(key)).isEqualTo(expected.get(key));
+            } else {
+                assertThat(cache.remove(key)).isEqualTo(expected.remove(key));
+            }
+
+            assertThat(cache.size()).isEqualTo(expected.size());
+        }
+    }
+}
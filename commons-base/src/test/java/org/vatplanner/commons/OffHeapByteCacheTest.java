@@ -0,0 +1,214 @@
+package org.vatplanner.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.vatplanner.commons.utils.Ticker;
+
+class OffHeapByteCacheTest {
+    private static final int SLAB_SIZE = 1024;
+
+    private OffHeapByteCache<String> createCache() {
+        return new OffHeapByteCache<>(SLAB_SIZE, ByteBuffer::allocateDirect, Ticker.SYSTEM);
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] out = new byte[length];
+        for (int i = 0; i < length; i++) {
+            out[i] = (byte) (seed + i);
+        }
+        return out;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 64, 65, 1000, 1024, 1025, 5000})
+    void testGet_stored_returnsEqualCopy(int length) {
+        // arrange
+        OffHeapByteCache<String> cache = createCache();
+        byte[] value = bytes(length, 7);
+        cache.put("key", value);
+
+        // act
+        byte[] result = cache.get("key");
+
+        // assert
+        assertThat(result).isEqualTo(value)
+                          .isNotSameAs(value);
+    }
+
+    @Test
+    void testGet_missing_returnsNull() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache();
+
+        // act
+        byte[] result = cache.get("key");
+
+        // assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void testRead_stored_passesReadOnlyView() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache();
+        cache.put("key", new byte[]{1, 2, 3});
+
+        // act
+        ByteBuffer copy = cache.read("key", view -> {
+            assertThatThrownBy(() -> view.put((byte) 0)).isInstanceOf(ReadOnlyBufferException.class);
+            return ByteBuffer.allocate(view.remaining()).put(view);
+        });
+
+        // assert
+        assertThat(copy.array()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void testPut_buffer_doesNotChangePositionOfSource() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache();
+        ByteBuffer source = ByteBuffer.wrap(new byte[]{1, 2, 3, 4});
+        source.get();
+
+        // act
+        cache.put("key", source);
+
+        // assert
+        assertAll(
+            () -> assertThat(source.position()).describedAs("position").isEqualTo(1),
+            () -> assertThat(cache.get("key")).describedAs("stored").containsExactly(2, 3, 4)
+        );
+    }
+
+    @Test
+    void testPut_maxBytesExceeded_evictsLeastRecentlyUsed() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache().setMaxBytes(256);
+        cache.put("a", bytes(128, 1));
+        cache.put("b", bytes(128, 2));
+        cache.get("a");
+
+        // act
+        cache.put("c", bytes(128, 3));
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.get("a")).describedAs("a").isNotNull(),
+            () -> assertThat(cache.get("b")).describedAs("b").isNull(),
+            () -> assertThat(cache.get("c")).describedAs("c").isNotNull(),
+            () -> assertThat(cache.getUsedBytes()).describedAs("used bytes").isEqualTo(256)
+        );
+    }
+
+    @Test
+    void testPut_afterEviction_reusesBlocksWithoutAllocatingMoreMemory() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache().setMaxEntries(4);
+        for (int i = 0; i < 4; i++) {
+            cache.put("key" + i, bytes(100, i));
+        }
+        long allocatedBefore = cache.getAllocatedBytes();
+
+        // act
+        for (int i = 4; i < 100; i++) {
+            cache.put("key" + i, bytes(100, i));
+        }
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.getAllocatedBytes()).describedAs("allocated bytes").isEqualTo(allocatedBefore),
+            () -> assertThat(cache.get("key99")).describedAs("youngest").isEqualTo(bytes(100, 99)),
+            () -> assertThat(cache.get("key95")).describedAs("evicted").isNull()
+        );
+    }
+
+    @Test
+    void testPut_shiftingValueSizes_keepsAllocatedBytesWithinLimit() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache().setMaxBytes(2 * SLAB_SIZE);
+        long maxAllocatedBytes = 0;
+
+        // act
+        for (int size = SlabAllocator.MIN_BLOCK_SIZE; size <= SLAB_SIZE; size *= 2) {
+            for (int i = 0; i < 4; i++) {
+                cache.put(size + "/" + i, bytes(size, i));
+                maxAllocatedBytes = Math.max(maxAllocatedBytes, cache.getAllocatedBytes());
+            }
+        }
+
+        // assert
+        long result = maxAllocatedBytes;
+        assertAll(
+            () -> assertThat(result).describedAs("maximum allocated bytes").isLessThanOrEqualTo(2 * SLAB_SIZE),
+            () -> assertThat(cache.get(SLAB_SIZE + "/3")).describedAs("youngest").isEqualTo(bytes(SLAB_SIZE, 3))
+        );
+    }
+
+    @Test
+    void testPut_exceedingMaxBytesWhenEmpty_removesKey() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache().setMaxBytes(SLAB_SIZE);
+        cache.put("key", bytes(10, 1));
+
+        // act
+        cache.put("key", bytes(2 * SLAB_SIZE, 2));
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.get("key")).describedAs("value").isNull(),
+            () -> assertThat(cache.getAllocatedBytes()).describedAs("allocated bytes").isLessThanOrEqualTo(SLAB_SIZE)
+        );
+    }
+
+    @Test
+    void testPut_replacedValue_releasesPreviousBlock() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache();
+        cache.put("key", bytes(100, 1));
+
+        // act
+        cache.put("key", bytes(2000, 2));
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.getUsedBytes()).describedAs("used bytes").isEqualTo(2000),
+            () -> assertThat(cache.get("key")).describedAs("value").isEqualTo(bytes(2000, 2))
+        );
+    }
+
+    @Test
+    void testClear_largeValues_releasesDedicatedBuffers() {
+        // arrange
+        OffHeapByteCache<String> cache = createCache();
+        cache.put("small", bytes(10, 1));
+        cache.put("large", bytes(5000, 2));
+
+        // act
+        cache.clear();
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.getUsedBytes()).describedAs("used bytes").isZero(),
+            () -> assertThat(cache.getAllocatedBytes()).describedAs("allocated bytes").isEqualTo(SLAB_SIZE),
+            () -> assertThat(cache.get("small")).describedAs("small").isNull()
+        );
+    }
+
+    @Test
+    void testConstructor_slabSizeNotPowerOfTwo_throwsIllegalArgumentException() {
+        // act
+        ThrowingCallable action = () -> new OffHeapByteCache<String>(1000, ByteBuffer::allocateDirect, Ticker.SYSTEM);
+
+        // assert
+        assertThatThrownBy(action).isInstanceOf(IllegalArgumentException.class);
+    }
+}
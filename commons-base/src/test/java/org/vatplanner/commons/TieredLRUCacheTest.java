@@ -0,0 +1,297 @@
+package org.vatplanner.commons;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TieredLRUCacheTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    private TieredLRUCache<String, String> cache;
+
+    private static final CacheSnapshotSerializer<String, String> SERIALIZER = new CacheSnapshotSerializer<String, String>() {
+        @Override
+        public void writeKey(DataOutput out, String key) throws IOException {
+            out.writeUTF(key);
+        }
+
+        @Override
+        public void writeValue(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String readKey(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+
+        @Override
+        public String readValue(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private final AtomicLong mockNow = new AtomicLong(Duration.ofDays(1).toNanos());
+
+    private TieredLRUCache<String, String> createCache(int maxEntriesInMemory, long maxDiskBytes) throws IOException {
+        return createCache(new LRUCache<String, String>().setMaxEntries(maxEntriesInMemory), maxDiskBytes);
+    }
+
+    private TieredLRUCache<String, String> createCache(LRUCache<String, String> memory, long maxDiskBytes) throws IOException {
+        cache = new TieredLRUCache<>(
+            memory,
+            directory,
+            SERIALIZER,
+            maxDiskBytes,
+            SEGMENT_SIZE
+        );
+        return cache;
+    }
+
+    @AfterEach
+    void closeCache() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    private static String value(int i) {
+        return "value-" + i;
+    }
+
+    @Test
+    void testGet_evictedFromMemory_returnsValueFromDisk() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(2, 4 * SEGMENT_SIZE);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        // act
+        String result = cache.get("a");
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("result").isEqualTo("1"),
+            () -> assertThat(cache.getDiskEntries()).describedAs("entries on disk").isEqualTo(1)
+        );
+    }
+
+    @Test
+    void testGet_missingEverywhere_callsLoader() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(2, 4 * SEGMENT_SIZE);
+        AtomicInteger numLoads = new AtomicInteger();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        // act
+        String fromDisk = cache.get("a", key -> "loaded-" + numLoads.incrementAndGet());
+        String loaded = cache.get("x", key -> "loaded-" + numLoads.incrementAndGet());
+
+        // assert
+        assertAll(
+            () -> assertThat(fromDisk).describedAs("from disk").isEqualTo("1"),
+            () -> assertThat(loaded).describedAs("loaded").isEqualTo("loaded-1"),
+            () -> assertThat(numLoads).hasValue(1)
+        );
+    }
+
+    @Test
+    void testPut_replacingValueHeldOnDisk_returnsNewValue() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 4 * SEGMENT_SIZE);
+        cache.put("a", "old");
+        cache.put("b", "2");
+
+        // act
+        cache.put("a", "new");
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.get("b")).describedAs("b").isEqualTo("2"),
+            () -> assertThat(cache.get("a")).describedAs("a").isEqualTo("new")
+        );
+    }
+
+    @Test
+    void testRemove_heldOnDisk_removesValue() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 4 * SEGMENT_SIZE);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        // act
+        cache.remove("a");
+
+        // assert
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    void testGet_spilledBeforeTimeToLive_returnsValueFromDisk() throws Exception {
+        // arrange
+        LRUCache<String, String> memory = new LRUCache<String, String>(mockNow::get).setMaxEntries(1)
+                                                                                   .setExpiry((key, value) -> Duration.ofSeconds(10));
+        TieredLRUCache<String, String> cache = createCache(memory, 4 * SEGMENT_SIZE);
+        cache.put("a", "1");
+        mockNow.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.put("b", "2");
+        mockNow.addAndGet(Duration.ofSeconds(4).toNanos());
+
+        // act
+        String result = cache.get("a");
+
+        // assert
+        assertThat(result).isEqualTo("1");
+    }
+
+    @Test
+    void testGet_spilledPastTimeToLive_returnsNull() throws Exception {
+        // arrange
+        LRUCache<String, String> memory = new LRUCache<String, String>(mockNow::get).setMaxEntries(1)
+                                                                                   .setExpiry((key, value) -> Duration.ofSeconds(10));
+        TieredLRUCache<String, String> cache = createCache(memory, 4 * SEGMENT_SIZE);
+        cache.put("a", "1");
+        mockNow.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.put("b", "2");
+        mockNow.addAndGet(Duration.ofSeconds(6).toNanos());
+
+        // act
+        String result = cache.get("a");
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("result").isNull(),
+            () -> assertThat(cache.getDiskEntries()).describedAs("entries on disk").isZero()
+        );
+    }
+
+    @Test
+    void testGet_spilledPastUsageExpiration_returnsNull() throws Exception {
+        // arrange
+        LRUCache<String, String> memory = new LRUCache<String, String>(mockNow::get).setMaxEntries(1)
+                                                                                   .setUsageExpiration(Duration.ofSeconds(10));
+        TieredLRUCache<String, String> cache = createCache(memory, 4 * SEGMENT_SIZE);
+        cache.put("a", "1");
+        mockNow.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.put("b", "2");
+        mockNow.addAndGet(Duration.ofSeconds(6).toNanos());
+
+        // act
+        String result = cache.get("a");
+
+        // assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void testPut_manyEvictions_boundsDiskSizeAndKeepsMostRecentlySpilled() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 3 * SEGMENT_SIZE);
+
+        // act
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, value(i));
+        }
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.getDiskBytes()).describedAs("disk bytes").isLessThanOrEqualTo(3 * SEGMENT_SIZE),
+            () -> assertThat(cache.get("key0")).describedAs("eldest").isNull(),
+            () -> assertThat(cache.get("key998")).describedAs("most recently spilled").isEqualTo(value(998)),
+            () -> assertThat(cache.get("key999")).describedAs("in memory").isEqualTo(value(999))
+        );
+    }
+
+    @Test
+    void testPut_mostlyOutdatedRecords_compactsInsteadOfDroppingLiveEntries() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 3 * SEGMENT_SIZE);
+        cache.put("keep", "kept value");
+
+        // act: repeatedly spilling the same few keys only leaves a small amount of live data
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + (i % 3), value(i));
+        }
+
+        // assert
+        assertAll(
+            () -> assertThat(cache.getDiskBytes()).describedAs("disk bytes").isLessThanOrEqualTo(3 * SEGMENT_SIZE),
+            () -> assertThat(cache.get("keep")).describedAs("spilled first").isEqualTo("kept value")
+        );
+    }
+
+    @Test
+    void testPut_manyEvictionsAndCompactions_reusesSegmentFiles() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 3 * SEGMENT_SIZE);
+
+        // act
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + (i % 50), value(i));
+        }
+
+        // assert
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).hasSizeLessThanOrEqualTo(3);
+        }
+    }
+
+    @Test
+    void testClear_afterSpilling_reusesSegmentFiles() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 3 * SEGMENT_SIZE);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, value(i));
+        }
+        cache.clear();
+
+        // act
+        for (int i = 0; i < 1000; i++) {
+            cache.put("other" + i, value(i));
+        }
+
+        // assert
+        try (Stream<Path> files = Files.list(directory)) {
+            assertAll(
+                () -> assertThat(files).describedAs("files").hasSizeLessThanOrEqualTo(3),
+                () -> assertThat(cache.getDiskBytes()).describedAs("disk bytes").isLessThanOrEqualTo(3 * SEGMENT_SIZE),
+                () -> assertThat(cache.get("other998")).describedAs("most recently spilled").isEqualTo(value(998))
+            );
+        }
+    }
+
+    @Test
+    void testClose_deletesSegmentFiles() throws Exception {
+        // arrange
+        TieredLRUCache<String, String> cache = createCache(1, 4 * SEGMENT_SIZE);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        // act
+        cache.close();
+
+        // assert
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class DurationHistogramTest {
+    private final DurationHistogram histogram = new DurationHistogram();
+
+    @Test
+    void testGetSnapshot_empty_returnsZero() {
+        // act
+        DurationHistogram.Snapshot result = histogram.getSnapshot();
+
+        // assert
+        assertAll(
+            () -> assertThat(result.getCount()).describedAs("count").isZero(),
+            () -> assertThat(result.getMin()).describedAs("min").isEqualTo(Duration.ZERO),
+            () -> assertThat(result.getMax()).describedAs("max").isEqualTo(Duration.ZERO),
+            () -> assertThat(result.getMean()).describedAs("mean").isEqualTo(Duration.ZERO),
+            () -> assertThat(result.getPercentile(50)).describedAs("median").isEqualTo(Duration.ZERO)
+        );
+    }
+
+    @Test
+    void testGetSnapshot_recorded_returnsStatistics() {
+        // arrange
+        histogram.record(Duration.ofMillis(10));
+        histogram.record(Duration.ofMillis(20));
+        histogram.record(Duration.ofMillis(60));
+
+        // act
+        DurationHistogram.Snapshot result = histogram.getSnapshot();
+
+        // assert
+        assertAll(
+            () -> assertThat(result.getCount()).describedAs("count").isEqualTo(3),
+            () -> assertThat(result.getMin()).describedAs("min").isEqualTo(Duration.ofMillis(10)),
+            () -> assertThat(result.getMax()).describedAs("max").isEqualTo(Duration.ofMillis(60)),
+            () -> assertThat(result.getMean()).describedAs("mean").isEqualTo(Duration.ofMillis(30))
+        );
+    }
+
+    @Test
+    void testGetPercentile_recorded_returnsUpperBoundWithinFactorOfTwo() {
+        // arrange
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(Duration.ofMillis(i));
+        }
+
+        // act
+        Duration result = histogram.getSnapshot().getPercentile(50);
+
+        // assert
+        assertThat(result).isBetween(Duration.ofMillis(50), Duration.ofMillis(100));
+    }
+
+    @Test
+    void testGetPercentile_maximum_returnsMax() {
+        // arrange
+        histogram.record(Duration.ofMillis(1));
+        histogram.record(Duration.ofMillis(3));
+
+        // act
+        Duration result = histogram.getSnapshot().getPercentile(100);
+
+        // assert
+        assertThat(result).isEqualTo(Duration.ofMillis(3));
+    }
+
+    @Test
+    void testRecord_negative_recordsZero() {
+        // act
+        histogram.record(Duration.ofMillis(-5));
+
+        // assert
+        assertThat(histogram.getSnapshot().getMin()).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void testRecord_exceedingNanos_recordsMaximum() {
+        // act
+        histogram.record(Duration.ofDays(365L * 1000));
+
+        // assert
+        assertThat(histogram.getSnapshot().getPercentile(100)).isEqualTo(Duration.ofNanos(Long.MAX_VALUE));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {-1, 100.1})
+    void testGetPercentile_outOfRange_throwsIllegalArgumentException(double percentile) {
+        // arrange
+        DurationHistogram.Snapshot snapshot = histogram.getSnapshot();
+
+        // act
+        ThrowingCallable action = () -> snapshot.getPercentile(percentile);
+
+        // assert
+        assertThatThrownBy(action).isInstanceOf(IllegalArgumentException.class);
+    }
+}
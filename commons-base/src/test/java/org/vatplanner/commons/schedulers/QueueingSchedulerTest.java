@@ -0,0 +1,632 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class QueueingSchedulerTest {
+    private static final Duration TASK_DURATION = Duration.ofMillis(200);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final QueueingScheduler scheduler = new QueueingScheduler();
+
+    @AfterEach
+    void shutdown() throws Exception {
+        scheduler.shutdownAndWait(Duration.ofSeconds(TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Records how many tasks are running at the same time.
+     */
+    private static class ConcurrencyProbe {
+        final AtomicInteger numRunning = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch finished;
+
+        ConcurrencyProbe(int numExpectedRuns) {
+            finished = new CountDownLatch(numExpectedRuns);
+        }
+
+        QueueingScheduler.Task newTask() {
+            return new QueueingScheduler.Task() {
+                @Override
+                public void run() {
+                    maxRunning.accumulateAndGet(numRunning.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(TASK_DURATION.toMillis());
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        numRunning.decrementAndGet();
+                        finished.countDown();
+                    }
+                }
+            };
+        }
+
+        boolean awaitFinished() throws InterruptedException {
+            return finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void scheduleNow(String name, ConcurrencyProbe probe) {
+        scheduler.schedule(name, probe::newTask, Instant.now(), null);
+    }
+
+    @Test
+    void testStart_defaultConcurrency_runsTasksInSeries() throws Exception {
+        // arrange
+        ConcurrencyProbe probe = new ConcurrencyProbe(3);
+        scheduleNow("a", probe);
+        scheduleNow("b", probe);
+        scheduleNow("c", probe);
+
+        // act
+        scheduler.start();
+        boolean finished = probe.awaitFinished();
+
+        // assert
+        assertAll(
+            () -> assertThat(finished).describedAs("all tasks finished").isTrue(),
+            () -> assertThat(probe.maxRunning).describedAs("maximum concurrently running tasks").hasValue(1)
+        );
+    }
+
+    @Test
+    void testStart_maxConcurrency_runsTasksInParallel() throws Exception {
+        // arrange
+        ConcurrencyProbe probe = new ConcurrencyProbe(3);
+        scheduler.setMaxConcurrency(3);
+        scheduleNow("a", probe);
+        scheduleNow("b", probe);
+        scheduleNow("c", probe);
+
+        // act
+        scheduler.start();
+        boolean finished = probe.awaitFinished();
+
+        // assert
+        assertAll(
+            () -> assertThat(finished).describedAs("all tasks finished").isTrue(),
+            () -> assertThat(probe.maxRunning).describedAs("maximum concurrently running tasks").hasValue(3)
+        );
+    }
+
+    @Test
+    void testStart_sameLane_runsTasksOfLaneInSeries() throws Exception {
+        // arrange
+        ConcurrencyProbe laneProbe = new ConcurrencyProbe(2);
+        ConcurrencyProbe otherProbe = new ConcurrencyProbe(1);
+        scheduler.setMaxConcurrency(3)
+                 .setLane("a", "lane")
+                 .setLane("b", "lane");
+        scheduleNow("a", laneProbe);
+        scheduleNow("b", laneProbe);
+        scheduleNow("c", otherProbe);
+
+        // act
+        scheduler.start();
+        boolean laneFinished = laneProbe.awaitFinished();
+        boolean otherFinished = otherProbe.awaitFinished();
+
+        // assert
+        assertAll(
+            () -> assertThat(laneFinished).describedAs("lane tasks finished").isTrue(),
+            () -> assertThat(otherFinished).describedAs("other task finished").isTrue(),
+            () -> assertThat(laneProbe.maxRunning).describedAs("maximum concurrently running lane tasks").hasValue(1)
+        );
+    }
+
+    @Test
+    void testStart_laneConcurrency_limitsTasksOfLane() throws Exception {
+        // arrange
+        ConcurrencyProbe probe = new ConcurrencyProbe(3);
+        scheduler.setMaxConcurrency(3)
+                 .setLaneConcurrency("lane", 2)
+                 .setLane("a", "lane")
+                 .setLane("b", "lane")
+                 .setLane("c", "lane");
+        scheduleNow("a", probe);
+        scheduleNow("b", probe);
+        scheduleNow("c", probe);
+
+        // act
+        scheduler.start();
+        boolean finished = probe.awaitFinished();
+
+        // assert
+        assertAll(
+            () -> assertThat(finished).describedAs("all tasks finished").isTrue(),
+            () -> assertThat(probe.maxRunning).describedAs("maximum concurrently running tasks").hasValue(2)
+        );
+    }
+
+    @Test
+    void testStart_taskExecutor_runsTasksOnExecutor() throws Exception {
+        // arrange
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        AtomicInteger numSubmitted = new AtomicInteger();
+        ConcurrencyProbe probe = new ConcurrencyProbe(2);
+        scheduler.setTaskExecutor(runnable -> {
+            numSubmitted.incrementAndGet();
+            executor.execute(runnable);
+        });
+        scheduleNow("a", probe);
+        scheduleNow("b", probe);
+
+        try {
+            // act
+            scheduler.start();
+            boolean finished = probe.awaitFinished();
+
+            // assert
+            assertAll(
+                () -> assertThat(finished).describedAs("all tasks finished").isTrue(),
+                () -> assertThat(numSubmitted).describedAs("tasks submitted to executor").hasValue(2)
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testShutdownAndWait_runningOnTaskExecutor_cancelsTask() throws Exception {
+        // arrange
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.setTaskExecutor(executor);
+        scheduler.schedule(
+            "a",
+            () -> new QueueingScheduler.Task() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    while (!isCancelled()) {
+                        Thread.yield();
+                    }
+                }
+            },
+            Instant.now(),
+            null
+        );
+        scheduler.start();
+        started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            // act
+            boolean result = scheduler.shutdownAndWait(Duration.ofSeconds(TIMEOUT_SECONDS));
+
+            // assert
+            assertThat(result).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStart_rejectedByTaskExecutor_retriesTask() throws Exception {
+        // arrange
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        AtomicInteger numRejected = new AtomicInteger();
+        ConcurrencyProbe probe = new ConcurrencyProbe(1);
+        scheduler.setFailedRetryInterval(Duration.ofMillis(10))
+                 .setTaskExecutor(runnable -> {
+                     if (numRejected.incrementAndGet() == 1) {
+                         throw new RejectedExecutionException();
+                     }
+                     executor.execute(runnable);
+                 });
+        scheduleNow("a", probe);
+
+        try {
+            // act
+            scheduler.start();
+            boolean finished = probe.awaitFinished();
+
+            // assert
+            assertThat(finished).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetMetrics_failingTask_recordsExecutionsAndNotifiesListener() throws Exception {
+        // arrange
+        CountDownLatch finished = new CountDownLatch(2);
+        AtomicInteger numFailuresReported = new AtomicInteger();
+        AtomicInteger numRuns = new AtomicInteger();
+        scheduler.setFailedRetryInterval(Duration.ofMillis(10))
+                 .setListener(new SchedulerListener() {
+                     @Override
+                     public void onTaskFinished(String taskName, Duration duration, Exception failure) {
+                         if (failure != null) {
+                             numFailuresReported.incrementAndGet();
+                         }
+                         finished.countDown();
+                     }
+                 });
+        scheduler.schedule(
+            "a",
+            () -> new QueueingScheduler.Task() {
+                @Override
+                public void run() {
+                    if (numRuns.incrementAndGet() == 1) {
+                        throw new IllegalStateException("test");
+                    }
+                }
+            },
+            Instant.now(),
+            null
+        );
+
+        // act
+        scheduler.start();
+        boolean result = finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        SchedulerMetrics.Snapshot snapshot = scheduler.getMetrics();
+
+        // assert
+        SchedulerMetrics.TaskStatistics statistics = snapshot.getTasks().get("a");
+        assertAll(
+            () -> assertThat(result).describedAs("finished twice").isTrue(),
+            () -> assertThat(numFailuresReported).describedAs("failures reported to listener").hasValue(1),
+            () -> assertThat(statistics.getNumStarted()).describedAs("number of starts").isEqualTo(2),
+            () -> assertThat(statistics.getNumFailed()).describedAs("number of failures").isEqualTo(1),
+            () -> assertThat(statistics.getRunDuration().getCount()).describedAs("recorded durations").isEqualTo(2),
+            () -> assertThat(snapshot.getRunningTasks()).describedAs("running tasks").isEmpty()
+        );
+    }
+
+    @Test
+    void testGetMetrics_saturated_reportsQueueDepthAndRunningTask() throws Exception {
+        // arrange
+        ConcurrencyProbe probe = new ConcurrencyProbe(3);
+        scheduleNow("a", probe);
+        scheduleNow("b", probe);
+        scheduleNow("c", probe);
+        scheduler.start();
+        Thread.sleep(TASK_DURATION.toMillis() / 2);
+
+        // act
+        SchedulerMetrics.Snapshot result = scheduler.getMetrics();
+
+        // assert
+        assertAll(
+            () -> assertThat(result.getQueueDepth()).describedAs("queue depth").isEqualTo(2),
+            () -> assertThat(result.getRunningTasks()).describedAs("running tasks").containsOnlyKeys("a")
+        );
+    }
+
+    @Test
+    void testTrigger_burstWithDebouncePolicy_runsOnce() throws Exception {
+        // arrange
+        AtomicInteger numRuns = new AtomicInteger();
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.setTriggerPolicy("a", TriggerPolicy.debounce(Duration.ofMillis(100), null));
+        scheduler.schedule("a", () -> newCountingTask(numRuns, ran), Instant.now().plus(Duration.ofHours(1)), null);
+
+        // burst is completed before the scheduler is started, so it cannot be split by a slow test run
+        for (int i = 0; i < 1000; i++) {
+            scheduler.trigger("a");
+        }
+
+        // act
+        scheduler.start();
+        boolean result = ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Instant pending = scheduler.getScheduledTime("a");
+        scheduler.shutdownAndWait(Duration.ofSeconds(TIMEOUT_SECONDS));
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("ran").isTrue(),
+            () -> assertThat(pending).describedAs("pending execution").isNull(),
+            () -> assertThat(numRuns).describedAs("number of runs").hasValue(1)
+        );
+    }
+
+    @Test
+    void testTrigger_burstWithThrottlePolicy_runsAtLeadingAndTrailingEdge() throws Exception {
+        // arrange
+        AtomicInteger numRuns = new AtomicInteger();
+        CountDownLatch leadingStarted = new CountDownLatch(1);
+        CountDownLatch releaseLeading = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(2);
+        scheduler.setTriggerPolicy("a", TriggerPolicy.throttle(Duration.ofMillis(200)));
+        scheduler.schedule(
+            "a",
+            () -> new QueueingScheduler.Task() {
+                @Override
+                public void run() {
+                    numRuns.incrementAndGet();
+                    leadingStarted.countDown();
+                    try {
+                        releaseLeading.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    ran.countDown();
+                }
+            },
+            Instant.now().plus(Duration.ofHours(1)),
+            null
+        );
+        scheduler.start();
+
+        // act: remaining triggers of the burst arrive while the leading execution is still running
+        scheduler.trigger("a");
+        boolean isLeadingStarted = leadingStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        for (int i = 1; i < 1000; i++) {
+            scheduler.trigger("a");
+        }
+        releaseLeading.countDown();
+        boolean result = ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Instant pending = scheduler.getScheduledTime("a");
+        scheduler.shutdownAndWait(Duration.ofSeconds(TIMEOUT_SECONDS));
+
+        // assert
+        assertAll(
+            () -> assertThat(isLeadingStarted).describedAs("leading execution started").isTrue(),
+            () -> assertThat(result).describedAs("ran twice").isTrue(),
+            () -> assertThat(pending).describedAs("pending execution").isNull(),
+            () -> assertThat(numRuns).describedAs("number of runs").hasValue(2)
+        );
+    }
+
+    private static QueueingScheduler.Task newCountingTask(AtomicInteger numRuns, CountDownLatch ran) {
+        return new QueueingScheduler.Task() {
+            @Override
+            public void run() {
+                numRuns.incrementAndGet();
+                ran.countDown();
+            }
+        };
+    }
+
+    /**
+     * Records start and end of task executions, counting down until all expected events have been received.
+     */
+    private static class EventLog {
+        private final Queue<String> events = new ConcurrentLinkedQueue<>();
+        private final CountDownLatch remaining;
+
+        EventLog(int numExpected) {
+            remaining = new CountDownLatch(numExpected);
+        }
+
+        void add(String event) {
+            events.add(event);
+            remaining.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return remaining.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        List<String> get() {
+            return new ArrayList<>(events);
+        }
+    }
+
+    /**
+     * Registers a task which is not due on its own, recording start and end of each execution.
+     */
+    private void registerRecordingTask(String name, EventLog events, boolean fail) {
+        scheduler.schedule(
+            name,
+            () -> new QueueingScheduler.Task() {
+                @Override
+                public void run() {
+                    events.add("start " + name);
+                    try {
+                        Thread.sleep(TASK_DURATION.toMillis() / 4);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    events.add("end " + name);
+                    if (fail) {
+                        throw new IllegalStateException("test");
+                    }
+                }
+            },
+            Instant.now().plus(Duration.ofHours(1)),
+            null
+        );
+    }
+
+    /**
+     * Waits for the scheduler to become idle, i.e. no task is running and no due task is waiting to be started.
+     * Follow-up executions are requested before a finished task stops counting as running, so no further executions
+     * can occur once idle unless triggered again.
+     *
+     * @return {@code true} if the scheduler became idle, {@code false} if it timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private boolean awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!scheduler.isIdle()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @Test
+    void testTrigger_dependencyChain_runsDownstreamTasksInOrder() throws Exception {
+        // arrange
+        EventLog events = new EventLog(6);
+        scheduler.setMaxConcurrency(3)
+                 .addDependency("b", "a")
+                 .addDependency("c", "b");
+        registerRecordingTask("a", events, false);
+        registerRecordingTask("b", events, false);
+        registerRecordingTask("c", events, false);
+        scheduler.start();
+
+        // act
+        scheduler.trigger("a");
+        boolean isComplete = events.await();
+        boolean isIdle = awaitIdle();
+
+        // assert
+        assertAll(
+            () -> assertThat(isComplete).describedAs("all events received").isTrue(),
+            () -> assertThat(isIdle).describedAs("idle").isTrue(),
+            () -> assertThat(events.get()).describedAs("events").containsExactly("start a", "end a", "start b", "end b", "start c", "end c")
+        );
+    }
+
+    @Test
+    void testTrigger_diamondDependencies_runsBranchesInParallelAndJoinsOnce() throws Exception {
+        // arrange
+        EventLog events = new EventLog(8);
+        scheduler.setMaxConcurrency(3)
+                 .addDependency("b", "a")
+                 .addDependency("c", "a")
+                 .addDependency("d", "b")
+                 .addDependency("d", "c");
+        registerRecordingTask("a", events, false);
+        registerRecordingTask("b", events, false);
+        registerRecordingTask("c", events, false);
+        registerRecordingTask("d", events, false);
+        scheduler.start();
+
+        // act
+        scheduler.trigger("a");
+        boolean isComplete = events.await();
+        boolean isIdle = awaitIdle();
+        List<String> result = events.get();
+
+        // assert
+        assertAll(
+            () -> assertThat(isComplete).describedAs("all events received").isTrue(),
+            () -> assertThat(isIdle).describedAs("idle").isTrue(),
+            () -> assertThat(result).describedAs("events").hasSize(8),
+            () -> assertThat(result.subList(0, 2)).describedAs("root").containsExactly("start a", "end a"),
+            () -> assertThat(result.subList(2, 4)).describedAs("branches started in parallel").containsExactlyInAnyOrder("start b", "start c"),
+            () -> assertThat(result.subList(6, 8)).describedAs("join").containsExactly("start d", "end d")
+        );
+    }
+
+    @Test
+    void testTrigger_upstreamFails_skipsDownstreamTasks() throws Exception {
+        // arrange
+        EventLog events = new EventLog(2);
+        scheduler.setMaxConcurrency(3)
+                 .addDependency("b", "a")
+                 .addDependency("c", "b");
+        registerRecordingTask("a", events, true);
+        registerRecordingTask("b", events, false);
+        registerRecordingTask("c", events, false);
+        scheduler.start();
+
+        // act
+        scheduler.trigger("a");
+        boolean isComplete = events.await();
+        boolean isIdle = awaitIdle();
+
+        // assert
+        assertAll(
+            () -> assertThat(isComplete).describedAs("all events received").isTrue(),
+            () -> assertThat(isIdle).describedAs("idle").isTrue(),
+            () -> assertThat(events.get()).describedAs("events").containsExactly("start a", "end a")
+        );
+    }
+
+    @Test
+    void testTrigger_downstreamFailsInstantiation_releasesTasksFurtherDownstream() throws Exception {
+        // arrange
+        EventLog events = new EventLog(4);
+        scheduler.setMaxConcurrency(3)
+                 .addDependency("b", "a")
+                 .addDependency("c", "b");
+        registerRecordingTask("a", events, false);
+        scheduler.schedule(
+            "b",
+            () -> {
+                throw new IllegalStateException("test");
+            },
+            Instant.now().plus(Duration.ofHours(1)),
+            null
+        );
+        registerRecordingTask("c", events, false);
+        scheduler.start();
+        scheduler.trigger("a");
+        boolean isSkipped = awaitIdle();
+
+        // act
+        scheduler.trigger("c");
+        boolean isComplete = events.await();
+
+        // assert
+        assertAll(
+            () -> assertThat(isSkipped).describedAs("idle after skipping").isTrue(),
+            () -> assertThat(isComplete).describedAs("all events received").isTrue(),
+            () -> assertThat(events.get()).describedAs("events").containsExactly("start a", "end a", "start c", "end c")
+        );
+    }
+
+    @Test
+    void testTrigger_downstreamTaskDirectly_doesNotRunUpstreamTasks() throws Exception {
+        // arrange
+        EventLog events = new EventLog(4);
+        scheduler.addDependency("b", "a")
+                 .addDependency("c", "b");
+        registerRecordingTask("a", events, false);
+        registerRecordingTask("b", events, false);
+        registerRecordingTask("c", events, false);
+        scheduler.start();
+
+        // act
+        scheduler.trigger("b");
+        boolean isComplete = events.await();
+        boolean isIdle = awaitIdle();
+
+        // assert
+        assertAll(
+            () -> assertThat(isComplete).describedAs("all events received").isTrue(),
+            () -> assertThat(isIdle).describedAs("idle").isTrue(),
+            () -> assertThat(events.get()).describedAs("events").containsExactly("start b", "end b", "start c", "end c")
+        );
+    }
+
+    @Test
+    void testAddDependency_cycle_throwsIllegalArgumentException() {
+        // arrange
+        scheduler.addDependency("b", "a")
+                 .addDependency("c", "b");
+
+        // act
+        ThrowingCallable action = () -> scheduler.addDependency("a", "c");
+
+        // assert
+        assertThatThrownBy(action).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSetMaxConcurrency_zero_throwsIllegalArgumentException() {
+        // act
+        ThrowingCallable action = () -> scheduler.setMaxConcurrency(0);
+
+        // assert
+        assertThatThrownBy(action).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,127 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class ScheduleTest {
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void testFirst_empty_returnsNull() {
+        // arrange
+        Schedule schedule = new Schedule();
+
+        // act
+        Schedule.Entry result = schedule.first();
+
+        // assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void testFirst_multipleEntries_returnsEarliest() {
+        // arrange
+        Schedule schedule = new Schedule();
+        schedule.put("c", T0.plusSeconds(30));
+        schedule.put("a", T0.plusSeconds(10));
+        schedule.put("b", T0.plusSeconds(20));
+
+        // act
+        Schedule.Entry result = schedule.first();
+
+        // assert
+        assertAll(
+            () -> assertThat(result.getName()).describedAs("name").isEqualTo("a"),
+            () -> assertThat(result.getTime()).describedAs("time").isEqualTo(T0.plusSeconds(10))
+        );
+    }
+
+    @Test
+    void testFirst_sameTime_returnsEntryScheduledFirst() {
+        // arrange
+        Schedule schedule = new Schedule();
+        schedule.put("b", T0);
+        schedule.put("a", T0);
+
+        // act
+        Schedule.Entry result = schedule.first();
+
+        // assert
+        assertThat(result.getName()).isEqualTo("b");
+    }
+
+    @Test
+    void testPut_rescheduledEarlier_replacesPreviousTime() {
+        // arrange
+        Schedule schedule = new Schedule();
+        schedule.put("a", T0.plusSeconds(10));
+        schedule.put("b", T0.plusSeconds(20));
+
+        // act
+        schedule.put("b", T0.plusSeconds(5));
+
+        // assert
+        assertAll(
+            () -> assertThat(schedule.first().getName()).describedAs("first").isEqualTo("b"),
+            () -> assertThat(schedule.get("b")).describedAs("time of b").isEqualTo(T0.plusSeconds(5)),
+            () -> assertThat(schedule.size()).describedAs("size").isEqualTo(2)
+        );
+    }
+
+    @Test
+    void testPut_rescheduledLater_replacesPreviousTime() {
+        // arrange
+        Schedule schedule = new Schedule();
+        schedule.put("a", T0.plusSeconds(10));
+        schedule.put("b", T0.plusSeconds(20));
+
+        // act
+        schedule.put("a", T0.plusSeconds(30));
+
+        // assert
+        assertAll(
+            () -> assertThat(schedule.first().getName()).describedAs("first").isEqualTo("b"),
+            () -> assertThat(schedule.get("a")).describedAs("time of a").isEqualTo(T0.plusSeconds(30)),
+            () -> assertThat(schedule.size()).describedAs("size").isEqualTo(2)
+        );
+    }
+
+    @Test
+    void testRemove_earliest_nextEntryBecomesFirst() {
+        // arrange
+        Schedule schedule = new Schedule();
+        schedule.put("a", T0.plusSeconds(10));
+        schedule.put("b", T0.plusSeconds(20));
+
+        // act
+        schedule.remove("a");
+
+        // assert
+        assertAll(
+            () -> assertThat(schedule.first().getName()).describedAs("first").isEqualTo("b"),
+            () -> assertThat(schedule.containsKey("a")).describedAs("contains removed entry").isFalse(),
+            () -> assertThat(schedule.get("a")).describedAs("time of removed entry").isNull()
+        );
+    }
+
+    @Test
+    void testClear_withEntries_removesAll() {
+        // arrange
+        Schedule schedule = new Schedule();
+        schedule.put("a", T0);
+        schedule.put("b", T0);
+
+        // act
+        schedule.clear();
+
+        // assert
+        assertAll(
+            () -> assertThat(schedule.first()).describedAs("first").isNull(),
+            () -> assertThat(schedule.size()).describedAs("size").isZero()
+        );
+    }
+}
@@ -0,0 +1,89 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class SchedulerMetricsTest {
+    private static final Instant SCHEDULED_TIME = Instant.parse("2024-01-02T03:04:05Z");
+
+    private final SchedulerMetrics metrics = new SchedulerMetrics(() -> 3);
+
+    @Test
+    void testGetSnapshot_started_recordsRunningTaskAndLag() {
+        // arrange
+        Instant startTime = SCHEDULED_TIME.plusMillis(250);
+        metrics.onTaskStarted("a", SCHEDULED_TIME, startTime);
+
+        // act
+        SchedulerMetrics.Snapshot result = metrics.getSnapshot();
+
+        // assert
+        SchedulerMetrics.TaskStatistics statistics = result.getTasks().get("a");
+        assertAll(
+            () -> assertThat(result.getQueueDepth()).describedAs("queue depth").isEqualTo(3),
+            () -> assertThat(result.getRunningTasks()).describedAs("running tasks").containsEntry("a", startTime),
+            () -> assertThat(statistics.getNumStarted()).describedAs("number of starts").isEqualTo(1),
+            () -> assertThat(statistics.getLastStarted()).describedAs("last start").isEqualTo(startTime),
+            () -> assertThat(statistics.getStartLag().getMax()).describedAs("start lag").isEqualTo(Duration.ofMillis(250))
+        );
+    }
+
+    @Test
+    void testGetSnapshot_finished_recordsDurationAndFailures() {
+        // arrange
+        metrics.onTaskStarted("a", SCHEDULED_TIME, SCHEDULED_TIME);
+        metrics.onTaskFinished("a", Duration.ofSeconds(2), null);
+        metrics.onTaskStarted("a", SCHEDULED_TIME, SCHEDULED_TIME);
+        metrics.onTaskFinished("a", Duration.ofSeconds(4), new RuntimeException("test"));
+
+        // act
+        SchedulerMetrics.Snapshot result = metrics.getSnapshot();
+
+        // assert
+        SchedulerMetrics.TaskStatistics statistics = result.getTasks().get("a");
+        assertAll(
+            () -> assertThat(result.getRunningTasks()).describedAs("running tasks").isEmpty(),
+            () -> assertThat(statistics.getNumStarted()).describedAs("number of starts").isEqualTo(2),
+            () -> assertThat(statistics.getNumFailed()).describedAs("number of failures").isEqualTo(1),
+            () -> assertThat(statistics.getRunDuration().getCount()).describedAs("recorded durations").isEqualTo(2),
+            () -> assertThat(statistics.getRunDuration().getMean()).describedAs("mean duration").isEqualTo(Duration.ofSeconds(3))
+        );
+    }
+
+    @Test
+    void testOnTaskFinished_withListener_forwardsEvent() {
+        // arrange
+        SchedulerListener listener = mock(SchedulerListener.class);
+        metrics.setListener(listener);
+        Exception failure = new RuntimeException("test");
+
+        // act
+        metrics.onTaskFinished("a", Duration.ofSeconds(1), failure);
+
+        // assert
+        verify(listener).onTaskFinished("a", Duration.ofSeconds(1), failure);
+    }
+
+    @Test
+    void testOnTaskStarted_failingListener_stillRecords() {
+        // arrange
+        SchedulerListener listener = mock(SchedulerListener.class);
+        doThrow(new IllegalStateException("test")).when(listener).onTaskStarted(any(), any(), any());
+        metrics.setListener(listener);
+
+        // act
+        metrics.onTaskStarted("a", SCHEDULED_TIME, SCHEDULED_TIME);
+
+        // assert
+        assertThat(metrics.getSnapshot().getTasks().get("a").getNumStarted()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,192 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SharedTimerTest {
+    private static final Duration TICK_DURATION = Duration.ofMillis(10);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private SharedTimer timer;
+
+    @BeforeEach
+    void startTimer() {
+        timer = new SharedTimer("test timer", TICK_DURATION, 8, null);
+        timer.start();
+    }
+
+    @AfterEach
+    void shutdownTimer() throws Exception {
+        timer.shutdownAndWait(Duration.ofSeconds(TIMEOUT_SECONDS));
+    }
+
+    private SimpleScheduler createStartedScheduler(Runnable action) {
+        SimpleScheduler scheduler = timer.createScheduler("test")
+                                         .onTrigger(action)
+                                         .setEnabled(true);
+        scheduler.start();
+        return scheduler;
+    }
+
+    @Test
+    void testSetNextTrigger_startedScheduler_triggersNotBeforeDeadline() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        AtomicReference<Instant> triggerTime = new AtomicReference<>();
+        SimpleScheduler scheduler = createStartedScheduler(() -> {
+            triggerTime.set(Instant.now());
+            triggered.countDown();
+        });
+        Instant deadline = Instant.now().plusMillis(100);
+
+        // act
+        scheduler.setNextTrigger(deadline);
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("triggered").isTrue(),
+            () -> assertThat(triggerTime.get()).describedAs("trigger time").isAfterOrEqualTo(deadline)
+        );
+    }
+
+    @Test
+    void testSetNextTrigger_deadlineBeyondWheelRevolution_triggers() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        SimpleScheduler scheduler = createStartedScheduler(triggered::countDown);
+
+        // act
+        scheduler.setNextTrigger(Instant.now().plus(TICK_DURATION.multipliedBy(20)));
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testSetNextTrigger_manySchedulers_triggersAll() throws Exception {
+        // arrange
+        int numSchedulers = 200;
+        CountDownLatch triggered = new CountDownLatch(numSchedulers);
+        Instant now = Instant.now();
+
+        // act
+        for (int i = 0; i < numSchedulers; i++) {
+            createStartedScheduler(triggered::countDown).setNextTrigger(now.plusMillis(i));
+        }
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testSchedule_farFutureTriggerRegistered_onlyWakesUpForDueTicks() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        long numWakeUpsBefore = timer.getNumWakeUps();
+
+        // act
+        timer.schedule(() -> {
+        }, Instant.now().plus(Duration.ofHours(1)));
+        timer.schedule(triggered::countDown, Instant.now().plus(TICK_DURATION.multipliedBy(20)));
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long numWakeUps = timer.getNumWakeUps() - numWakeUpsBefore;
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("triggered").isTrue(),
+            () -> assertThat(numWakeUps).describedAs("number of wake-ups over 20 ticks").isLessThan(10)
+        );
+    }
+
+    @Test
+    void testCancel_registeredTrigger_removesTrigger() {
+        // arrange
+        SharedTimer.Timeout timeout = timer.schedule(() -> {
+        }, Instant.now().plus(Duration.ofHours(1)));
+
+        // act
+        timeout.cancel();
+
+        // assert
+        assertThat(timer.getNumPendingTriggers()).isZero();
+    }
+
+    @Test
+    void testStart_repeatInterval_triggersRepeatedly() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(3);
+        SimpleScheduler scheduler = timer.createScheduler("test")
+                                         .onTrigger(triggered::countDown)
+                                         .setRepeatInterval(Duration.ofMillis(20))
+                                         .setNextTrigger(Instant.now())
+                                         .setEnabled(true);
+
+        // act
+        scheduler.start();
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testSetNextTrigger_disabled_doesNotTrigger() throws Exception {
+        // arrange
+        AtomicInteger numTriggered = new AtomicInteger();
+        SimpleScheduler scheduler = createStartedScheduler(numTriggered::incrementAndGet).setEnabled(false);
+
+        // act
+        scheduler.setNextTrigger(Instant.now());
+        Thread.sleep(200);
+
+        // assert
+        assertThat(numTriggered).hasValue(0);
+    }
+
+    @Test
+    void testSetEnabled_afterDeadlinePassedWhileDisabled_triggers() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        SimpleScheduler scheduler = createStartedScheduler(triggered::countDown).setEnabled(false)
+                                                                               .setNextTrigger(Instant.now());
+
+        // act
+        scheduler.setEnabled(true);
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testShutdownAndJoin_pendingTrigger_doesNotTrigger() throws Exception {
+        // arrange
+        AtomicInteger numTriggered = new AtomicInteger();
+        SimpleScheduler scheduler = createStartedScheduler(numTriggered::incrementAndGet);
+        scheduler.setNextTrigger(Instant.now().plusMillis(50));
+
+        // act
+        boolean result = scheduler.shutdownAndJoin(Duration.ofSeconds(TIMEOUT_SECONDS));
+        Thread.sleep(200);
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("result").isTrue(),
+            () -> assertThat(numTriggered).describedAs("number of triggers").hasValue(0)
+        );
+    }
+}
@@ -0,0 +1,221 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SimpleSchedulerTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Triggers are expected well before this delay; the scheduler used to poll at 30 second intervals.
+     */
+    private static final Duration MAX_LATENCY = Duration.ofSeconds(5);
+
+    private final SimpleScheduler scheduler = new SimpleScheduler("test");
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownAndJoin(Duration.ofSeconds(TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Waits for the scheduler thread to become idle, i.e. to wait without a timeout because nothing is due.
+     *
+     * @return {@code true} if the scheduler became idle, {@code false} if it timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private boolean awaitIdle() throws InterruptedException {
+        Instant deadline = Instant.now().plus(MAX_LATENCY);
+        while (scheduler.getState() != Thread.State.WAITING) {
+            if (Instant.now().isAfter(deadline)) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @Test
+    void testSetNextTrigger_started_triggersAtDeadline() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        AtomicReference<Instant> triggerTime = new AtomicReference<>();
+        scheduler.onTrigger(() -> {
+                     triggerTime.set(Instant.now());
+                     triggered.countDown();
+                 })
+                 .setEnabled(true)
+                 .start();
+        Instant deadline = Instant.now().plusMillis(100);
+
+        // act
+        scheduler.setNextTrigger(deadline);
+        boolean result = triggered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("triggered").isTrue(),
+            () -> assertThat(triggerTime.get()).describedAs("trigger time")
+                                               .isAfterOrEqualTo(deadline)
+                                               .isBefore(deadline.plus(MAX_LATENCY))
+        );
+    }
+
+    @Test
+    void testSetNextTriggerIfEarlier_waitingForLaterTrigger_triggersEarly() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        scheduler.onTrigger(triggered::countDown)
+                 .setNextTrigger(Instant.now().plus(Duration.ofHours(1)))
+                 .setEnabled(true)
+                 .start();
+
+        // act
+        scheduler.setNextTriggerIfEarlier(Duration.ZERO);
+        boolean result = triggered.await(MAX_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testSetEnabled_dueWhileDisabled_triggers() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(1);
+        scheduler.onTrigger(triggered::countDown)
+                 .setNextTrigger(Instant.now())
+                 .start();
+        assertThat(awaitIdle()).describedAs("idle while disabled").isTrue();
+
+        // act
+        scheduler.setEnabled(true);
+        boolean result = triggered.await(MAX_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testStart_repeatInterval_triggersRepeatedly() throws Exception {
+        // arrange
+        CountDownLatch triggered = new CountDownLatch(3);
+        scheduler.onTrigger(triggered::countDown)
+                 .setRepeatInterval(Duration.ofMillis(20))
+                 .setNextTrigger(Instant.now())
+                 .setEnabled(true);
+
+        // act
+        scheduler.start();
+        boolean result = triggered.await(MAX_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+
+        // assert
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void testStart_disabled_doesNotTrigger() throws Exception {
+        // arrange
+        AtomicInteger numTriggered = new AtomicInteger();
+        scheduler.onTrigger(numTriggered::incrementAndGet)
+                 .setNextTrigger(Instant.now());
+
+        // act
+        scheduler.start();
+        boolean isIdle = awaitIdle();
+        scheduler.shutdownAndJoin(Duration.ofSeconds(TIMEOUT_SECONDS));
+
+        // assert
+        assertAll(
+            () -> assertThat(isIdle).describedAs("idle").isTrue(),
+            () -> assertThat(numTriggered).describedAs("number of triggers").hasValue(0)
+        );
+    }
+
+    @Test
+    void testGetMetrics_triggered_recordsExecution() throws Exception {
+        // arrange
+        CountDownLatch finished = new CountDownLatch(1);
+        scheduler.onTrigger(() -> {
+                     throw new IllegalStateException("test");
+                 })
+                 .setListener(new SchedulerListener() {
+                     @Override
+                     public void onTaskFinished(String taskName, Duration duration, Exception failure) {
+                         finished.countDown();
+                     }
+                 })
+                 .setNextTrigger(Instant.now())
+                 .setEnabled(true);
+
+        // act
+        scheduler.start();
+        boolean result = finished.await(MAX_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+        SchedulerMetrics.Snapshot snapshot = scheduler.getMetrics();
+
+        // assert
+        SchedulerMetrics.TaskStatistics statistics = snapshot.getTasks().get("test");
+        assertAll(
+            () -> assertThat(result).describedAs("finished").isTrue(),
+            () -> assertThat(statistics.getNumStarted()).describedAs("number of starts").isEqualTo(1),
+            () -> assertThat(statistics.getNumFailed()).describedAs("number of failures").isEqualTo(1),
+            () -> assertThat(statistics.getStartLag().getMax()).describedAs("start lag").isLessThan(MAX_LATENCY),
+            () -> assertThat(snapshot.getQueueDepth()).describedAs("queue depth").isZero()
+        );
+    }
+
+    @Test
+    void testSetNextTriggerIfEarlier_burstWithDebouncePolicy_triggersOnce() throws Exception {
+        // arrange
+        AtomicInteger numTriggered = new AtomicInteger();
+        CountDownLatch triggered = new CountDownLatch(1);
+        scheduler.onTrigger(() -> {
+                     numTriggered.incrementAndGet();
+                     triggered.countDown();
+                 })
+                 .setTriggerPolicy(TriggerPolicy.debounce(Duration.ofMillis(100), Duration.ofSeconds(1)))
+                 .setEnabled(true);
+
+        // burst is completed before the scheduler is started, so it cannot be split by a slow test run
+        for (int i = 0; i < 1000; i++) {
+            scheduler.setNextTriggerIfEarlier(Duration.ZERO);
+        }
+
+        // act
+        scheduler.start();
+        boolean result = triggered.await(MAX_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+        boolean isIdle = awaitIdle();
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("triggered").isTrue(),
+            () -> assertThat(isIdle).describedAs("idle").isTrue(),
+            () -> assertThat(scheduler.getNextTrigger()).describedAs("next trigger").isEqualTo(Instant.MAX),
+            () -> assertThat(numTriggered).describedAs("number of triggers").hasValue(1)
+        );
+    }
+
+    @Test
+    void testShutdownAndJoin_idle_terminatesThread() {
+        // arrange
+        scheduler.setEnabled(true).start();
+
+        // act
+        boolean result = scheduler.shutdownAndJoin(MAX_LATENCY);
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("result").isTrue(),
+            () -> assertThat(scheduler.isAlive()).describedAs("alive").isFalse()
+        );
+    }
+}
@@ -0,0 +1,159 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class TriggerCoalescerTest {
+    private static final Instant T0 = Instant.parse("2024-01-02T03:04:05Z");
+
+    private static Instant at(long millis) {
+        return T0.plusMillis(millis);
+    }
+
+    @Test
+    void testOnTrigger_debounce_postponesUntilQuiet() {
+        // arrange
+        TriggerCoalescer coalescer = new TriggerCoalescer(TriggerPolicy.debounce(Duration.ofMillis(100), null));
+        coalescer.onTrigger(at(0));
+
+        // act
+        Instant result = coalescer.onTrigger(at(50));
+
+        // assert
+        assertThat(result).isEqualTo(at(150));
+    }
+
+    @Test
+    void testOnTrigger_debounceWithMaxDelay_limitsPostponement() {
+        // arrange
+        TriggerCoalescer coalescer = new TriggerCoalescer(TriggerPolicy.debounce(Duration.ofMillis(100), Duration.ofMillis(200)));
+        coalescer.onTrigger(at(0));
+        coalescer.onTrigger(at(90));
+
+        // act
+        Instant result = coalescer.onTrigger(at(180));
+
+        // assert
+        assertThat(result).isEqualTo(at(200));
+    }
+
+    @Test
+    void testOnTrigger_throttleFirstTrigger_runsImmediately() {
+        // arrange
+        TriggerCoalescer coalescer = new TriggerCoalescer(TriggerPolicy.throttle(Duration.ofSeconds(1)));
+
+        // act
+        Instant result = coalescer.onTrigger(at(0));
+
+        // assert
+        assertThat(result).isEqualTo(at(0));
+    }
+
+    @Test
+    void testOnTrigger_throttleBeforeRunStarted_returnsPendingTime() {
+        // arrange
+        TriggerCoalescer coalescer = new TriggerCoalescer(TriggerPolicy.throttle(Duration.ofSeconds(1)));
+        coalescer.onTrigger(at(0));
+
+        // act
+        Instant result = coalescer.onTrigger(at(10));
+
+        // assert
+        assertThat(result).isEqualTo(at(0));
+    }
+
+    @Test
+    void testOnTrigger_throttleAfterRunStarted_waitsForMinSpacing() {
+        // arrange
+        TriggerCoalescer coalescer = new TriggerCoalescer(TriggerPolicy.throttle(Duration.ofSeconds(1)));
+        coalescer.onTrigger(at(0));
+        coalescer.onRunStarted(at(5));
+
+        // act
+        Instant first = coalescer.onTrigger(at(10));
+        Instant second = coalescer.onTrigger(at(500));
+
+        // assert
+        assertAll(
+            () -> assertThat(first).describedAs("first trigger after run").isEqualTo(at(1005)),
+            () -> assertThat(second).describedAs("second trigger after run").isEqualTo(at(1005))
+        );
+    }
+
+    @Test
+    void testOnTrigger_leadingOnlyWithinBurst_dropsTrigger() {
+        // arrange
+        TriggerPolicy policy = TriggerPolicy.builder()
+                                            .setQuietPeriod(Duration.ofMillis(100))
+                                            .setLeadingEdge(true)
+                                            .setTrailingEdge(false)
+                                            .build();
+        TriggerCoalescer coalescer = new TriggerCoalescer(policy);
+        coalescer.onTrigger(at(0));
+        coalescer.onRunStarted(at(1));
+
+        // act
+        Instant result = coalescer.onTrigger(at(50));
+
+        // assert
+        assertAll(
+            () -> assertThat(result).describedAs("result").isNull(),
+            () -> assertThat(coalescer.getPendingTime()).describedAs("pending time").isNull()
+        );
+    }
+
+    @Test
+    void testOnTrigger_leadingOnlyAfterQuietPeriod_runsImmediately() {
+        // arrange
+        TriggerPolicy policy = TriggerPolicy.builder()
+                                            .setQuietPeriod(Duration.ofMillis(100))
+                                            .setLeadingEdge(true)
+                                            .setTrailingEdge(false)
+                                            .build();
+        TriggerCoalescer coalescer = new TriggerCoalescer(policy);
+        coalescer.onTrigger(at(0));
+        coalescer.onRunStarted(at(1));
+
+        // act
+        Instant result = coalescer.onTrigger(at(150));
+
+        // assert
+        assertThat(result).isEqualTo(at(150));
+    }
+
+    @Test
+    void testOnTrigger_leadingAndTrailingWithinBurst_runsAfterQuietPeriod() {
+        // arrange
+        TriggerPolicy policy = TriggerPolicy.builder()
+                                            .setQuietPeriod(Duration.ofMillis(100))
+                                            .setLeadingEdge(true)
+                                            .build();
+        TriggerCoalescer coalescer = new TriggerCoalescer(policy);
+        coalescer.onTrigger(at(0));
+        coalescer.onRunStarted(at(1));
+
+        // act
+        Instant result = coalescer.onTrigger(at(50));
+
+        // assert
+        assertThat(result).isEqualTo(at(150));
+    }
+
+    @Test
+    void testOnRunStarted_pending_clearsPendingTime() {
+        // arrange
+        TriggerCoalescer coalescer = new TriggerCoalescer(TriggerPolicy.debounce(Duration.ofMillis(100), null));
+        coalescer.onTrigger(at(0));
+
+        // act
+        coalescer.onRunStarted(at(100));
+
+        // assert
+        assertThat(coalescer.getPendingTime()).isNull();
+    }
+}
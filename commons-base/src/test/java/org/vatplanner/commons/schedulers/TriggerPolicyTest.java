@@ -0,0 +1,66 @@
+package org.vatplanner.commons.schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.time.Duration;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.Test;
+
+class TriggerPolicyTest {
+    @Test
+    void testDebounce_always_enablesTrailingEdgeOnly() {
+        // act
+        TriggerPolicy result = TriggerPolicy.debounce(Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+        // assert
+        assertAll(
+            () -> assertThat(result.getQuietPeriod()).describedAs("quiet period").isEqualTo(Duration.ofSeconds(1)),
+            () -> assertThat(result.getMaxDelay()).describedAs("maximum delay").isEqualTo(Duration.ofSeconds(5)),
+            () -> assertThat(result.getMinSpacing()).describedAs("minimum spacing").isEqualTo(Duration.ZERO),
+            () -> assertThat(result.isLeadingEdge()).describedAs("leading edge").isFalse(),
+            () -> assertThat(result.isTrailingEdge()).describedAs("trailing edge").isTrue()
+        );
+    }
+
+    @Test
+    void testThrottle_always_enablesBothEdges() {
+        // act
+        TriggerPolicy result = TriggerPolicy.throttle(Duration.ofSeconds(1));
+
+        // assert
+        assertAll(
+            () -> assertThat(result.getMinSpacing()).describedAs("minimum spacing").isEqualTo(Duration.ofSeconds(1)),
+            () -> assertThat(result.getQuietPeriod()).describedAs("quiet period").isEqualTo(Duration.ZERO),
+            () -> assertThat(result.getMaxDelay()).describedAs("maximum delay").isNull(),
+            () -> assertThat(result.isLeadingEdge()).describedAs("leading edge").isTrue(),
+            () -> assertThat(result.isTrailingEdge()).describedAs("trailing edge").isTrue()
+        );
+    }
+
+    @Test
+    void testBuild_noEdge_throwsIllegalArgumentException() {
+        // arrange
+        TriggerPolicy.Builder builder = TriggerPolicy.builder().setTrailingEdge(false);
+
+        // act
+        ThrowingCallable action = builder::build;
+
+        // assert
+        assertThatThrownBy(action).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testBuild_negativeMinSpacing_throwsIllegalArgumentException() {
+        // arrange
+        TriggerPolicy.Builder builder = TriggerPolicy.builder().setMinSpacing(Duration.ofMillis(-1));
+
+        // act
+        ThrowingCallable action = builder::build;
+
+        // assert
+        assertThatThrownBy(action).isInstanceOf(IllegalArgumentException.class);
+    }
+}
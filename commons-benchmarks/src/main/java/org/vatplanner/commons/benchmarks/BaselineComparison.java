@@ -0,0 +1,229 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.github.cliftonlabs.json_simple.JsonArray;
+import com.github.cliftonlabs.json_simple.JsonException;
+import com.github.cliftonlabs.json_simple.JsonObject;
+import com.github.cliftonlabs.json_simple.Jsoner;
+
+/**
+ * Compares JMH results against a stored baseline, both written in JSON format ({@code -rf json}).
+ * <p>
+ * Benchmarks are matched by name and parameters. Changes are reported relative to the baseline so that positive
+ * values always indicate an improvement, i.e. higher throughput or lower time per operation. The process exits with
+ * status 1 if any benchmark regressed by more than the given percentage (default: {@value #DEFAULT_MAX_REGRESSION_PERCENT}).
+ * </p>
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar org.vatplanner.commons.benchmarks.BaselineComparison baseline.json current.json [maxRegressionPercent]}
+ * </p>
+ */
+public class BaselineComparison {
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10.0;
+
+    private BaselineComparison() {
+        // utility class; hide constructor
+    }
+
+    static class Result {
+        final String key;
+        final String mode;
+        final double score;
+        final double scoreError;
+        final String unit;
+
+        Result(String key, String mode, double score, double scoreError, String unit) {
+            this.key = key;
+            this.mode = mode;
+            this.score = score;
+            this.scoreError = scoreError;
+            this.unit = unit;
+        }
+
+        /**
+         * Indicates if higher scores are better, i.e. the benchmark measures throughput instead of time.
+         *
+         * @return {@code true} if higher scores are better, {@code false} if lower scores are better
+         */
+        boolean isHigherBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    static class Comparison {
+        final String key;
+        final Result baseline;
+        final Result current;
+
+        Comparison(String key, Result baseline, Result current) {
+            this.key = key;
+            this.baseline = baseline;
+            this.current = current;
+        }
+
+        /**
+         * Returns the change relative to the baseline in percent; positive values indicate an improvement.
+         *
+         * @return relative change in percent; {@link Double#NaN} if either result is missing
+         */
+        double getImprovementPercent() {
+            if ((baseline == null) || (current == null) || (baseline.score == 0.0)) {
+                return Double.NaN;
+            }
+
+            double change = (current.score - baseline.score) / baseline.score * 100.0;
+            return baseline.isHigherBetter() ? change : -change;
+        }
+
+        boolean isRegression(double maxRegressionPercent) {
+            return getImprovementPercent() < -maxRegressionPercent;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, JsonException {
+        if ((args.length < 2) || (args.length > 3)) {
+            System.err.println("usage: BaselineComparison <baseline.json> <current.json> [maxRegressionPercent]");
+            System.exit(2);
+            return;
+        }
+
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        double maxRegressionPercent = (args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+
+        List<Comparison> comparisons = compare(baseline, current);
+        boolean hasRegressions = print(System.out, comparisons, maxRegressionPercent);
+
+        System.exit(hasRegressions ? 1 : 0);
+    }
+
+    private static Map<String, Result> read(String path) throws IOException, JsonException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parses JMH results in JSON format.
+     *
+     * @param reader provides JSON results
+     * @return results indexed by benchmark name and parameters
+     * @throws JsonException if the JSON cannot be parsed
+     */
+    static Map<String, Result> parse(Reader reader) throws JsonException {
+        Map<String, Result> out = new LinkedHashMap<>();
+
+        JsonArray json = (JsonArray) Jsoner.deserialize(reader);
+        for (Object item : json) {
+            JsonObject benchmark = (JsonObject) item;
+
+            String key = key(benchmark);
+            String mode = (String) benchmark.get("mode");
+
+            JsonObject primaryMetric = (JsonObject) benchmark.get("primaryMetric");
+            double score = toDouble(primaryMetric.get("score"));
+            double scoreError = toDouble(primaryMetric.get("scoreError"));
+            String unit = (String) primaryMetric.get("scoreUnit");
+
+            out.put(key, new Result(key, mode, score, scoreError, unit));
+        }
+
+        return out;
+    }
+
+    private static String key(JsonObject benchmark) {
+        StringBuilder sb = new StringBuilder((String) benchmark.get("benchmark"));
+
+        JsonObject params = (JsonObject) benchmark.get("params");
+        if (params != null) {
+            // sorted for stable keys regardless of order in file
+            Map<String, Object> sortedParams = new TreeMap<>(params);
+            sb.append(sortedParams);
+        }
+
+        return sb.toString();
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).doubleValue();
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        // JMH writes "NaN" as a string if the error cannot be determined
+        return Double.NaN;
+    }
+
+    /**
+     * Pairs results of both runs. Benchmarks only present in one of the runs are included with a {@code null} result
+     * for the other run.
+     *
+     * @param baseline results of the baseline run
+     * @param current  results of the current run
+     * @return comparisons in order of the baseline followed by benchmarks new to the current run
+     */
+    static List<Comparison> compare(Map<String, Result> baseline, Map<String, Result> current) {
+        List<Comparison> out = new ArrayList<>();
+
+        for (Map.Entry<String, Result> entry : baseline.entrySet()) {
+            out.add(new Comparison(entry.getKey(), entry.getValue(), current.get(entry.getKey())));
+        }
+
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            if (!baseline.containsKey(entry.getKey())) {
+                out.add(new Comparison(entry.getKey(), null, entry.getValue()));
+            }
+        }
+
+        return out;
+    }
+
+    private static boolean print(PrintStream out, List<Comparison> comparisons, double maxRegressionPercent) {
+        boolean hasRegressions = false;
+
+        for (Comparison comparison : comparisons) {
+            String status;
+            if (comparison.baseline == null) {
+                status = "NEW";
+            } else if (comparison.current == null) {
+                status = "MISSING";
+            } else if (comparison.isRegression(maxRegressionPercent)) {
+                status = "REGRESSION";
+                hasRegressions = true;
+            } else {
+                status = "ok";
+            }
+
+            out.printf(
+                "%-10s %+8.1f%%  %s  %s -> %s%n",
+                status,
+                comparison.getImprovementPercent(),
+                comparison.key,
+                format(comparison.baseline),
+                format(comparison.current)
+            );
+        }
+
+        return hasRegressions;
+    }
+
+    private static String format(Result result) {
+        if (result == null) {
+            return "-";
+        }
+
+        return String.format("%.3f +/- %.3f %s", result.score, result.scoreError, result.unit);
+    }
+}
@@ -0,0 +1,131 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.vatplanner.commons.amqp.Message;
+
+import com.github.cliftonlabs.json_simple.JsonArray;
+import com.github.cliftonlabs.json_simple.JsonKey;
+import com.github.cliftonlabs.json_simple.JsonObject;
+
+/**
+ * A {@link Message} of configurable size used to benchmark AMQP message handling.
+ * <p>
+ * The {@link Parser} is registered via SPI, so the message can be deserialized by
+ * {@link org.vatplanner.commons.amqp.MessageCodec}.
+ * </p>
+ */
+public class BenchmarkMessage implements Message {
+    private static final String MESSAGE_TYPE = "benchmark";
+
+    private final Instant timestamp;
+    private final String sender;
+    private final List<String> items;
+
+    private enum Key implements JsonKey {
+        TIMESTAMP("timestamp"),
+        SENDER("sender"),
+        ITEMS("items");
+
+        private final String key;
+
+        Key(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new message.
+     *
+     * @param timestamp creation timestamp
+     * @param sender    arbitrary sender name
+     * @param items     arbitrary content
+     */
+    public BenchmarkMessage(Instant timestamp, String sender, List<String> items) {
+        this.timestamp = timestamp;
+        this.sender = sender;
+        this.items = items;
+    }
+
+    /**
+     * Creates a new message holding the given number of items.
+     *
+     * @param timestamp creation timestamp
+     * @param numItems  number of items to generate
+     * @return new message
+     */
+    public static BenchmarkMessage withItems(Instant timestamp, int numItems) {
+        List<String> items = new ArrayList<>(numItems);
+        for (int i = 0; i < numItems; i++) {
+            items.add("item " + i + " of a message generated for benchmarking");
+        }
+
+        return new BenchmarkMessage(timestamp, "benchmark", items);
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String getMessageType() {
+        return MESSAGE_TYPE;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public List<String> getItems() {
+        return items;
+    }
+
+    @Override
+    public JsonObject toJson() {
+        JsonObject out = new JsonObject();
+        out.put(Key.TIMESTAMP.getKey(), timestamp.toString());
+        out.put(Key.SENDER.getKey(), sender);
+        out.put(Key.ITEMS.getKey(), new JsonArray(items));
+        return out;
+    }
+
+    /**
+     * Deserializes {@link BenchmarkMessage}s.
+     */
+    public static class Parser implements Message.Parser<BenchmarkMessage> {
+        @Override
+        public String getMessageType() {
+            return MESSAGE_TYPE;
+        }
+
+        @Override
+        public BenchmarkMessage fromJson(JsonObject json) {
+            json.requireKeys(Key.TIMESTAMP, Key.SENDER, Key.ITEMS);
+
+            JsonArray jsonItems = json.getCollection(Key.ITEMS);
+            List<String> items = new ArrayList<>(jsonItems.size());
+            for (int i = 0; i < jsonItems.size(); i++) {
+                items.add(jsonItems.getString(i));
+            }
+
+            return new BenchmarkMessage(
+                Instant.parse(json.getString(Key.TIMESTAMP)),
+                json.getString(Key.SENDER),
+                items
+            );
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.utils.Bytes;
+
+/**
+ * Measures conversion between bytes and hex strings through {@link Bytes}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BytesBenchmark {
+    @Param({"16", "4096"})
+    int length;
+
+    byte[] bytes;
+    String hexString;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[length];
+        new Random(1).nextBytes(bytes);
+        hexString = Bytes.toHexString(bytes);
+    }
+
+    @Benchmark
+    public String toHexString() {
+        return Bytes.toHexString(bytes);
+    }
+
+    @Benchmark
+    public byte[] parseHexString() {
+        return Bytes.parseHexString(hexString);
+    }
+}
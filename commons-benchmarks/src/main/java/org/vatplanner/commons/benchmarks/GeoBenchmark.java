@@ -0,0 +1,87 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.geo.GeoMath;
+import org.vatplanner.commons.geo.GeoPoint2D;
+
+/**
+ * Measures geo-coordinate calculations through {@link GeoMath} and {@link GeoPoint2D}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoBenchmark {
+    private static final int NUM_COORDINATES = 1024;
+
+    @Param({"2", "1000"})
+    int numPoints;
+
+    List<GeoPoint2D> points;
+
+    /**
+     * Coordinates to be normalized or wrapped; latitudes are only out of range in {@link #wrapLatitudes}.
+     */
+    double[] latitudes;
+    double[] wrapLatitudes;
+    double[] longitudes;
+    int coordinateIndex;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+
+        points = new ArrayList<>();
+        for (int i = 0; i < numPoints; i++) {
+            points.add(new GeoPoint2D(random.nextDouble() * 180.0 - 90.0, random.nextDouble() * 360.0 - 180.0));
+        }
+
+        latitudes = new double[NUM_COORDINATES];
+        wrapLatitudes = new double[NUM_COORDINATES];
+        longitudes = new double[NUM_COORDINATES];
+        for (int i = 0; i < NUM_COORDINATES; i++) {
+            latitudes[i] = random.nextDouble() * 180.0 - 90.0;
+            wrapLatitudes[i] = random.nextDouble() * 720.0 - 360.0;
+            longitudes[i] = random.nextDouble() * 1440.0 - 720.0;
+        }
+    }
+
+    @Benchmark
+    public GeoPoint2D average() {
+        return GeoMath.average(points);
+    }
+
+    @Benchmark
+    public GeoPoint2D normalize() {
+        int i = nextCoordinateIndex();
+        return GeoPoint2D.normalize(latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public GeoPoint2D wrap() {
+        int i = nextCoordinateIndex();
+        return GeoPoint2D.wrap(wrapLatitudes[i], longitudes[i]);
+    }
+
+    private int nextCoordinateIndex() {
+        coordinateIndex = (coordinateIndex + 1) % NUM_COORDINATES;
+        return coordinateIndex;
+    }
+}
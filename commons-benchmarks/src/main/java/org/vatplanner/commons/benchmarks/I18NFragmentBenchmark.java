@@ -0,0 +1,39 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.i18n.I18NFragment;
+
+/**
+ * Measures parsing of translation messages through {@link I18NFragment#parseMessage(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class I18NFragmentBenchmark {
+    @Param({
+        "Hello world!",
+        "Hello ${firstName}!",
+        "Total: ${currency:symbol}${total:roundTwoDigits} for ${count} items, due ${date:short}"
+    })
+    String message;
+
+    @Benchmark
+    public List<I18NFragment> parseMessage() {
+        return I18NFragment.parseMessage(message);
+    }
+}
@@ -0,0 +1,115 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.ConcurrentLRUCache;
+import org.vatplanner.commons.LRUCache;
+
+/**
+ * Measures retrieval, insertion and maintenance of {@link LRUCache} and {@link ConcurrentLRUCache} at different sizes
+ * and numbers of threads.
+ * <p>
+ * Caches are filled up to their maximum size, so every insertion of a new key evicts the least recently used entry.
+ * Keys are drawn from a range twice the size of the cache, so about half of all lookups miss.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LRUCacheBenchmark {
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        @Param({"1000", "100000"})
+        int size;
+
+        @Param({"LRUCache", "ConcurrentLRUCache"})
+        String implementation;
+
+        LRUCache<Integer, Integer> cache;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if ("ConcurrentLRUCache".equals(implementation)) {
+                cache = new ConcurrentLRUCache<>();
+            } else {
+                cache = new LRUCache<>();
+            }
+
+            cache.setMaxEntries(size);
+
+            for (int i = 0; i < size; i++) {
+                cache.put(i, i);
+            }
+        }
+    }
+
+    /**
+     * Generates keys individually per thread, so threads do not contend on key generation.
+     */
+    @State(Scope.Thread)
+    public static class KeyState {
+        private int seed;
+        private int range;
+
+        @Setup(Level.Trial)
+        public void setUp(CacheState cacheState) {
+            seed = System.identityHashCode(this) | 1;
+            range = cacheState.size * 2;
+        }
+
+        int nextKey() {
+            // xorshift, cheap and free of shared state unlike Random
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return (seed & Integer.MAX_VALUE) % range;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer get(CacheState cacheState, KeyState keyState) {
+        return cacheState.cache.get(keyState.nextKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer getContended(CacheState cacheState, KeyState keyState) {
+        return cacheState.cache.get(keyState.nextKey());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer put(CacheState cacheState, KeyState keyState) {
+        int key = keyState.nextKey();
+        return cacheState.cache.put(key, key);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer putContended(CacheState cacheState, KeyState keyState) {
+        int key = keyState.nextKey();
+        return cacheState.cache.put(key, key);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void maintain(CacheState cacheState) {
+        cacheState.cache.maintain();
+    }
+}
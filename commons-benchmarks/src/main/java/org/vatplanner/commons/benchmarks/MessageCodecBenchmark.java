@@ -0,0 +1,65 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.amqp.Message;
+import org.vatplanner.commons.amqp.MessageCodec;
+
+import com.rabbitmq.client.AMQP;
+
+/**
+ * Measures JSON serialization and deserialization of {@link Message}s through {@link MessageCodec} at different
+ * message sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageCodecBenchmark {
+    @Param({"1", "100", "10000"})
+    int numItems;
+
+    MessageCodec codec;
+    Message message;
+    byte[] serialized;
+    AMQP.BasicProperties properties;
+
+    @Setup
+    public void setUp() {
+        codec = new MessageCodec();
+        message = BenchmarkMessage.withItems(Instant.now(), numItems);
+
+        AMQP.BasicProperties.Builder propertiesBuilder = new AMQP.BasicProperties.Builder();
+        serialized = codec.serialize(propertiesBuilder, message);
+        properties = propertiesBuilder.build();
+
+        if (!codec.deserialize(properties, serialized).isPresent()) {
+            throw new IllegalStateException("benchmark message cannot be deserialized");
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return codec.serialize(new AMQP.BasicProperties.Builder(), message);
+    }
+
+    @Benchmark
+    public Optional<Message> deserialize() {
+        return codec.deserialize(properties, serialized);
+    }
+}
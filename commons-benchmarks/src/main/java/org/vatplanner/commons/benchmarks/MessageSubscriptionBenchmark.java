@@ -0,0 +1,111 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.amqp.AmqpSubscriptionCreator.ReceiptAction;
+import org.vatplanner.commons.amqp.Message;
+import org.vatplanner.commons.amqp.MessageCodec;
+import org.vatplanner.commons.amqp.MessageSubscriptionCreator;
+import org.vatplanner.commons.amqp.MessageSupplements;
+import org.vatplanner.commons.crypto.PGCryptor;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * Measures the full pipeline of receiving a {@link Message} through {@link MessageSubscriptionCreator}, i.e.
+ * decryption, deserialization, signature verification, dispatch and acknowledgement.
+ * <p>
+ * Deliveries are passed directly to the consumer registered on a {@link StubChannel}, so no actual AMQP connection is
+ * involved. Encryption and signatures use a newly generated key through {@link PGCryptor}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageSubscriptionBenchmark {
+    private static final String CONTENT_TYPE_PGP_ENCRYPTED = "application/pgp-encrypted";
+    private static final String HEADER_SIGNATURE = "pgpSignature";
+
+    @Param({"10", "1000"})
+    int numItems;
+
+    @Param({"plain", "signed", "encrypted", "encryptedSigned"})
+    String encoding;
+
+    Consumer consumer;
+    Envelope envelope;
+    AMQP.BasicProperties properties;
+    byte[] body;
+
+    Message lastMessage;
+
+    @Setup
+    public void setUp() throws Exception {
+        StubChannel stubChannel = new StubChannel();
+        PGCryptor cryptor = TestKeys.createCryptor();
+
+        MessageSubscriptionCreator.usingChannel(stubChannel.getChannel())
+                                  .forExistingQueue("benchmark")
+                                  .withAutoAck(false)
+                                  .withCryptor(cryptor)
+                                  .notOlderThan(Duration.ofDays(1))
+                                  .onMessage(BenchmarkMessage.class, this::handleMessage)
+                                  .subscribe();
+
+        consumer = stubChannel.getConsumer();
+        envelope = new Envelope(1, false, "benchmark", "benchmark");
+
+        AMQP.BasicProperties.Builder propertiesBuilder = new AMQP.BasicProperties.Builder();
+        body = new MessageCodec().serialize(propertiesBuilder, BenchmarkMessage.withItems(Instant.now(), numItems));
+
+        boolean shouldEncrypt = "encrypted".equals(encoding) || "encryptedSigned".equals(encoding);
+        if (shouldEncrypt) {
+            body = cryptor.encryptUnarmored(body);
+            propertiesBuilder.contentType(CONTENT_TYPE_PGP_ENCRYPTED);
+        }
+
+        boolean shouldSign = "signed".equals(encoding) || "encryptedSigned".equals(encoding);
+        if (shouldSign) {
+            // signature covers the body as transmitted, i.e. after encryption
+            propertiesBuilder.headers(Collections.singletonMap(HEADER_SIGNATURE, cryptor.sign(body).getAsciiArmored()));
+        }
+
+        properties = propertiesBuilder.build();
+
+        deliver();
+        if ((lastMessage == null) || (stubChannel.getNumAcknowledged() != 1)) {
+            throw new IllegalStateException("benchmark message was not processed successfully");
+        }
+    }
+
+    private ReceiptAction handleMessage(BenchmarkMessage message, MessageSupplements supplements) {
+        lastMessage = message;
+        return ReceiptAction.ACKNOWLEDGE;
+    }
+
+    @Benchmark
+    public Message deliver() throws IOException {
+        consumer.handleDelivery("benchmark", envelope, properties, body);
+        return lastMessage;
+    }
+}
@@ -0,0 +1,94 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.crypto.Cryptor;
+import org.vatplanner.commons.crypto.PGCryptor;
+
+/**
+ * Measures encryption, decryption, signing and verification through {@link PGCryptor} using a newly generated key at
+ * different payload sizes and numbers of threads.
+ * <p>
+ * Note that encryption includes decrypting the result again, as done by {@link PGCryptor} to verify the output.
+ * {@link PGCryptor} serializes all operations, so results of the contended variants indicate the overhead of
+ * contention rather than any gain by parallelism.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PGCryptorBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    int payloadSize;
+
+    PGCryptor cryptor;
+    byte[] payload;
+    byte[] encrypted;
+    Cryptor.Signature signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        cryptor = TestKeys.createCryptor();
+
+        payload = new byte[payloadSize];
+        new Random(1).nextBytes(payload);
+
+        encrypted = cryptor.encryptUnarmored(payload);
+        signature = cryptor.sign(payload);
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return cryptor.encryptUnarmored(payload);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] encryptContended() {
+        return cryptor.encryptUnarmored(payload);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return cryptor.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public Cryptor.Signature sign() {
+        return cryptor.sign(payload);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Cryptor.Signature signContended() {
+        return cryptor.sign(payload);
+    }
+
+    @Benchmark
+    public Set<Long> verify() {
+        return cryptor.verify(payload, signature);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<Long> verifyContended() {
+        return cryptor.verify(payload, signature);
+    }
+}
@@ -0,0 +1,48 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vatplanner.commons.utils.StringSplitter;
+
+/**
+ * Measures {@link StringSplitter#splitOnSpace(String)} on lines with different numbers of fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringSplitterBenchmark {
+    @Param({"4", "64"})
+    int numFields;
+
+    String line;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numFields; i++) {
+            // vary separators to include runs of multiple spaces
+            sb.append((i % 3 == 0) ? "   " : " ");
+            sb.append("field").append(i);
+        }
+        line = sb.toString();
+    }
+
+    @Benchmark
+    public StringSplitter.Result splitOnSpace() {
+        return StringSplitter.splitOnSpace(line);
+    }
+}
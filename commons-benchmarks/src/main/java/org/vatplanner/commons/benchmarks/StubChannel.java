@@ -0,0 +1,98 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+
+/**
+ * A {@link Channel} without any connection, used to drive subscriptions in benchmarks.
+ * <p>
+ * The {@link Consumer} registered by the last call to {@code basicConsume} is recorded and all acknowledgements are
+ * counted. All other methods do nothing and return {@code null}, {@code false} or zero.
+ * </p>
+ */
+class StubChannel implements InvocationHandler {
+    private final Channel proxy;
+
+    private volatile Consumer consumer;
+    private long numAcknowledged;
+
+    StubChannel() {
+        proxy = (Channel) Proxy.newProxyInstance(
+            Channel.class.getClassLoader(),
+            new Class<?>[]{Channel.class},
+            this
+        );
+    }
+
+    /**
+     * Returns the {@link Channel} to be used by the code under test.
+     *
+     * @return stub {@link Channel}
+     */
+    Channel getChannel() {
+        return proxy;
+    }
+
+    /**
+     * Returns the {@link Consumer} which was last registered on this channel.
+     *
+     * @return last registered {@link Consumer}; {@code null} if none has been registered yet
+     */
+    Consumer getConsumer() {
+        return consumer;
+    }
+
+    long getNumAcknowledged() {
+        return numAcknowledged;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+
+        if ("basicConsume".equals(name)) {
+            for (Object arg : args) {
+                if (arg instanceof Consumer) {
+                    consumer = (Consumer) arg;
+                }
+            }
+            return "stub-consumer";
+        } else if ("basicAck".equals(name)) {
+            numAcknowledged++;
+        } else if ("toString".equals(name)) {
+            return "StubChannel";
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+
+        return defaultValue(method.getReturnType());
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || (type == void.class)) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else {
+            return (char) 0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.vatplanner.commons.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.pgpainless.PGPainless;
+import org.pgpainless.key.protection.SecretKeyRingProtector;
+import org.vatplanner.commons.crypto.PGCryptor;
+
+/**
+ * Generates throw-away OpenPGP keys for benchmarking.
+ */
+class TestKeys {
+    private TestKeys() {
+        // utility class; hide constructor
+    }
+
+    /**
+     * Generates a new unprotected key and returns a {@link PGCryptor} using it for all operations.
+     * <p>
+     * Keys are only written to a temporary directory to be loaded by {@link PGCryptor}; the directory is deleted
+     * before this method returns.
+     * </p>
+     * <p>
+     * Note that {@link PGCryptor} shares its active keys between all instances, so previously created instances will
+     * use the new key as well.
+     * </p>
+     *
+     * @return {@link PGCryptor} using a newly generated key
+     * @throws Exception if the key cannot be generated or loaded
+     */
+    static PGCryptor createCryptor() throws Exception {
+        PGPSecretKeyRing secretKeys = PGPainless.generateKeyRing().modernKeyRing("Benchmark <benchmark@localhost>");
+
+        Path baseDirectory = Files.createTempDirectory("benchmark-keys");
+        try {
+            write(baseDirectory.resolve("public").resolve("benchmark.pub.asc"), PGPainless.asciiArmor(PGPainless.extractCertificate(secretKeys)));
+            write(baseDirectory.resolve("secret").resolve("benchmark.sec.asc"), PGPainless.asciiArmor(secretKeys));
+
+            return new PGCryptor(baseDirectory.toFile(), SecretKeyRingProtector.unprotectedKeys());
+        } finally {
+            deleteRecursively(baseDirectory);
+        }
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.vatplanner.commons.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class BaselineComparisonTest {
+    private static String json(String benchmark, String mode, String params, double score) {
+        return "{\"benchmark\":\"" + benchmark + "\",\"mode\":\"" + mode + "\",\"params\":" + params
+            + ",\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":\"NaN\",\"scoreUnit\":\"ops/ms\"}}";
+    }
+
+    private static Map<String, BaselineComparison.Result> parse(String... benchmarks) throws Exception {
+        return BaselineComparison.parse(new StringReader("[" + String.join(",", benchmarks) + "]"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "thrpt, 100, 120, 20.0",
+        "thrpt, 100, 80, -20.0",
+        "avgt, 100, 80, 20.0",
+        "avgt, 100, 120, -20.0",
+    })
+    void testGetImprovementPercent_changedScore_returnsChangeInFavorableDirection(String mode, double baselineScore, double currentScore, double expectedImprovement) throws Exception {
+        // arrange
+        Map<String, BaselineComparison.Result> baseline = parse(json("a.B.c", mode, "{}", baselineScore));
+        Map<String, BaselineComparison.Result> current = parse(json("a.B.c", mode, "{}", currentScore));
+
+        List<BaselineComparison.Comparison> comparisons = BaselineComparison.compare(baseline, current);
+
+        // act
+        double result = comparisons.get(0).getImprovementPercent();
+
+        // assert
+        assertThat(result).isCloseTo(expectedImprovement, within(0.001));
+    }
+
+    @Test
+    void testCompare_differentParameterOrder_matchesSameBenchmark() throws Exception {
+        // arrange
+        Map<String, BaselineComparison.Result> baseline = parse(json("a.B.c", "thrpt", "{\"x\":\"1\",\"y\":\"2\"}", 100));
+        Map<String, BaselineComparison.Result> current = parse(json("a.B.c", "thrpt", "{\"y\":\"2\",\"x\":\"1\"}", 50));
+
+        // act
+        List<BaselineComparison.Comparison> result = BaselineComparison.compare(baseline, current);
+
+        // assert
+        assertAll(
+            () -> assertThat(result).hasSize(1),
+            () -> assertThat(result.get(0).isRegression(10.0)).describedAs("regression").isTrue()
+        );
+    }
+
+    @Test
+    void testCompare_benchmarksMissingOnEitherSide_includesBothWithoutRegression() throws Exception {
+        // arrange
+        Map<String, BaselineComparison.Result> baseline = parse(json("a.B.old", "thrpt", "{}", 100));
+        Map<String, BaselineComparison.Result> current = parse(json("a.B.new", "thrpt", "{}", 100));
+
+        // act
+        List<BaselineComparison.Comparison> result = BaselineComparison.compare(baseline, current);
+
+        // assert
+        assertAll(
+            () -> assertThat(result).extracting(comparison -> comparison.key)
+                                    .containsExactly("a.B.old{}", "a.B.new{}"),
+            () -> assertThat(result).noneMatch(comparison -> comparison.isRegression(10.0))
+        );
+    }
+}